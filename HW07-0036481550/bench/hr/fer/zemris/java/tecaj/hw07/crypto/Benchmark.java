@@ -0,0 +1,200 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * {@code Benchmark} is a small benchmark harness used by
+ * {@link CryptoBenchmark}. Every benchmark is run in warmup and measurement
+ * iterations, like in JMH, but without any dependency:
+ * <ul>
+ * <li>warmup iterations run the operation until the given time passes, so
+ * the JIT compiler can compile the hot loop, and their results are dropped
+ * <li>every measurement iteration runs the operation until the given time
+ * passes and gives one throughput sample
+ * </ul>
+ * Result of every operation is consumed by {@link #consume(long)}, so the
+ * compiler cannot remove the measured code as dead code.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class Benchmark {
+
+	/**
+	 * Number of bytes in a megabyte.
+	 */
+	private static final double MEGABYTE = 1024 * 1024;
+
+	/**
+	 * Sink of results of all operations.
+	 */
+	private static volatile long sink;
+
+	/**
+	 * Number of warmup iterations.
+	 */
+	private final int warmupIterations;
+
+	/**
+	 * Number of measurement iterations.
+	 */
+	private final int measurementIterations;
+
+	/**
+	 * Duration of one iteration, in milliseconds.
+	 */
+	private final long iterationMillis;
+
+	/**
+	 * The stream to which results are printed.
+	 */
+	private final PrintStream out;
+
+	/**
+	 * {@code Operation} is the measured operation.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	@FunctionalInterface
+	public interface Operation {
+
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return a value depending on the result of the operation, which is
+		 *         consumed by the harness
+		 * @throws Exception
+		 *             if an error occurs
+		 */
+		long run() throws Exception;
+	}
+
+	/**
+	 * Constructs a new {@code Benchmark}.
+	 *
+	 * @param warmupIterations
+	 *            number of warmup iterations
+	 * @param measurementIterations
+	 *            number of measurement iterations
+	 * @param iterationMillis
+	 *            duration of one iteration, in milliseconds
+	 * @param out
+	 *            the stream to which results are printed
+	 * @throws IllegalArgumentException
+	 *             if number of measurement iterations or duration isn't
+	 *             positive or stream is {@code null}
+	 */
+	public Benchmark(int warmupIterations, int measurementIterations,
+			long iterationMillis, PrintStream out) {
+		if (warmupIterations < 0 || measurementIterations <= 0
+				|| iterationMillis <= 0) {
+			throw new IllegalArgumentException(
+					"Iterations and duration must be positive numbers!");
+		}
+
+		if (out == null) {
+			throw new IllegalArgumentException("Stream cannot be null!");
+		}
+
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationMillis = iterationMillis;
+		this.out = out;
+	}
+
+	/**
+	 * Prints the header of the result table.
+	 */
+	public void printHeader() {
+		out.printf(
+				"%-44s %10s %10s %12s%n",
+				"Benchmark",
+				"MB/s",
+				"+- MB/s",
+				"ops/s");
+	}
+
+	/**
+	 * Runs the benchmark and prints its average throughput, standard deviation
+	 * of throughput and number of operations per second.
+	 *
+	 * @param name
+	 *            name of the benchmark
+	 * @param bytesPerOperation
+	 *            number of bytes processed by one operation
+	 * @param operation
+	 *            the operation
+	 * @throws Exception
+	 *             if operation fails
+	 */
+	public void run(String name, long bytesPerOperation, Operation operation)
+			throws Exception {
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(operation);
+		}
+
+		double[] samples = new double[measurementIterations];
+		double operations = 0;
+
+		for (int i = 0; i < measurementIterations; i++) {
+			samples[i] = iteration(operation);
+			operations += samples[i];
+		}
+
+		operations /= measurementIterations;
+
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = samples[i] * bytesPerOperation / MEGABYTE;
+		}
+
+		double mean = Arrays.stream(samples).average().getAsDouble();
+		double deviation = Math.sqrt(Arrays.stream(samples)
+				.map(s -> (s - mean) * (s - mean))
+				.sum() / samples.length);
+
+		out.printf(
+				"%-44s %10.1f %10.1f %12.1f%n",
+				name,
+				mean,
+				deviation,
+				operations);
+	}
+
+	/**
+	 * Consumes result of an operation.
+	 *
+	 * @param value
+	 *            the result
+	 */
+	public static void consume(long value) {
+		sink += value;
+	}
+
+	/**
+	 * Runs the operation until duration of the iteration passes.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @return number of operations per second
+	 * @throws Exception
+	 *             if operation fails
+	 */
+	private double iteration(Operation operation) throws Exception {
+		long duration = iterationMillis * 1_000_000;
+		long start = System.nanoTime();
+		long elapsed;
+		long count = 0;
+		long result = 0;
+
+		do {
+			result += operation.run();
+			count++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < duration);
+
+		consume(result);
+		return count * 1e9 / elapsed;
+	}
+}
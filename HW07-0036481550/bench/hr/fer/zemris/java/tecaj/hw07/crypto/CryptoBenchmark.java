@@ -0,0 +1,420 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@code CryptoBenchmark} is a program that measures throughput of the hot
+ * loops of {@link Crypto}:
+ * <ul>
+ * <li>{@code cbc.encrypt} and {@code cbc.decrypt} pass an in-memory input to
+ * AES in CBC mode in chunks of the given buffer size
+ * <li>{@code sha256} passes an in-memory input to SHA-256 in chunks of the
+ * given buffer size
+ * <li>{@code hex} converts bytes to hex-encoded text and back and compares
+ * bytes with hex-encoded text
+ * <li>{@code file.cbc} and {@code file.sha256} run {@link ChannelCipher} and
+ * {@link FileDigester} on a temporary file with the given chunk and block
+ * size
+ * </ul>
+ * In-memory benchmarks are run with heap and direct buffers, for every
+ * buffer size from {@value #MIN_BUFFER_SIZE} bytes to
+ * {@value #MAX_BUFFER_SIZE} bytes and for a small and a large input, so
+ * effect of any change to buffer sizes can be measured.
+ * <p>
+ * Program accepts optional arguments {@code --quick}, which runs fewer and
+ * shorter iterations, and {@code --filter <regex>}, which runs only
+ * benchmarks whose name contains a match of the regular expression, e.g.
+ * {@code --filter "sha256.*direct"}.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class CryptoBenchmark {
+
+	/**
+	 * The smallest buffer size.
+	 */
+	private static final int MIN_BUFFER_SIZE = 4 * 1024;
+
+	/**
+	 * The largest buffer size.
+	 */
+	private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Sizes of in-memory inputs.
+	 */
+	private static final int[] INPUT_SIZES = { 64 * 1024, 16 * 1024 * 1024 };
+
+	/**
+	 * Size of the temporary file.
+	 */
+	private static final int FILE_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Sizes of hex conversion inputs.
+	 */
+	private static final int[] HEX_SIZES = { 16, 4096 };
+
+	/**
+	 * The AES key.
+	 */
+	private static final SecretKeySpec KEY = new SecretKeySpec(
+			Hex.decode("a52217e3ee213ef1ffdee3a192e2ac7e"),
+			"AES");
+
+	/**
+	 * The initialization vector.
+	 */
+	private static final IvParameterSpec IV = new IvParameterSpec(
+			Hex.decode("000102030405060708090a0b0c0d0e0f"));
+
+	/**
+	 * Channel discarding all bytes written to it.
+	 */
+	private static final WritableByteChannel DISCARD =
+			new WritableByteChannel() {
+
+				@Override
+				public int write(ByteBuffer src) {
+					int n = src.remaining();
+					src.position(src.limit());
+					return n;
+				}
+
+				@Override
+				public boolean isOpen() {
+					return true;
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+
+	/**
+	 * Benchmarks whose names don't match this pattern are skipped.
+	 */
+	private static Pattern filter = Pattern.compile("");
+
+	/**
+	 * The harness.
+	 */
+	private static Benchmark benchmark;
+
+	/**
+	 * Starting point of a program.
+	 *
+	 * @param args
+	 *            optional {@code --quick} and {@code --filter <regex>}
+	 * @throws Exception
+	 *             if a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean quick = false;
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--quick")) {
+				quick = true;
+			} else if (args[i].equals("--filter") && i + 1 < args.length) {
+				filter = Pattern.compile(args[++i]);
+			} else {
+				System.err.println(
+						"Usage: CryptoBenchmark [--quick] [--filter <regex>]");
+				System.exit(-1);
+			}
+		}
+
+		benchmark = quick ? new Benchmark(1, 3, 200, System.out)
+				: new Benchmark(3, 5, 1000, System.out);
+		benchmark.printHeader();
+
+		for (int inputSize : INPUT_SIZES) {
+			byte[] input = randomBytes(inputSize);
+
+			for (boolean direct : new boolean[] { false, true }) {
+				for (int size = MIN_BUFFER_SIZE; size <= MAX_BUFFER_SIZE
+						&& size <= inputSize; size *= 4) {
+					benchmarkCbc(input, size, direct);
+					benchmarkSha256(input, size, direct);
+				}
+			}
+		}
+
+		for (int size : HEX_SIZES) {
+			benchmarkHex(randomBytes(size));
+		}
+
+		benchmarkFiles();
+	}
+
+	/**
+	 * Runs CBC encryption and decryption benchmarks.
+	 *
+	 * @param input
+	 *            the input
+	 * @param bufferSize
+	 *            size of chunk passed to the cipher
+	 * @param direct
+	 *            flag indicating whether direct buffers are used
+	 * @throws Exception
+	 *             if benchmark fails
+	 */
+	private static void benchmarkCbc(byte[] input, int bufferSize,
+			boolean direct) throws Exception {
+		Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+		cipher.init(Cipher.ENCRYPT_MODE, KEY, IV);
+		byte[] encrypted = cipher.doFinal(input);
+
+		ByteBuffer plain = buffer(input, direct);
+		ByteBuffer crypted = buffer(encrypted, direct);
+		ByteBuffer output = direct
+				? ByteBuffer.allocateDirect(bufferSize + 32)
+				: ByteBuffer.allocate(bufferSize + 32);
+
+		run("cbc.encrypt", input.length, bufferSize, direct,
+				() -> cbc(cipher, Cipher.ENCRYPT_MODE, plain, output,
+						bufferSize));
+		run("cbc.decrypt", input.length, bufferSize, direct,
+				() -> cbc(cipher, Cipher.DECRYPT_MODE, crypted, output,
+						bufferSize));
+	}
+
+	/**
+	 * Runs SHA-256 benchmark.
+	 *
+	 * @param input
+	 *            the input
+	 * @param bufferSize
+	 *            size of chunk passed to the digest
+	 * @param direct
+	 *            flag indicating whether direct buffer is used
+	 * @throws Exception
+	 *             if benchmark fails
+	 */
+	private static void benchmarkSha256(byte[] input, int bufferSize,
+			boolean direct) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		ByteBuffer buffer = buffer(input, direct);
+
+		run("sha256", input.length, bufferSize, direct, () -> {
+			buffer.clear();
+
+			while (buffer.hasRemaining()) {
+				buffer.limit(Math.min(
+						buffer.position() + bufferSize,
+						buffer.capacity()));
+				digest.update(buffer);
+				buffer.limit(buffer.capacity());
+			}
+
+			return digest.digest()[0];
+		});
+	}
+
+	/**
+	 * Runs hex conversion benchmarks.
+	 *
+	 * @param input
+	 *            the input
+	 * @throws Exception
+	 *             if benchmark fails
+	 */
+	private static void benchmarkHex(byte[] input) throws Exception {
+		String hex = Hex.encode(input);
+		char[] chars = new char[hex.length()];
+		byte[] bytes = new byte[input.length];
+
+		run("hex.encode bytes=" + input.length, input.length,
+				() -> Hex.encode(input).length());
+		run("hex.encode-into bytes=" + input.length, input.length, () -> {
+			Hex.encode(input, chars);
+			return chars[0];
+		});
+		run("hex.decode bytes=" + input.length, input.length,
+				() -> Hex.decode(hex).length);
+		run("hex.decode-into bytes=" + input.length, input.length, () -> {
+			Hex.decode(hex, bytes);
+			return bytes[0];
+		});
+		run("hex.equals bytes=" + input.length, input.length,
+				() -> Hex.equals(input, hex) ? 1 : 0);
+	}
+
+	/**
+	 * Runs {@link ChannelCipher} and {@link FileDigester} benchmarks on a
+	 * temporary file. Output of the cipher is discarded, so only reading and
+	 * the cipher are measured. Temporary file is filled only if any of the
+	 * benchmarks matches the filter.
+	 *
+	 * @throws Exception
+	 *             if benchmark fails
+	 */
+	private static void benchmarkFiles() throws Exception {
+		Map<String, Benchmark.Operation> operations = new LinkedHashMap<>();
+		Path file = Files.createTempFile("crypto-benchmark", ".bin");
+
+		for (int size = MIN_BUFFER_SIZE; size <= MAX_BUFFER_SIZE; size *= 4) {
+			int chunkSize = size;
+			FileDigester digester = new FileDigester("SHA-256", size);
+
+			operations.put("file.cbc chunk=" + size, () -> {
+				Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+				cipher.init(Cipher.ENCRYPT_MODE, KEY, IV);
+
+				try (FileChannel in = FileChannel
+						.open(file, StandardOpenOption.READ)) {
+					new ChannelCipher(cipher, chunkSize).process(in, DISCARD);
+				}
+				return 1;
+			});
+			operations.put(
+					"file.sha256 block=" + size,
+					() -> digester.digest(file)[0]);
+		}
+
+		operations.keySet().removeIf(name -> !filter.matcher(name).find());
+
+		try {
+			if (!operations.isEmpty()) {
+				Files.write(file, randomBytes(FILE_SIZE));
+			}
+
+			for (Map.Entry<String, Benchmark.Operation> entry : operations
+					.entrySet()) {
+				run(entry.getKey(), FILE_SIZE, entry.getValue());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Passes the whole input to the cipher in chunks.
+	 *
+	 * @param cipher
+	 *            the cipher
+	 * @param mode
+	 *            mode of the cipher
+	 * @param input
+	 *            the input
+	 * @param output
+	 *            the output buffer
+	 * @param bufferSize
+	 *            size of chunk passed to the cipher
+	 * @return number of bytes produced by the cipher
+	 * @throws GeneralSecurityException
+	 *             if cipher fails
+	 */
+	private static long cbc(Cipher cipher, int mode, ByteBuffer input,
+			ByteBuffer output, int bufferSize)
+			throws GeneralSecurityException {
+		cipher.init(mode, KEY, IV);
+		input.clear();
+		long produced = 0;
+
+		while (input.hasRemaining()) {
+			input.limit(Math.min(input.position() + bufferSize,
+					input.capacity()));
+			output.clear();
+			produced += cipher.update(input, output);
+			input.limit(input.capacity());
+		}
+
+		output.clear();
+		return produced + cipher.doFinal(input, output);
+	}
+
+	/**
+	 * Runs an in-memory benchmark if its name matches the filter.
+	 *
+	 * @param name
+	 *            name of the operation
+	 * @param inputSize
+	 *            size of the input
+	 * @param bufferSize
+	 *            size of the buffer
+	 * @param direct
+	 *            flag indicating whether direct buffers are used
+	 * @param operation
+	 *            the operation
+	 * @throws Exception
+	 *             if benchmark fails
+	 */
+	private static void run(String name, int inputSize, int bufferSize,
+			boolean direct, Benchmark.Operation operation) throws Exception {
+		run(String.format(
+				"%s %s buf=%d input=%d",
+				name,
+				direct ? "direct" : "heap",
+				bufferSize,
+				inputSize), inputSize, operation);
+	}
+
+	/**
+	 * Runs a benchmark if its name matches the filter.
+	 *
+	 * @param name
+	 *            name of the benchmark
+	 * @param bytesPerOperation
+	 *            number of bytes processed by one operation
+	 * @param operation
+	 *            the operation
+	 * @throws Exception
+	 *             if benchmark fails
+	 */
+	private static void run(String name, long bytesPerOperation,
+			Benchmark.Operation operation) throws Exception {
+		if (filter.matcher(name).find()) {
+			benchmark.run(name, bytesPerOperation, operation);
+		}
+	}
+
+	/**
+	 * Returns a heap or direct buffer with content of the array.
+	 *
+	 * @param content
+	 *            content of the buffer
+	 * @param direct
+	 *            flag indicating whether buffer is direct
+	 * @return the buffer
+	 */
+	private static ByteBuffer buffer(byte[] content, boolean direct) {
+		if (!direct) {
+			return ByteBuffer.wrap(content);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+		buffer.put(content).flip();
+		return buffer;
+	}
+
+	/**
+	 * Returns array of pseudo-random bytes. Seed is fixed, so every run
+	 * processes the same data.
+	 *
+	 * @param size
+	 *            size of the array
+	 * @return the array
+	 */
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(42).nextBytes(bytes);
+		return bytes;
+	}
+}
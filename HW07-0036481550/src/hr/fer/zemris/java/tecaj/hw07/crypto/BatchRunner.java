@@ -0,0 +1,351 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * {@code BatchRunner} is a class that runs all jobs listed in a job file using
+ * the key of one {@link CryptoEngine}, so the whole batch is processed in one
+ * JVM without asking for the key more than once.
+ * <p>
+ * Every line of the job file is one job written the same way as arguments of
+ * {@link Crypto}, for example:
+ *
+ * <pre>
+ * # comments and empty lines are ignored
+ * encrypt report.pdf report.bin 000102030405060708090a0b0c0d0e0f
+ * decrypt-ctr archive.ctr archive.tar 5f1e...9c
+ * checksha report.pdf 2f9a...e1
+ * </pre>
+ *
+ * Jobs in CBC and CTR modes and {@code verify} jobs end with the
+ * initialization vector of their file as 32 hex-digits. Encrypting two files
+ * with the same key and vector leaks the relation of their contents (in CTR
+ * mode their XOR), so a vector can be used for encryption only once per
+ * batch; a job reusing it fails. In CTR mode the vector is the counter of the
+ * first block and is incremented for every following block, so an
+ * {@code encrypt-ctr} job covers counters
+ * {@code [vector, vector + ceil(size / 16))} and fails if they overlap
+ * counters of an earlier {@code encrypt-ctr} job, e.g. when vectors of
+ * consecutive jobs differ by one. Chunked and GCM jobs generate their own
+ * random nonces and take no vector.
+ *
+ * Supported commands are {@code encrypt}, {@code decrypt},
+ * {@code encrypt-pipe}, {@code decrypt-pipe}, {@code encrypt-ctr},
+ * {@code decrypt-ctr}, {@code encrypt-chunked}, {@code decrypt-chunked},
+ * {@code encrypt-gcm}, {@code decrypt-gcm},
+ * {@code checksha <file> <expected_digest>} and
+ * {@code verify <encrypted_file> <expected_digest>}. Arguments are separated by
+ * whitespace. A failed job doesn't stop the batch.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class BatchRunner {
+
+	/**
+	 * The engine running the jobs.
+	 */
+	private final CryptoEngine engine;
+
+	/**
+	 * Hex-encoded initialization vectors used for encryption in this batch.
+	 */
+	private final Set<String> encryptionVectors = new HashSet<>();
+
+	/**
+	 * Counters used for encryption in CTR mode in this batch, as pairs of the
+	 * first counter and the counter after the last one.
+	 */
+	private final List<BigInteger[]> counterRanges = new ArrayList<>();
+
+	/**
+	 * Number of distinct counters, 2 to the power of 128.
+	 */
+	private static final BigInteger COUNTER_MODULUS = BigInteger.ONE
+			.shiftLeft(128);
+
+	/**
+	 * Constructs a new {@code BatchRunner}.
+	 *
+	 * @param engine
+	 *            the engine running the jobs
+	 * @throws IllegalArgumentException
+	 *             if engine is {@code null}
+	 */
+	public BatchRunner(CryptoEngine engine) {
+		if (engine == null) {
+			throw new IllegalArgumentException("Engine cannot be null!");
+		}
+
+		this.engine = engine;
+	}
+
+	/**
+	 * Runs all jobs listed in the job file and prints result of every job and
+	 * a summary to the given stream.
+	 *
+	 * @param jobFile
+	 *            the path of the job file
+	 * @param out
+	 *            the stream to which results are printed
+	 * @return the number of failed jobs
+	 * @throws IOException
+	 *             if job file cannot be read
+	 */
+	public int run(Path jobFile, PrintStream out) throws IOException {
+		List<String> lines = Files.readAllLines(jobFile, StandardCharsets.UTF_8);
+		int succeeded = 0;
+		int failed = 0;
+
+		encryptionVectors.clear();
+		counterRanges.clear();
+
+		for (int i = 0, n = lines.size(); i < n; i++) {
+			String line = lines.get(i).trim();
+
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			try {
+				runJob(line.split("\\s+"), out);
+				succeeded++;
+			} catch (IOException | GeneralSecurityException
+					| RuntimeException e) {
+				out.printf(
+						Messages.BATCH_JOB_FAILED_MESSAGE + "%n",
+						i + 1,
+						line,
+						e.getMessage());
+				failed++;
+			}
+		}
+
+		out.printf(Messages.BATCH_SUMMARY_MESSAGE + "%n", succeeded, failed);
+		return failed;
+	}
+
+	/**
+	 * Runs one job.
+	 *
+	 * @param args
+	 *            arguments of the job
+	 * @param out
+	 *            the stream to which result is printed
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 * @throws IllegalArgumentException
+	 *             if job is not of right format
+	 */
+	private void runJob(String[] args, PrintStream out)
+			throws IOException, GeneralSecurityException {
+		if (args[0].equals(Crypto.KEYWORD_CHECKSHA)) {
+			checkArgumentCount(args, 3);
+
+			if (!args[2].matches("^[A-Fa-f0-9]{64}$")) {
+				throw new IllegalArgumentException(
+						Messages.CHECKSUM_FORMAT_ERROR);
+			}
+
+			byte[] digest = engine.digest(Paths.get(args[1]));
+			if (Hex.equals(digest, args[2])) {
+				out.printf(Messages.CHECKSUM_SUCCESS_MESSAGE + "%n", args[1]);
+			} else {
+				throw new IllegalArgumentException(String.format(
+						Messages.CHECKSUM_FAIL_MESSAGE,
+						args[1],
+						Hex.encode(digest)));
+			}
+			return;
+		}
+
+		if (args[0].equals(Crypto.KEYWORD_VERIFY)) {
+			checkArgumentCount(args, 4);
+
+			if (!args[2].matches("^[A-Fa-f0-9]{64}$")) {
+				throw new IllegalArgumentException(
+						Messages.CHECKSUM_FORMAT_ERROR);
+			}
+
+			byte[] digest = engine.withInitVector(parseInitVector(args[3]))
+					.digestDecrypted(Paths.get(args[1]));
+			if (Hex.equals(digest, args[2])) {
+				out.printf(Messages.VERIFY_SUCCESS_MESSAGE + "%n", args[1]);
+			} else {
+				throw new IllegalArgumentException(String.format(
+						Messages.VERIFY_FAIL_MESSAGE,
+						args[1],
+						Hex.encode(digest)));
+			}
+			return;
+		}
+
+		CryptoEngine.Mode mode;
+		boolean encrypt;
+
+		switch (args[0]) {
+		case Crypto.KEYWORD_ENCRYPT:
+		case Crypto.KEYWORD_DECRYPT:
+			mode = CryptoEngine.Mode.CBC;
+			encrypt = args[0].equals(Crypto.KEYWORD_ENCRYPT);
+			break;
+		case Crypto.KEYWORD_ENCRYPT_PIPE:
+		case Crypto.KEYWORD_DECRYPT_PIPE:
+			mode = CryptoEngine.Mode.PIPELINED;
+			encrypt = args[0].equals(Crypto.KEYWORD_ENCRYPT_PIPE);
+			break;
+		case Crypto.KEYWORD_ENCRYPT_CTR:
+		case Crypto.KEYWORD_DECRYPT_CTR:
+			mode = CryptoEngine.Mode.CTR;
+			encrypt = args[0].equals(Crypto.KEYWORD_ENCRYPT_CTR);
+			break;
+		case Crypto.KEYWORD_ENCRYPT_CHUNKED:
+		case Crypto.KEYWORD_DECRYPT_CHUNKED:
+			mode = CryptoEngine.Mode.CHUNKED;
+			encrypt = args[0].equals(Crypto.KEYWORD_ENCRYPT_CHUNKED);
+			break;
+		case Crypto.KEYWORD_ENCRYPT_GCM:
+		case Crypto.KEYWORD_DECRYPT_GCM:
+			mode = CryptoEngine.Mode.GCM;
+			encrypt = args[0].equals(Crypto.KEYWORD_ENCRYPT_GCM);
+			break;
+		default:
+			throw new IllegalArgumentException(
+					"Unsupported command " + args[0] + "!");
+		}
+
+		CryptoEngine jobEngine = engine;
+
+		if (mode.needsInitVector()) {
+			checkArgumentCount(args, 4);
+			byte[] initVector = parseInitVector(args[3]);
+
+			if (encrypt) {
+				if (encryptionVectors.contains(Hex.encode(initVector))) {
+					throw new IllegalArgumentException(String.format(
+							Messages.BATCH_IV_REUSED_ERROR,
+							args[3].toLowerCase(Locale.ROOT)));
+				}
+				if (mode == CryptoEngine.Mode.CTR) {
+					reserveCounters(
+							initVector,
+							Files.size(Paths.get(args[1])),
+							args[3]);
+				}
+				encryptionVectors.add(Hex.encode(initVector));
+			}
+
+			jobEngine = engine.withInitVector(initVector);
+		} else {
+			checkArgumentCount(args, 3);
+		}
+
+		jobEngine.process(
+				mode,
+				encrypt,
+				Paths.get(args[1]),
+				Paths.get(args[2]));
+
+		out.printf(
+				(encrypt ? Messages.ENCRYPTION_SUCCESS_MESSAGE
+						: Messages.DECRYPTION_SUCCESS_MESSAGE) + "%n",
+				args[2],
+				args[1]);
+	}
+
+	/**
+	 * Reserves counters which encryption of a file in CTR mode uses. Counters
+	 * wrap around after {@code 2^128 - 1}, so a range which wraps is reserved
+	 * as two ranges.
+	 *
+	 * @param initVector
+	 *            the initialization vector, i.e. the counter of the first
+	 *            block
+	 * @param size
+	 *            size of the file
+	 * @param hex
+	 *            the initialization vector as given in the job file
+	 * @throws IllegalArgumentException
+	 *             if counters overlap counters of an earlier encryption
+	 */
+	private void reserveCounters(byte[] initVector, long size, String hex) {
+		BigInteger start = new BigInteger(1, initVector);
+		BigInteger end = start.add(BigInteger.valueOf(
+				size / ParallelCtrCipher.BLOCK_SIZE
+						+ (size % ParallelCtrCipher.BLOCK_SIZE == 0 ? 0 : 1)));
+
+		List<BigInteger[]> ranges = new ArrayList<>(2);
+		if (end.compareTo(COUNTER_MODULUS) > 0) {
+			ranges.add(new BigInteger[] { start, COUNTER_MODULUS });
+			ranges.add(new BigInteger[] {
+					BigInteger.ZERO,
+					end.subtract(COUNTER_MODULUS) });
+		} else {
+			ranges.add(new BigInteger[] { start, end });
+		}
+
+		for (BigInteger[] range : ranges) {
+			for (BigInteger[] used : counterRanges) {
+				if (range[0].compareTo(used[1]) < 0
+						&& used[0].compareTo(range[1]) < 0) {
+					throw new IllegalArgumentException(String.format(
+							Messages.BATCH_COUNTER_OVERLAP_ERROR,
+							hex.toLowerCase(Locale.ROOT)));
+				}
+			}
+		}
+
+		counterRanges.addAll(ranges);
+	}
+
+	/**
+	 * Parses hex-encoded initialization vector of a job.
+	 *
+	 * @param hex
+	 *            the initialization vector as 32 hex-digits
+	 * @return the initialization vector
+	 * @throws IllegalArgumentException
+	 *             if vector is not of right format
+	 */
+	private static byte[] parseInitVector(String hex) {
+		if (!hex.matches("^[A-Fa-f0-9]{32}$")) {
+			throw new IllegalArgumentException(
+					Messages.INITIAL_VECTOR_FORMAT_ERROR);
+		}
+
+		return Hex.decode(hex);
+	}
+
+	/**
+	 * Checks if job has expected number of arguments.
+	 *
+	 * @param args
+	 *            arguments of the job
+	 * @param count
+	 *            expected number of arguments
+	 * @throws IllegalArgumentException
+	 *             if job doesn't have expected number of arguments
+	 */
+	private static void checkArgumentCount(String[] args, int count) {
+		if (args.length != count) {
+			throw new IllegalArgumentException(String.format(
+					"%s expects %d argument(s)!",
+					args[0],
+					count - 1));
+		}
+	}
+}
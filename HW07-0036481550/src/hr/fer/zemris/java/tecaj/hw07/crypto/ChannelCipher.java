@@ -0,0 +1,290 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import javax.crypto.Cipher;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.Statistics.Stage;
+
+/**
+ * {@code ChannelCipher} is a class that encrypts or decrypts whole files using
+ * already initialized {@link Cipher}.
+ * <p>
+ * Source file is mapped into memory in windows of {@value #MAPPING_SIZE} bytes
+ * and passed to {@link Cipher#update(ByteBuffer, ByteBuffer)} in chunks, so no
+ * bytes are copied to the heap by this class. Result of every chunk is placed
+ * into the same direct output buffer which is then written to the destination
+ * channel. Output buffer is only reallocated if cipher needs more space than
+ * it has, so processing loop doesn't allocate memory.
+ * <p>
+ * Optionally, the same buffers can be fed to {@link MessageDigest} objects so
+ * that digest of the source and/or the result is calculated in the same pass
+ * without reading any file twice.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class ChannelCipher {
+
+	/**
+	 * Default size of chunk passed to the cipher.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+	/**
+	 * Size of the window of source file mapped into memory.
+	 */
+	private static final long MAPPING_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Empty buffer used for finishing cipher operation.
+	 */
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	/**
+	 * Initialized cipher.
+	 */
+	private final Cipher cipher;
+
+	/**
+	 * Size of chunk passed to the cipher.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Output buffer of the cipher.
+	 */
+	private ByteBuffer output;
+
+	/**
+	 * Digest updated with bytes passed to the cipher; may be {@code null}.
+	 */
+	private MessageDigest inputDigest;
+
+	/**
+	 * Digest updated with bytes produced by the cipher; may be {@code null}.
+	 */
+	private MessageDigest outputDigest;
+
+	/**
+	 * Statistics updated with bytes and time of every stage.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * Constructs a new {@code ChannelCipher} with default chunk size.
+	 *
+	 * @param cipher
+	 *            initialized cipher
+	 */
+	public ChannelCipher(Cipher cipher) {
+		this(cipher, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructs a new {@code ChannelCipher} with specified chunk size.
+	 *
+	 * @param cipher
+	 *            initialized cipher
+	 * @param chunkSize
+	 *            size of chunk passed to the cipher
+	 * @throws IllegalArgumentException
+	 *             if cipher is {@code null} or chunk size isn't positive
+	 */
+	public ChannelCipher(Cipher cipher, int chunkSize) {
+		if (cipher == null) {
+			throw new IllegalArgumentException("Cipher cannot be null!");
+		}
+
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException(
+					"Chunk size must be a positive number!");
+		}
+
+		this.cipher = cipher;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets the digest which will be updated with all bytes passed to the
+	 * cipher, i.e. with the content of the source.
+	 *
+	 * @param inputDigest
+	 *            the digest or {@code null} if source shouldn't be digested
+	 */
+	public void setInputDigest(MessageDigest inputDigest) {
+		this.inputDigest = inputDigest;
+	}
+
+	/**
+	 * Sets the digest which will be updated with all bytes produced by the
+	 * cipher, i.e. with the content written to the destination.
+	 *
+	 * @param outputDigest
+	 *            the digest or {@code null} if result shouldn't be digested
+	 */
+	public void setOutputDigest(MessageDigest outputDigest) {
+		this.outputDigest = outputDigest;
+	}
+
+	/**
+	 * Sets the statistics updated with bytes and time of every stage.
+	 *
+	 * @param statistics
+	 *            the statistics or {@code null} if statistics shouldn't be
+	 *            collected
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} and places result at
+	 * {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	public void process(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			process(in, out);
+		}
+	}
+
+	/**
+	 * Encrypts or decrypts all bytes of the source channel starting from its
+	 * current position and writes result to the destination channel.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	public void process(FileChannel in, WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		long size = in.size();
+
+		for (long position = in.position(); position < size;) {
+			long length = Math.min(MAPPING_SIZE, size - position);
+			MappedByteBuffer window = in
+					.map(MapMode.READ_ONLY, position, length);
+
+			long time = System.nanoTime();
+			if (statistics.isEnabled()) {
+				// fault the window in, so reading isn't counted as cipher time
+				window.load();
+			}
+			time = statistics.record(Stage.READ, time);
+			statistics.addRead(length);
+
+			while (window.hasRemaining()) {
+				window.limit(
+						Math.min(window.position() + chunkSize,
+								window.capacity()));
+
+				if (inputDigest != null) {
+					int start = window.position();
+					inputDigest.update(window);
+					window.position(start);
+					time = statistics.record(Stage.DIGEST, time);
+				}
+
+				ByteBuffer buffer = prepareOutput(window.remaining());
+				cipher.update(window, buffer);
+				time = statistics.record(Stage.CIPHER, time);
+				time = write(buffer, out, time);
+
+				window.limit(window.capacity());
+			}
+
+			position += length;
+			in.position(position);
+		}
+
+		ByteBuffer buffer = prepareOutput(0);
+		long time = System.nanoTime();
+		cipher.doFinal(EMPTY, buffer);
+		time = statistics.record(Stage.CIPHER, time);
+		write(buffer, out, time);
+	}
+
+	/**
+	 * Clears the output buffer and makes sure it has enough space for the
+	 * result of processing {@code inputLength} bytes.
+	 *
+	 * @param inputLength
+	 *            the number of bytes passed to the cipher
+	 * @return the cleared output buffer
+	 */
+	private ByteBuffer prepareOutput(int inputLength) {
+		int required = cipher.getOutputSize(inputLength);
+
+		if (output == null || output.capacity() < required) {
+			output = ByteBuffer.allocateDirect(
+					Math.max(required, cipher.getOutputSize(chunkSize)));
+		}
+
+		output.clear();
+		return output;
+	}
+
+	/**
+	 * Flips the buffer, updates output digest and writes all bytes of the
+	 * buffer to the channel. Time of the output digest is recorded as
+	 * {@link Stage#DIGEST} and only the rest as {@link Stage#WRITE}, so no
+	 * time is counted twice.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param out
+	 *            the channel
+	 * @param time
+	 *            time in nanoseconds from which the stages are measured
+	 * @return time in nanoseconds when writing ended
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private long write(ByteBuffer buffer, WritableByteChannel out, long time)
+			throws IOException {
+		buffer.flip();
+
+		if (outputDigest != null) {
+			outputDigest.update(buffer);
+			buffer.rewind();
+			time = statistics.record(Stage.DIGEST, time);
+		}
+
+		statistics.addWritten(buffer.remaining());
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+
+		return statistics.record(Stage.WRITE, time);
+	}
+}
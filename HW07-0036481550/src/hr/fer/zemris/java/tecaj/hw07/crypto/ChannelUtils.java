@@ -0,0 +1,116 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@code ChannelUtils} is a helper class with methods for reading and writing
+ * whole buffers from and to {@link FileChannel} objects at given positions.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+class ChannelUtils {
+
+	/**
+	 * Reads bytes from the channel starting at given position until buffer has
+	 * no remaining space.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @param buffer
+	 *            the buffer into which bytes are to be transferred
+	 * @param position
+	 *            the file position at which the transfer is to begin
+	 * @throws IOException
+	 *             if an I/O error occurs or end of file is reached before
+	 *             buffer is filled
+	 */
+	static void readFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int r = channel.read(buffer, position);
+
+			if (r < 0) {
+				throw new EOFException(
+						"Unexpected end of file at position " + position);
+			}
+
+			position += r;
+		}
+	}
+
+	/**
+	 * Writes all remaining bytes of the buffer to the channel starting at given
+	 * position.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @param buffer
+	 *            the buffer from which bytes are to be transferred
+	 * @param position
+	 *            the file position at which the transfer is to begin
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static void writeFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Returns a channel which discards all bytes written to it. It is used
+	 * where only a digest of the output is needed.
+	 *
+	 * @return the channel
+	 */
+	static WritableByteChannel nullChannel() {
+		return new WritableByteChannel() {
+
+			@Override
+			public int write(ByteBuffer src) {
+				int n = src.remaining();
+				src.position(src.limit());
+				return n;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * Returns the first exception of given type in the cause chain of given
+	 * exception or {@code null} if there is no such exception.
+	 *
+	 * @param <T>
+	 *            the type of exception
+	 * @param e
+	 *            the exception
+	 * @param type
+	 *            the class of exception that is searched for
+	 * @return the first exception of given type in the cause chain
+	 */
+	static <T extends Throwable> T findCause(Throwable e, Class<T> type) {
+		while (e != null) {
+			if (type.isInstance(e)) {
+				return type.cast(e);
+			}
+
+			e = e.getCause();
+		}
+
+		return null;
+	}
+}
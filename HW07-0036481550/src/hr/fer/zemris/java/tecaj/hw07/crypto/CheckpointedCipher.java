@@ -0,0 +1,466 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Properties;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@code CheckpointedCipher} is a class that encrypts or decrypts files using
+ * AES algorithm in CBC mode and can resume an interrupted job instead of
+ * starting it over.
+ * <p>
+ * Every time {@code checkpointInterval} bytes are written, destination file
+ * is forced to the storage device and a checkpoint is stored next to it in a
+ * file with {@value #CHECKPOINT_EXTENSION} extension. Checkpoint contains the
+ * input offset, the output offset and the last ciphertext block before them,
+ * which is all CBC mode needs to continue: the block is used as
+ * initialization vector of a new cipher. Checkpoint also records size and
+ * modification time of the source file and a digest of the key, so it is
+ * ignored if source or key changed. When job completes the checkpoint is
+ * deleted.
+ * <p>
+ * In both directions both offsets are always a multiple of block size, and
+ * they are equal. When decrypting, the cipher holds back the last decrypted
+ * block until it knows whether it is padding, so a checkpoint is taken at the
+ * end of the output and the withheld block is decrypted again after resuming.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class CheckpointedCipher {
+
+	/**
+	 * Default number of bytes written between two checkpoints.
+	 */
+	public static final long DEFAULT_CHECKPOINT_INTERVAL = 64 * 1024 * 1024;
+
+	/**
+	 * Extension of the checkpoint file.
+	 */
+	public static final String CHECKPOINT_EXTENSION = ".ckpt";
+
+	/**
+	 * Size of buffers.
+	 */
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * AES block size.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Transformation used by this cipher.
+	 */
+	private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+	/**
+	 * The AES key.
+	 */
+	private final SecretKeySpec keySpec;
+
+	/**
+	 * The initialization vector.
+	 */
+	private final byte[] initVector;
+
+	/**
+	 * Number of bytes written between two checkpoints.
+	 */
+	private final long checkpointInterval;
+
+	/**
+	 * Constructs a new {@code CheckpointedCipher}.
+	 *
+	 * @param keySpec
+	 *            the AES key
+	 * @param initVector
+	 *            the initialization vector
+	 * @param checkpointInterval
+	 *            number of bytes written between two checkpoints
+	 * @throws IllegalArgumentException
+	 *             if any of arguments is invalid
+	 */
+	public CheckpointedCipher(SecretKeySpec keySpec, byte[] initVector,
+			long checkpointInterval) {
+		if (keySpec == null) {
+			throw new IllegalArgumentException("Key cannot be null!");
+		}
+
+		if (initVector == null || initVector.length != BLOCK_SIZE) {
+			throw new IllegalArgumentException(
+					"Initialization vector must be 16 bytes long!");
+		}
+
+		if (checkpointInterval <= 0) {
+			throw new IllegalArgumentException(
+					"Checkpoint interval must be a positive number!");
+		}
+
+		this.keySpec = keySpec;
+		this.initVector = initVector.clone();
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} and places result at
+	 * {@code dest}. If a valid checkpoint of the same job exists, processing
+	 * continues from it; otherwise destination file is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt source file
+	 *            and if set to {@code false} it will decrypt source file
+	 * @return offset from which processing was resumed; 0 if it started from
+	 *         the beginning
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public long process(Path src, Path dest, boolean encrypt)
+			throws IOException, GeneralSecurityException {
+		Path checkpointPath = Paths.get(dest + CHECKPOINT_EXTENSION);
+		Checkpoint expected = new Checkpoint(src, encrypt, keySpec,
+				initVector);
+		long resumedFrom = 0;
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.READ,
+						StandardOpenOption.WRITE)) {
+			Checkpoint checkpoint = Checkpoint.load(checkpointPath);
+			byte[] chain = initVector;
+			long offset = 0;
+
+			if (checkpoint != null && checkpoint.continues(expected)
+					&& checkpoint.outputOffset <= out.size()
+					&& checkpoint.chain.length == BLOCK_SIZE) {
+				offset = checkpoint.outputOffset;
+				chain = checkpoint.chain;
+				resumedFrom = offset;
+			}
+
+			out.truncate(offset);
+
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			cipher.init(
+					encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE,
+					keySpec,
+					new IvParameterSpec(chain));
+
+			ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			// room for a buffer, a block withheld by the cipher and padding
+			ByteBuffer output = ByteBuffer
+					.allocateDirect(BUFFER_SIZE + 2 * BLOCK_SIZE);
+			FileChannel ciphertext = encrypt ? out : in;
+
+			long inputPosition = offset;
+			long outputPosition = offset;
+			long lastCheckpoint = offset;
+			boolean last = false;
+
+			while (!last) {
+				input.clear();
+				while (input.hasRemaining()) {
+					int r = in.read(input, inputPosition + input.position());
+					if (r < 0) {
+						last = true;
+						break;
+					}
+				}
+				input.flip();
+				inputPosition += input.remaining();
+
+				output.clear();
+				if (last) {
+					cipher.doFinal(input, output);
+				} else {
+					cipher.update(input, output);
+				}
+				output.flip();
+
+				int written = output.remaining();
+				ChannelUtils.writeFully(out, output, outputPosition);
+				outputPosition += written;
+
+				if (!last && outputPosition - lastCheckpoint
+						>= checkpointInterval) {
+					out.force(false);
+					expected.store(
+							checkpointPath,
+							outputPosition,
+							readBlock(ciphertext, outputPosition, chain));
+					lastCheckpoint = outputPosition;
+				}
+			}
+
+			out.force(false);
+		}
+
+		Files.deleteIfExists(checkpointPath);
+		return resumedFrom;
+	}
+
+	/**
+	 * Returns the ciphertext block ending at given offset, i.e. the block
+	 * which is used as initialization vector for the block starting at that
+	 * offset.
+	 *
+	 * @param ciphertext
+	 *            channel of the ciphertext
+	 * @param offset
+	 *            the offset
+	 * @param initVector
+	 *            returned if offset is 0
+	 * @return the ciphertext block before the offset
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static byte[] readBlock(FileChannel ciphertext, long offset,
+			byte[] initVector) throws IOException {
+		if (offset == 0) {
+			return initVector;
+		}
+
+		ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+		ChannelUtils.readFully(ciphertext, block, offset - BLOCK_SIZE);
+		return block.array();
+	}
+
+	/**
+	 * {@code Checkpoint} is the persisted state of a job.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class Checkpoint {
+
+		/**
+		 * Absolute path of the source file.
+		 */
+		private final String source;
+
+		/**
+		 * Size of the source file.
+		 */
+		private final long sourceSize;
+
+		/**
+		 * Modification time of the source file in milliseconds.
+		 */
+		private final long sourceModified;
+
+		/**
+		 * Indicates that job encrypts the source file.
+		 */
+		private final boolean encrypt;
+
+		/**
+		 * Hex-encoded digest of the key and the initialization vector.
+		 */
+		private final String keyCheck;
+
+		/**
+		 * Number of bytes of the source that were processed.
+		 */
+		private long inputOffset;
+
+		/**
+		 * Number of bytes of the destination that were written.
+		 */
+		private long outputOffset;
+
+		/**
+		 * The last ciphertext block before the offsets.
+		 */
+		private byte[] chain;
+
+		/**
+		 * Constructs a new {@code Checkpoint} of the job processing the source
+		 * file at offset 0.
+		 *
+		 * @param src
+		 *            the path of the source file
+		 * @param encrypt
+		 *            {@code true} if job encrypts the source file
+		 * @param keySpec
+		 *            the AES key
+		 * @param initVector
+		 *            the initialization vector
+		 * @throws IOException
+		 *             if attributes of the source file cannot be read
+		 * @throws GeneralSecurityException
+		 *             if key cannot be digested
+		 */
+		public Checkpoint(Path src, boolean encrypt, SecretKeySpec keySpec,
+				byte[] initVector)
+				throws IOException, GeneralSecurityException {
+			MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			sha.update(keySpec.getEncoded());
+			sha.update(initVector);
+
+			this.source = src.toAbsolutePath().normalize().toString();
+			this.sourceSize = Files.size(src);
+			this.sourceModified = Files.getLastModifiedTime(src).toMillis();
+			this.encrypt = encrypt;
+			this.keyCheck = Hex.encode(sha.digest());
+		}
+
+		/**
+		 * Constructs a new {@code Checkpoint} from stored properties.
+		 *
+		 * @param properties
+		 *            the stored properties
+		 * @throws IllegalArgumentException
+		 *             if properties are not of right format
+		 */
+		private Checkpoint(Properties properties) {
+			this.source = require(properties, "source");
+			this.sourceSize = Long.parseLong(require(properties, "sourceSize"));
+			this.sourceModified = Long
+					.parseLong(require(properties, "sourceModified"));
+			this.encrypt = Boolean.parseBoolean(require(properties, "encrypt"));
+			this.keyCheck = require(properties, "keyCheck");
+			this.inputOffset = Long
+					.parseLong(require(properties, "inputOffset"));
+			this.outputOffset = Long
+					.parseLong(require(properties, "outputOffset"));
+			this.chain = Hex.decode(require(properties, "chain"));
+		}
+
+		/**
+		 * Loads the checkpoint from the file.
+		 *
+		 * @param file
+		 *            the path of the checkpoint file
+		 * @return the checkpoint or {@code null} if file doesn't exist or is
+		 *         not of right format
+		 * @throws IOException
+		 *             if file exists but cannot be read
+		 */
+		public static Checkpoint load(Path file) throws IOException {
+			if (!Files.exists(file)) {
+				return null;
+			}
+
+			Properties properties = new Properties();
+			try (Reader reader = Files
+					.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+
+			try {
+				return new Checkpoint(properties);
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Checks if this checkpoint was stored by the same job as the given
+		 * one, i.e. if the same source file is processed in the same direction
+		 * with the same key and initialization vector.
+		 *
+		 * @param job
+		 *            checkpoint of the current job
+		 * @return {@code true} if job can continue from this checkpoint
+		 */
+		public boolean continues(Checkpoint job) {
+			return source.equals(job.source)
+					&& sourceSize == job.sourceSize
+					&& sourceModified == job.sourceModified
+					&& encrypt == job.encrypt
+					&& keyCheck.equals(job.keyCheck)
+					&& inputOffset == outputOffset
+					&& outputOffset % BLOCK_SIZE == 0
+					&& outputOffset >= 0
+					&& outputOffset <= sourceSize;
+		}
+
+		/**
+		 * Stores this checkpoint with given offset and chain block. Checkpoint
+		 * is first written to a temporary file and then moved over the old
+		 * one, so a crash never leaves a half-written checkpoint.
+		 *
+		 * @param file
+		 *            the path of the checkpoint file
+		 * @param offset
+		 *            input and output offset
+		 * @param chain
+		 *            the last ciphertext block before the offset
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public void store(Path file, long offset, byte[] chain)
+				throws IOException {
+			Properties properties = new Properties();
+			properties.setProperty("source", source);
+			properties.setProperty("sourceSize", Long.toString(sourceSize));
+			properties.setProperty(
+					"sourceModified",
+					Long.toString(sourceModified));
+			properties.setProperty("encrypt", Boolean.toString(encrypt));
+			properties.setProperty("keyCheck", keyCheck);
+			properties.setProperty("inputOffset", Long.toString(offset));
+			properties.setProperty("outputOffset", Long.toString(offset));
+			properties.setProperty(
+					"chain",
+					Hex.encode(chain));
+
+			Path temporary = Paths.get(file + ".tmp");
+			try (Writer writer = Files
+					.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				properties.store(writer, "Crypto checkpoint");
+			}
+
+			Files.move(
+					temporary,
+					file,
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		/**
+		 * Returns the value of the required property.
+		 *
+		 * @param properties
+		 *            the properties
+		 * @param key
+		 *            the key of the property
+		 * @return the value of the property
+		 * @throws IllegalArgumentException
+		 *             if property doesn't exist
+		 */
+		private static String require(Properties properties, String key) {
+			String value = properties.getProperty(key);
+
+			if (value == null) {
+				throw new IllegalArgumentException(
+						"Missing property " + key + "!");
+			}
+
+			return value;
+		}
+	}
+}
@@ -0,0 +1,796 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@code ChunkedContainer} is a class that encrypts files into a container
+ * whose chunks can be decrypted independently, so any range of the original
+ * file can be decrypted without decrypting everything before it.
+ * <p>
+ * Container consists of three parts:
+ * <ul>
+ * <li>header: magic bytes, format version, chunk size, length of the
+ * original file, offset of the index and random initialization vector
+ * ({@value #HEADER_SIZE} bytes)
+ * <li>chunks: the original file split into chunks of fixed size, each
+ * encrypted using AES in CTR mode starting at the counter of its first block,
+ * so ciphertext of a chunk has the same size as its plaintext
+ * <li>index: offset, length and HMAC-SHA256 tag of every chunk
+ * </ul>
+ * Tag of a chunk authenticates the header, the index of the chunk and its
+ * ciphertext, so a chunk that is modified, moved to another position or
+ * copied from another container is rejected before it is decrypted. Empty
+ * file has exactly one, empty, chunk so that its header is authenticated as
+ * well.
+ * <p>
+ * Encryption and decryption key are derived from the given key, so the same
+ * key is never used for both encryption and authentication. Whole containers
+ * are encrypted and decrypted by a fixed number of worker threads processing
+ * different chunks.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class ChunkedContainer {
+
+	/**
+	 * Default chunk size.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Maximum chunk size. Every worker allocates two buffers of chunk size,
+	 * so a chunk size read from an unauthenticated header is limited.
+	 */
+	public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Magic bytes at the beginning of every container.
+	 */
+	private static final byte[] MAGIC = "HW07CHNK"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Format version.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Size of the header.
+	 */
+	private static final int HEADER_SIZE = 48;
+
+	/**
+	 * Size of one index entry.
+	 */
+	private static final int ENTRY_SIZE = 44;
+
+	/**
+	 * Size of the tag of a chunk.
+	 */
+	private static final int TAG_SIZE = 32;
+
+	/**
+	 * AES block size.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Transformation used for encrypting chunks.
+	 */
+	private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+
+	/**
+	 * Algorithm used for authenticating chunks.
+	 */
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+
+	/**
+	 * Key used for encrypting chunks.
+	 */
+	private final SecretKeySpec encryptionKey;
+
+	/**
+	 * Key used for authenticating chunks.
+	 */
+	private final SecretKeySpec macKey;
+
+	/**
+	 * Size of a chunk of newly encrypted containers.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Number of worker threads.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Constructs a new {@code ChunkedContainer} with default chunk size and
+	 * parallelism equal to number of available processors.
+	 *
+	 * @param key
+	 *            the AES key
+	 * @throws GeneralSecurityException
+	 *             if keys cannot be derived from the given key
+	 */
+	public ChunkedContainer(SecretKeySpec key)
+			throws GeneralSecurityException {
+		this(key, DEFAULT_CHUNK_SIZE,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a new {@code ChunkedContainer} with specified chunk size and
+	 * parallelism. Chunk size is only used for encryption; decryption uses the
+	 * chunk size stored in the container.
+	 *
+	 * @param key
+	 *            the AES key
+	 * @param chunkSize
+	 *            size of a chunk; must be a positive multiple of 16 not larger
+	 *            than {@value #MAX_CHUNK_SIZE}
+	 * @param parallelism
+	 *            number of worker threads
+	 * @throws GeneralSecurityException
+	 *             if keys cannot be derived from the given key
+	 * @throws IllegalArgumentException
+	 *             if any of arguments is invalid
+	 */
+	public ChunkedContainer(SecretKeySpec key, int chunkSize, int parallelism)
+			throws GeneralSecurityException {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null!");
+		}
+
+		if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE
+				|| chunkSize % BLOCK_SIZE != 0) {
+			throw new IllegalArgumentException(
+					"Chunk size must be a positive multiple of 16 not larger"
+							+ " than " + MAX_CHUNK_SIZE + "!");
+		}
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException(
+					"Parallelism must be a positive number!");
+		}
+
+		Mac kdf = Mac.getInstance(MAC_ALGORITHM);
+		kdf.init(new SecretKeySpec(key.getEncoded(), MAC_ALGORITHM));
+
+		byte[] derived = kdf.doFinal(
+				"encryption".getBytes(StandardCharsets.US_ASCII));
+		this.encryptionKey = new SecretKeySpec(
+				Arrays.copyOf(derived, key.getEncoded().length),
+				"AES");
+		this.macKey = new SecretKeySpec(
+				kdf.doFinal(
+						"authentication".getBytes(StandardCharsets.US_ASCII)),
+				MAC_ALGORITHM);
+
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Encrypts file at {@code src} into a container at {@code dest}. If
+	 * destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of the container
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void encrypt(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			byte[] initVector = new byte[BLOCK_SIZE];
+			new SecureRandom().nextBytes(initVector);
+
+			Header header = new Header(chunkSize, in.size(), initVector);
+			ByteBuffer index = ByteBuffer.allocate(
+					header.chunks * ENTRY_SIZE);
+
+			forEachChunk(header, (worker, chunk) -> {
+				ByteBuffer input = worker.read(in, header.position(chunk),
+						header.length(chunk));
+
+				ByteBuffer output = worker.output;
+				output.clear();
+				worker.cipher(Cipher.ENCRYPT_MODE, header, chunk)
+						.doFinal(input, output);
+				output.flip();
+
+				byte[] tag = worker.tag(header, chunk, output);
+				ChannelUtils.writeFully(out, output, header.offset(chunk));
+
+				synchronized (index) {
+					index.position(chunk * ENTRY_SIZE);
+					index.putLong(header.offset(chunk));
+					index.putInt(header.length(chunk));
+					index.put(tag);
+				}
+			});
+
+			index.clear();
+			ChannelUtils.writeFully(out, index, header.indexOffset);
+			ChannelUtils.writeFully(out, ByteBuffer.wrap(header.bytes), 0);
+		}
+	}
+
+	/**
+	 * Decrypts the whole container at {@code src} into a file at
+	 * {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of the container
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs or container is not of right format
+	 * @throws AEADBadTagException
+	 *             if any chunk fails authentication
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void decrypt(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			Header header = Header.read(in);
+			byte[][] tags = readIndex(in, header);
+
+			forEachChunk(header, (worker, chunk) -> {
+				ByteBuffer output = worker.decrypt(in, header, chunk, tags);
+				ChannelUtils
+						.writeFully(out, output, header.position(chunk));
+			});
+		}
+	}
+
+	/**
+	 * Decrypts {@code length} bytes of the original file starting at
+	 * {@code offset} from the container at {@code src} and writes them to the
+	 * channel. Only chunks covering the range are read, authenticated and
+	 * decrypted. Range is truncated to the end of the original file.
+	 *
+	 * @param src
+	 *            the path of the container
+	 * @param offset
+	 *            offset of the first byte in the original file
+	 * @param length
+	 *            number of bytes
+	 * @param out
+	 *            the channel to which bytes are written
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if an I/O error occurs or container is not of right format
+	 * @throws AEADBadTagException
+	 *             if any of the chunks fails authentication
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 * @throws IllegalArgumentException
+	 *             if offset or length is negative
+	 */
+	public long decryptRange(Path src, long offset, long length,
+			WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException(
+					"Offset and length cannot be negative!");
+		}
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ)) {
+			Header header = Header.read(in);
+			byte[][] tags = readIndex(in, header);
+
+			long end = length > header.length - offset ? header.length
+					: offset + length;
+			Worker worker = new Worker(header.chunkSize);
+			long written = 0;
+
+			for (long position = offset; position < end;) {
+				int chunk = (int) (position / header.chunkSize);
+				ByteBuffer output = worker.decrypt(in, header, chunk, tags);
+
+				output.position((int) (position - header.position(chunk)));
+				output.limit((int) Math.min(
+						output.limit(),
+						end - header.position(chunk)));
+
+				position += output.remaining();
+				written += output.remaining();
+
+				while (output.hasRemaining()) {
+					out.write(output);
+				}
+			}
+
+			return written;
+		}
+	}
+
+	/**
+	 * Reads the index of the container and returns tags of all chunks. Offset
+	 * and length of every entry must match the header.
+	 *
+	 * @param in
+	 *            the container channel
+	 * @param header
+	 *            the header of the container
+	 * @return tags of all chunks
+	 * @throws IOException
+	 *             if an I/O error occurs or index is not of right format
+	 */
+	private static byte[][] readIndex(FileChannel in, Header header)
+			throws IOException {
+		if (in.size() != header.indexOffset
+				+ (long) header.chunks * ENTRY_SIZE) {
+			throw new IOException("Container size doesn't match its header!");
+		}
+
+		ByteBuffer index = ByteBuffer.allocate(header.chunks * ENTRY_SIZE);
+		ChannelUtils.readFully(in, index, header.indexOffset);
+		index.flip();
+
+		byte[][] tags = new byte[header.chunks][TAG_SIZE];
+		for (int chunk = 0; chunk < header.chunks; chunk++) {
+			if (index.getLong() != header.offset(chunk)
+					|| index.getInt() != header.length(chunk)) {
+				throw new IOException(
+						"Index entry of chunk " + chunk + " is corrupted!");
+			}
+
+			index.get(tags[chunk]);
+		}
+
+		return tags;
+	}
+
+	/**
+	 * Runs the task for every chunk of the container on worker threads. The
+	 * first exception thrown by any task stops all workers and is rethrown.
+	 *
+	 * @param header
+	 *            the header of the container
+	 * @param task
+	 *            the task
+	 * @throws IOException
+	 *             if task throws an I/O exception
+	 * @throws GeneralSecurityException
+	 *             if task throws a security exception
+	 */
+	private void forEachChunk(Header header, ChunkTask task)
+			throws IOException, GeneralSecurityException {
+		int chunks = header.chunks;
+		int threads = Math.min(parallelism, chunks);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		AtomicInteger next = new AtomicInteger();
+
+		try {
+			List<Future<Void>> workers = new ArrayList<>(threads);
+
+			for (int i = 0; i < threads; i++) {
+				workers.add(pool.submit(() -> {
+					Worker worker = new Worker(header.chunkSize);
+
+					try {
+						for (int c; (c = next.getAndIncrement()) < chunks;) {
+							task.process(worker, c);
+						}
+					} catch (Exception e) {
+						// stop other workers from taking new chunks
+						next.set(chunks);
+						throw e;
+					}
+
+					return null;
+				}));
+			}
+
+			for (Future<Void> worker : workers) {
+				worker.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Processing was interrupted!", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof GeneralSecurityException) {
+				throw (GeneralSecurityException) cause;
+			}
+
+			throw new IOException(cause.getMessage(), cause);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * {@code ChunkTask} represents work done on one chunk.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	@FunctionalInterface
+	private interface ChunkTask {
+
+		/**
+		 * Processes the chunk.
+		 *
+		 * @param worker
+		 *            cipher, mac and buffers of the current thread
+		 * @param chunk
+		 *            index of the chunk
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 * @throws GeneralSecurityException
+		 *             if a security error occurs
+		 */
+		void process(Worker worker, int chunk)
+				throws IOException, GeneralSecurityException;
+	}
+
+	/**
+	 * {@code Worker} holds cipher, mac and buffers used by one thread. They are
+	 * reused for every chunk the thread processes.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class Worker {
+
+		/**
+		 * Chunk cipher.
+		 */
+		private final Cipher cipher;
+
+		/**
+		 * Chunk mac.
+		 */
+		private final Mac mac;
+
+		/**
+		 * Buffer into which chunks are read.
+		 */
+		private final ByteBuffer input;
+
+		/**
+		 * Buffer into which chunks are encrypted or decrypted.
+		 */
+		private final ByteBuffer output;
+
+		/**
+		 * Buffer holding the index of the chunk being authenticated.
+		 */
+		private final ByteBuffer chunkIndex = ByteBuffer.allocate(8);
+
+		/**
+		 * Tag of the chunk being authenticated.
+		 */
+		private final byte[] tag = new byte[TAG_SIZE];
+
+		/**
+		 * Constructs a new {@code Worker} with buffers of given size.
+		 *
+		 * @param chunkSize
+		 *            size of a chunk
+		 * @throws GeneralSecurityException
+		 *             if cipher or mac cannot be created
+		 */
+		public Worker(int chunkSize) throws GeneralSecurityException {
+			this.cipher = Cipher.getInstance(TRANSFORMATION);
+			this.mac = Mac.getInstance(MAC_ALGORITHM);
+			this.mac.init(macKey);
+			this.input = ByteBuffer.allocateDirect(chunkSize);
+			this.output = ByteBuffer.allocateDirect(chunkSize);
+		}
+
+		/**
+		 * Reads bytes from the channel into the input buffer.
+		 *
+		 * @param in
+		 *            the channel
+		 * @param position
+		 *            position of the first byte
+		 * @param length
+		 *            number of bytes
+		 * @return the flipped input buffer
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public ByteBuffer read(FileChannel in, long position, int length)
+				throws IOException {
+			input.clear().limit(length);
+			ChannelUtils.readFully(in, input, position);
+			input.flip();
+			return input;
+		}
+
+		/**
+		 * Returns the cipher initialized for the chunk.
+		 *
+		 * @param mode
+		 *            cipher mode
+		 * @param header
+		 *            the header of the container
+		 * @param chunk
+		 *            index of the chunk
+		 * @return the initialized cipher
+		 * @throws GeneralSecurityException
+		 *             if cipher cannot be initialized
+		 */
+		public Cipher cipher(int mode, Header header, int chunk)
+				throws GeneralSecurityException {
+			cipher.init(
+					mode,
+					encryptionKey,
+					new IvParameterSpec(
+							ParallelCtrCipher.counterAt(
+									header.initVector,
+									header.position(chunk) / BLOCK_SIZE)));
+			return cipher;
+		}
+
+		/**
+		 * Returns the tag of the chunk. Position of the ciphertext buffer is
+		 * not changed.
+		 *
+		 * @param header
+		 *            the header of the container
+		 * @param chunk
+		 *            index of the chunk
+		 * @param ciphertext
+		 *            ciphertext of the chunk
+		 * @return the tag of the chunk
+		 * @throws GeneralSecurityException
+		 *             if tag cannot be calculated
+		 */
+		public byte[] tag(Header header, int chunk, ByteBuffer ciphertext)
+				throws GeneralSecurityException {
+			chunkIndex.clear();
+			chunkIndex.putLong(chunk).flip();
+
+			int start = ciphertext.position();
+			mac.update(header.bytes);
+			mac.update(chunkIndex);
+			mac.update(ciphertext);
+			ciphertext.position(start);
+
+			mac.doFinal(tag, 0);
+			return tag;
+		}
+
+		/**
+		 * Reads and authenticates the chunk and decrypts it into the output
+		 * buffer.
+		 *
+		 * @param in
+		 *            the container channel
+		 * @param header
+		 *            the header of the container
+		 * @param chunk
+		 *            index of the chunk
+		 * @param tags
+		 *            tags of all chunks
+		 * @return the flipped output buffer
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 * @throws AEADBadTagException
+		 *             if chunk fails authentication
+		 * @throws GeneralSecurityException
+		 *             if a security error occurs
+		 */
+		public ByteBuffer decrypt(FileChannel in, Header header, int chunk,
+				byte[][] tags) throws IOException, GeneralSecurityException {
+			ByteBuffer ciphertext = read(in, header.offset(chunk),
+					header.length(chunk));
+
+			if (!MessageDigest
+					.isEqual(tags[chunk], tag(header, chunk, ciphertext))) {
+				throw new AEADBadTagException(
+						"Chunk " + chunk + " failed authentication!");
+			}
+
+			output.clear();
+			cipher(Cipher.DECRYPT_MODE, header, chunk)
+					.doFinal(ciphertext, output);
+			output.flip();
+			return output;
+		}
+	}
+
+	/**
+	 * {@code Header} is the header of a container.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class Header {
+
+		/**
+		 * Size of a chunk.
+		 */
+		private final int chunkSize;
+
+		/**
+		 * Length of the original file.
+		 */
+		private final long length;
+
+		/**
+		 * Number of chunks.
+		 */
+		private final int chunks;
+
+		/**
+		 * Offset of the index in the container.
+		 */
+		private final long indexOffset;
+
+		/**
+		 * Initialization vector, i.e. the counter of the first block.
+		 */
+		private final byte[] initVector;
+
+		/**
+		 * Encoded header.
+		 */
+		private final byte[] bytes;
+
+		/**
+		 * Constructs a new {@code Header}.
+		 *
+		 * @param chunkSize
+		 *            size of a chunk
+		 * @param length
+		 *            length of the original file
+		 * @param initVector
+		 *            initialization vector
+		 * @throws IllegalArgumentException
+		 *             if file has too many chunks
+		 */
+		public Header(int chunkSize, long length, byte[] initVector) {
+			this.chunkSize = chunkSize;
+			this.length = length;
+			this.chunks = TreeDigester.chunkCount(length, chunkSize);
+			this.indexOffset = HEADER_SIZE + length;
+			this.initVector = initVector;
+
+			if ((long) chunks * ENTRY_SIZE > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(
+						"File has too many chunks, chunk size must be larger!");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+			buffer.put(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(chunkSize);
+			buffer.putLong(length);
+			buffer.putLong(indexOffset);
+			buffer.put(initVector);
+			this.bytes = buffer.array();
+		}
+
+		/**
+		 * Reads and validates the header from the beginning of the channel.
+		 *
+		 * @param in
+		 *            the container channel
+		 * @return the header
+		 * @throws IOException
+		 *             if an I/O error occurs or header is not of right format
+		 */
+		public static Header read(FileChannel in) throws IOException {
+			if (in.size() < HEADER_SIZE) {
+				throw new IOException("File is not an encrypted container!");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+			ChannelUtils.readFully(in, buffer, 0);
+			buffer.flip();
+
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(MAGIC, magic)) {
+				throw new IOException("File is not an encrypted container!");
+			}
+
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException(
+						"Unsupported container version " + version + "!");
+			}
+
+			int chunkSize = buffer.getInt();
+			long length = buffer.getLong();
+			long indexOffset = buffer.getLong();
+			byte[] initVector = new byte[BLOCK_SIZE];
+			buffer.get(initVector);
+
+			if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE
+					|| chunkSize % BLOCK_SIZE != 0 || length < 0
+					|| indexOffset != HEADER_SIZE + length) {
+				throw new IOException("Container header is corrupted!");
+			}
+
+			try {
+				return new Header(chunkSize, length, initVector);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Container header is corrupted!", e);
+			}
+		}
+
+		/**
+		 * Returns position of the first byte of the chunk in the original
+		 * file.
+		 *
+		 * @param chunk
+		 *            index of the chunk
+		 * @return position of the chunk in the original file
+		 */
+		public long position(int chunk) {
+			return (long) chunk * chunkSize;
+		}
+
+		/**
+		 * Returns offset of the first byte of the chunk in the container.
+		 *
+		 * @param chunk
+		 *            index of the chunk
+		 * @return offset of the chunk in the container
+		 */
+		public long offset(int chunk) {
+			return HEADER_SIZE + position(chunk);
+		}
+
+		/**
+		 * Returns length of the chunk.
+		 *
+		 * @param chunk
+		 *            index of the chunk
+		 * @return length of the chunk
+		 */
+		public int length(int chunk) {
+			return (int) Math.min(chunkSize, length - position(chunk));
+		}
+	}
+}
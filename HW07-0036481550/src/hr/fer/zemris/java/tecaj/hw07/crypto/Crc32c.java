@@ -0,0 +1,101 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.util.zip.Checksum;
+
+/**
+ * {@code Crc32c} is a {@link Checksum} that calculates CRC-32C (Castagnoli)
+ * of bytes, the checksum used by iSCSI, ext4 and many storage systems.
+ * <p>
+ * Java 8 has no CRC-32C, so it is calculated by table lookups using the
+ * slicing-by-8 method: eight tables of 256 entries let the loop consume eight
+ * bytes per iteration with eight independent lookups instead of one lookup
+ * per byte. Result is the same as the result of
+ * {@code java.util.zip.CRC32C} of newer Java versions.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public final class Crc32c implements Checksum {
+
+	/**
+	 * Reversed Castagnoli polynomial.
+	 */
+	private static final int POLYNOMIAL = 0x82F63B78;
+
+	/**
+	 * Lookup tables; table {@code k} contains CRC of a byte followed by
+	 * {@code k} zero bytes.
+	 */
+	private static final int[][] TABLES = new int[8][256];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			int crc = i;
+			for (int j = 0; j < 8; j++) {
+				crc = (crc >>> 1) ^ (POLYNOMIAL & -(crc & 1));
+			}
+			TABLES[0][i] = crc;
+		}
+
+		for (int i = 0; i < 256; i++) {
+			for (int k = 1; k < TABLES.length; k++) {
+				int previous = TABLES[k - 1][i];
+				TABLES[k][i] = (previous >>> 8) ^ TABLES[0][previous & 0xFF];
+			}
+		}
+	}
+
+	/**
+	 * The current CRC, inverted.
+	 */
+	private int crc = 0xFFFFFFFF;
+
+	@Override
+	public void update(int b) {
+		crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+	}
+
+	@Override
+	public void update(byte[] b, int off, int len) {
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new ArrayIndexOutOfBoundsException();
+		}
+
+		int[] t0 = TABLES[0];
+		int[] t1 = TABLES[1];
+		int[] t2 = TABLES[2];
+		int[] t3 = TABLES[3];
+		int[] t4 = TABLES[4];
+		int[] t5 = TABLES[5];
+		int[] t6 = TABLES[6];
+		int[] t7 = TABLES[7];
+		int c = crc;
+		int end = off + len;
+
+		for (; off <= end - 8; off += 8) {
+			int low = c ^ (b[off] & 0xFF | (b[off + 1] & 0xFF) << 8
+					| (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24);
+
+			c = t7[low & 0xFF] ^ t6[(low >>> 8) & 0xFF]
+					^ t5[(low >>> 16) & 0xFF] ^ t4[low >>> 24]
+					^ t3[b[off + 4] & 0xFF] ^ t2[b[off + 5] & 0xFF]
+					^ t1[b[off + 6] & 0xFF] ^ t0[b[off + 7] & 0xFF];
+		}
+
+		for (; off < end; off++) {
+			c = (c >>> 8) ^ t0[(c ^ b[off]) & 0xFF];
+		}
+
+		crc = c;
+	}
+
+	@Override
+	public long getValue() {
+		return ~crc & 0xFFFFFFFFL;
+	}
+
+	@Override
+	public void reset() {
+		crc = 0xFFFFFFFF;
+	}
+}
@@ -1,304 +1,1583 @@
-package hr.fer.zemris.java.tecaj.hw07.crypto;
-
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.security.GeneralSecurityException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.spec.AlgorithmParameterSpec;
-import java.util.Arrays;
-import java.util.Scanner;
-
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
-
-/**
- * {@code Crypto} is a class that uses AES algorithm for encryption and
- * decryption of files and can check validity of file by checking their digest
- * using SHA-256 algorithm.
- * 
- * @author Karlo Vrbić
- * @version 1.0
- */
-public class Crypto {
-
-	/**
-	 * Default buffer size.
-	 */
-	private static final int DEFAULT_BUFFER_SIZE = 4096;
-
-	/**
-	 * Keyword for checksha command.
-	 */
-	private static final String KEYWORD_CHECKSHA = "checksha";
-
-	/**
-	 * Keyword for decryption command.
-	 */
-	private static final String KEYWORD_DECRYPT = "decrypt";
-
-	/**
-	 * Keyword for encryption command.
-	 */
-	private static final String KEYWORD_ENCRYPT = "encrypt";
-
-	/**
-	 * Starting point of a program.
-	 * 
-	 * @param args
-	 *            Command-line argument
-	 */
-	public static void main(String[] args) {
-		if (args.length == 3) {
-			if (args[0].equals(KEYWORD_ENCRYPT)) {
-				encryptOrDecrypt(args[1], args[2], true);
-			} else if (args[0].equals(KEYWORD_DECRYPT)) {
-				encryptOrDecrypt(args[1], args[2], false);
-			} else {
-				printErrorMessageAndExit(-2);
-			}
-		} else if (args.length == 2) {
-			if (args[0].equals(KEYWORD_CHECKSHA)) {
-				checksha(args[1]);
-			}
-		} else {
-			printErrorMessageAndExit(-1);
-		}
-	}
-
-	/**
-	 * Encrypts or decrypts file at {@code src} and places result at
-	 * {@code dest}.
-	 * 
-	 * @param src
-	 *            the path of source file
-	 * @param dest
-	 *            the path of destination file
-	 * @param encrypt
-	 *            if set to {@code true} this method will encrypt source file
-	 *            and if set to {@code false} it will decrypt source file
-	 */
-	private static void encryptOrDecrypt(String src, String dest,
-			boolean encrypt) {
-		checkIfNullOrEmpty(src, -1);
-		checkIfNullOrEmpty(dest, -1);
-
-		System.out.println(Messages.PASSWORD_MESSAGE);
-
-		Scanner scan = new Scanner(System.in);
-
-		System.out.printf(">");
-		String password = scan.nextLine();
-
-		System.out.println(Messages.INITIAL_VECTOR_MESSAGE);
-
-		System.out.printf(">");
-		String initVector = scan.nextLine();
-		scan.close();
-
-		if (!password.matches("^[A-Fa-f0-9]{32}$")) {
-			System.err.println(Messages.PASSWORD_FORMAT_ERROR);
-			System.exit(-3);
-		}
-
-		if (!initVector.matches("^[A-Fa-f0-9]{32}$")) {
-			System.err.println(Messages.INITIAL_VECTOR_FORMAT_ERROR);
-			System.exit(-3);
-		}
-
-		SecretKeySpec keySpec = new SecretKeySpec(hexToByte(password), "AES");
-		AlgorithmParameterSpec paramSpec = new IvParameterSpec(
-				hexToByte(initVector));
-
-		Cipher cipher = null;
-
-		try {
-			cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-			cipher.init(
-					encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE,
-					keySpec,
-					paramSpec);
-		} catch (GeneralSecurityException e) {
-			System.err.println("Security exception: " + e.getMessage());
-			System.exit(-9);
-		}
-
-		try (InputStream inStream = new BufferedInputStream(
-				Files.newInputStream(Paths.get(src), StandardOpenOption.READ));
-				OutputStream outStream = new BufferedOutputStream(
-						Files.newOutputStream(
-								Paths.get(dest),
-								StandardOpenOption.CREATE,
-								StandardOpenOption.WRITE))) {
-			byte[] buffer = null;
-			byte[] cipherBuffer = new byte[DEFAULT_BUFFER_SIZE];
-			int size = 0;
-
-			while ((size = inStream.read(cipherBuffer)) > 0) {
-
-				buffer = cipher.update(cipherBuffer, 0, size);
-
-				if (inStream != null) {
-					outStream.write(buffer);
-				}
-			}
-
-			buffer = cipher.doFinal();
-			outStream.write(buffer);
-
-		} catch (IOException e) {
-			System.err.printf("IO exception: %s%n", e.getMessage());
-			e.printStackTrace();
-			System.exit(-7);
-		} catch (IllegalBlockSizeException e) {
-			System.err.printf(
-					"Illegal block size exception: %s%n",
-					e.getMessage());
-			System.exit(-7);
-		} catch (BadPaddingException e) {
-			System.err.printf("Bad padding exception: %s%n", e.getMessage());
-			System.exit(-7);
-		}
-
-		if (encrypt) {
-			System.out.printf(
-					Messages.ENCRYPTION_SUCCESS_MESSAGE + "%n",
-					dest,
-					src);
-		} else {
-			System.out.printf(
-					Messages.DECRYPTION_SUCCESS_MESSAGE + "%n",
-					dest,
-					src);
-		}
-	}
-
-	/**
-	 * Asks user for digest and then proceeds to validating that digest with
-	 * real digest of specified file.
-	 * 
-	 * @param filePath
-	 *            the path of file
-	 */
-	private static void checksha(String filePath) {
-		checkIfNullOrEmpty(filePath, -1);
-
-		System.out.printf(Messages.CHECKSUM_MESSAGE + "%n", filePath);
-
-		System.out.print(">");
-
-		Scanner scan = new Scanner(System.in);
-		String digestExpected = scan.nextLine();
-		scan.close();
-
-		if (!digestExpected.matches("^[A-Fa-f0-9]{64}$")) {
-			System.err.println(Messages.CHECKSUM_FORMAT_ERROR);
-			System.exit(-3);
-		}
-
-		MessageDigest sha256 = null;
-
-		try {
-			sha256 = MessageDigest.getInstance("SHA-256");
-		} catch (NoSuchAlgorithmException e) {
-			System.err.printf("Security exception: %s%n", e.getMessage());
-			System.exit(-4);
-		}
-
-		try (InputStream br = Files
-				.newInputStream(Paths.get(filePath), StandardOpenOption.READ)) {
-			byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-
-			while (true) {
-				int r = br.read(buffer);
-
-				if (r < 1) {
-					break;
-				}
-
-				sha256.update(Arrays.copyOfRange(buffer, 0, r));
-			}
-
-		} catch (IOException e) {
-			System.err.printf("IO exception: %s%n", e.getMessage());
-			System.exit(-7);
-		}
-
-		String digestActual = byteToHex(sha256.digest());
-
-		if (digestExpected.toLowerCase().equals(digestActual.toLowerCase())) {
-			System.out
-					.printf(Messages.CHECKSUM_SUCCESS_MESSAGE + "%n", filePath);
-		} else {
-			System.out.printf(
-					Messages.CHECKSUM_FAIL_MESSAGE + "%n",
-					filePath,
-					digestActual.toLowerCase());
-		}
-	}
-
-	/**
-	 * CHecks if string is null. If it's null {@link IllegalArgumentException}
-	 * is thrown and if it's empty program exits with specified exit status.
-	 * 
-	 * @param str
-	 *            string to be checked
-	 * @param status
-	 *            exit status
-	 */
-	private static void checkIfNullOrEmpty(String str, int status) {
-		if (str == null) {
-			throw new IllegalArgumentException("File path cannot be null!");
-		}
-
-		if (str.isEmpty()) {
-			System.err.println("File path cannot be empty string!");
-			System.exit(status);
-		}
-	}
-
-	/**
-	 * Convert byte to hex.
-	 * 
-	 * @param bytes
-	 *            array of bytes
-	 * @return string containing hex values
-	 */
-	private static String byteToHex(byte[] bytes) {
-		return DatatypeConverter.printHexBinary(bytes);
-	}
-
-	/**
-	 * Convert hex to byte.
-	 * 
-	 * @param hex
-	 *            string containing hex values
-	 * @return array of bytes
-	 */
-	private static byte[] hexToByte(String hex) {
-		return DatatypeConverter.parseHexBinary(hex);
-	}
-
-	/**
-	 * Prints message informing user about invalid input and exits the program
-	 * with specified exit status.
-	 * 
-	 * @param status
-	 *            exit status
-	 */
-	private static void printErrorMessageAndExit(int status) {
-		System.err.printf(Messages.INVALID_INPUT);
-
-		System.exit(status);
-	}
-}
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.SecretKeySpec;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.CryptoEngine.Mode;
+
+/**
+ * {@code Crypto} is a class that uses AES algorithm for encryption and
+ * decryption of files and can check validity of file by checking their digest
+ * using SHA-256 algorithm.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class Crypto {
+
+	/**
+	 * Keyword for checksha command.
+	 */
+	static final String KEYWORD_CHECKSHA = "checksha";
+
+	/**
+	 * Keyword for checksha command over all files listed in a manifest.
+	 */
+	static final String KEYWORD_CHECKSHA_MANIFEST = "checksha-manifest";
+
+	/**
+	 * Keyword for digesting with several algorithms.
+	 */
+	static final String KEYWORD_DIGEST = "digest";
+
+	/**
+	 * Keyword for tree hash command.
+	 */
+	static final String KEYWORD_TREESHA = "treesha";
+
+	/**
+	 * Keyword for tree hash verification command.
+	 */
+	static final String KEYWORD_TREESHA_VERIFY = "treesha-verify";
+
+	/**
+	 * Keyword for decryption command.
+	 */
+	static final String KEYWORD_DECRYPT = "decrypt";
+
+	/**
+	 * Keyword for encryption command.
+	 */
+	static final String KEYWORD_ENCRYPT = "encrypt";
+
+	/**
+	 * Keyword for decryption command in CTR mode.
+	 */
+	static final String KEYWORD_DECRYPT_CTR = "decrypt-ctr";
+
+	/**
+	 * Keyword for encryption command in CTR mode.
+	 */
+	static final String KEYWORD_ENCRYPT_CTR = "encrypt-ctr";
+
+	/**
+	 * Keyword for pipelined decryption command.
+	 */
+	static final String KEYWORD_DECRYPT_PIPE = "decrypt-pipe";
+
+	/**
+	 * Keyword for pipelined encryption command.
+	 */
+	static final String KEYWORD_ENCRYPT_PIPE = "encrypt-pipe";
+
+	/**
+	 * Keyword for decryption command which also digests both files.
+	 */
+	static final String KEYWORD_DECRYPT_SHA = "decrypt-sha";
+
+	/**
+	 * Keyword for encryption command which also digests both files.
+	 */
+	static final String KEYWORD_ENCRYPT_SHA = "encrypt-sha";
+
+	/**
+	 * Keyword for encryption into chunked container command.
+	 */
+	static final String KEYWORD_ENCRYPT_CHUNKED = "encrypt-chunked";
+
+	/**
+	 * Keyword for decryption of chunked container command.
+	 */
+	static final String KEYWORD_DECRYPT_CHUNKED = "decrypt-chunked";
+
+	/**
+	 * Keyword for decryption of range of chunked container command.
+	 */
+	static final String KEYWORD_DECRYPT_RANGE = "decrypt-range";
+
+	/**
+	 * Keyword for encryption in GCM mode command.
+	 */
+	static final String KEYWORD_ENCRYPT_GCM = "encrypt-gcm";
+
+	/**
+	 * Keyword for decryption in GCM mode command.
+	 */
+	static final String KEYWORD_DECRYPT_GCM = "decrypt-gcm";
+
+	/**
+	 * Keyword for verification of file encrypted in GCM mode command.
+	 */
+	static final String KEYWORD_VERIFY_GCM = "verify-gcm";
+
+	/**
+	 * Keyword for verification of encrypted file against expected digest of
+	 * its content command.
+	 */
+	static final String KEYWORD_VERIFY = "verify";
+
+	/**
+	 * Keyword for in place encryption command.
+	 */
+	static final String KEYWORD_ENCRYPT_IN_PLACE = "encrypt-inplace";
+
+	/**
+	 * Keyword for in place decryption command.
+	 */
+	static final String KEYWORD_DECRYPT_IN_PLACE = "decrypt-inplace";
+
+	/**
+	 * Keyword for directory encryption command.
+	 */
+	static final String KEYWORD_ENCRYPT_DIR = "encrypt-dir";
+
+	/**
+	 * Keyword for directory decryption command.
+	 */
+	static final String KEYWORD_DECRYPT_DIR = "decrypt-dir";
+
+	/**
+	 * Keyword for batch command.
+	 */
+	static final String KEYWORD_BATCH = "batch";
+
+	/**
+	 * Option giving the key as 32 hex-digits.
+	 */
+	private static final String OPTION_KEY = "--key";
+
+	/**
+	 * Option giving the initialization vector as 32 hex-digits.
+	 */
+	private static final String OPTION_IV = "--iv";
+
+	/**
+	 * Option giving the path of the key file.
+	 */
+	private static final String OPTION_KEY_FILE = "--key-file";
+
+	/**
+	 * Option enabling checkpoints, followed by number of megabytes written
+	 * between two checkpoints.
+	 */
+	private static final String OPTION_CHECKPOINT = "--checkpoint";
+
+	/**
+	 * Option enabling compression before encryption and decompression after
+	 * decryption, followed by compression level from 0 to 9.
+	 */
+	private static final String OPTION_COMPRESS = "--compress";
+
+	/**
+	 * Option enabling progress line, followed by number of seconds between
+	 * two progress lines.
+	 */
+	private static final String OPTION_PROGRESS = "--progress";
+
+	/**
+	 * Option giving the path of the file to which statistics are stored.
+	 */
+	private static final String OPTION_STATS = "--stats";
+
+	/**
+	 * Option enabling the digest cache, followed by the path of the cache
+	 * file.
+	 */
+	private static final String OPTION_DIGEST_CACHE = "--digest-cache";
+
+	/**
+	 * Extension of the file in which digests are stored.
+	 */
+	private static final String DIGEST_FILE_EXTENSION = ".sha256";
+
+	/**
+	 * Extension of the file in which tree hash is stored.
+	 */
+	private static final String TREE_FILE_EXTENSION = ".treesha";
+
+	/**
+	 * Scanner used for reading user input from standard input.
+	 */
+	private static Scanner scanner;
+
+	/**
+	 * Key given by command-line options; {@code null} if user should be
+	 * asked for it.
+	 */
+	private static SecretKeySpec presetKey;
+
+	/**
+	 * Initialization vector given by command-line options; {@code null} if
+	 * user should be asked for it.
+	 */
+	private static byte[] presetInitVector;
+
+	/**
+	 * Number of bytes written between two checkpoints; 0 if checkpoints are
+	 * disabled.
+	 */
+	private static long checkpointInterval;
+
+	/**
+	 * Compression level; -1 if compression is disabled.
+	 */
+	private static int compressionLevel = -1;
+
+	/**
+	 * Number of milliseconds between two progress lines; 0 if progress isn't
+	 * printed.
+	 */
+	private static long progressInterval;
+
+	/**
+	 * Path of the file to which statistics are stored; {@code null} if they
+	 * aren't stored.
+	 */
+	private static String statsFile;
+
+	/**
+	 * The path of the digest cache file; {@code null} if digests aren't
+	 * cached.
+	 */
+	private static String digestCacheFile;
+
+	/**
+	 * Description of the current job stored with statistics.
+	 */
+	private static String job;
+
+	/**
+	 * Reporter printing progress of the current job; {@code null} if progress
+	 * isn't printed.
+	 */
+	private static ProgressReporter progressReporter;
+
+	/**
+	 * Starting point of a program.
+	 * 
+	 * @param args
+	 *            Command-line argument
+	 */
+	public static void main(String[] args) {
+		args = parseOptions(args);
+		job = String.join(" ", args);
+
+		if (args.length == 0) {
+			printErrorMessageAndExit(-1);
+		}
+
+		switch (args[0]) {
+		case KEYWORD_ENCRYPT:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.CBC, args[1], args[2], true);
+			break;
+		case KEYWORD_DECRYPT:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.CBC, args[1], args[2], false);
+			break;
+		case KEYWORD_ENCRYPT_CTR:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.CTR, args[1], args[2], true);
+			break;
+		case KEYWORD_DECRYPT_CTR:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.CTR, args[1], args[2], false);
+			break;
+		case KEYWORD_ENCRYPT_PIPE:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.PIPELINED, args[1], args[2], true);
+			break;
+		case KEYWORD_DECRYPT_PIPE:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.PIPELINED, args[1], args[2], false);
+			break;
+		case KEYWORD_ENCRYPT_SHA:
+			checkArgumentCount(args, 3);
+			encryptOrDecryptWithDigest(args[1], args[2], true);
+			break;
+		case KEYWORD_DECRYPT_SHA:
+			checkArgumentCount(args, 3);
+			encryptOrDecryptWithDigest(args[1], args[2], false);
+			break;
+		case KEYWORD_ENCRYPT_CHUNKED:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.CHUNKED, args[1], args[2], true);
+			break;
+		case KEYWORD_DECRYPT_CHUNKED:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.CHUNKED, args[1], args[2], false);
+			break;
+		case KEYWORD_DECRYPT_RANGE:
+			if (args.length == 5) {
+				decryptRange(args[1], parseLong(args[2]), parseLong(args[3]),
+						args[4]);
+			} else {
+				checkArgumentCount(args, 4);
+				decryptRange(args[1], parseLong(args[2]), parseLong(args[3]),
+						null);
+			}
+			break;
+		case KEYWORD_CHECKSHA:
+			if (args.length == 3) {
+				checksha(args[1], parseInt(args[2], 1));
+			} else {
+				checkArgumentCount(args, 2);
+				checksha(args[1], FileDigester.DEFAULT_BLOCK_SIZE);
+			}
+			break;
+		case KEYWORD_CHECKSHA_MANIFEST:
+			checkArgumentCount(args, 2);
+			checkshaManifest(args[1]);
+			break;
+		case KEYWORD_DIGEST:
+			if (args.length == 3) {
+				digest(args[1], args[2]);
+			} else {
+				checkArgumentCount(args, 2);
+				digest(args[1], MultiDigester.DEFAULT_ALGORITHMS);
+			}
+			break;
+		case KEYWORD_TREESHA:
+			if (args.length == 3) {
+				treesha(args[1], parseInt(args[2], 1));
+			} else {
+				checkArgumentCount(args, 2);
+				treesha(args[1], TreeDigester.DEFAULT_CHUNK_SIZE);
+			}
+			break;
+		case KEYWORD_TREESHA_VERIFY:
+			if (args.length == 3) {
+				treeshaVerifyChunk(args[1], parseInt(args[2], 0));
+			} else {
+				checkArgumentCount(args, 2);
+				treeshaVerify(args[1]);
+			}
+			break;
+		case KEYWORD_ENCRYPT_GCM:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.GCM, args[1], args[2], true);
+			break;
+		case KEYWORD_DECRYPT_GCM:
+			checkArgumentCount(args, 3);
+			encryptOrDecrypt(Mode.GCM, args[1], args[2], false);
+			break;
+		case KEYWORD_VERIFY_GCM:
+			checkArgumentCount(args, 2);
+			verifyGcm(args[1]);
+			break;
+		case KEYWORD_VERIFY:
+			checkArgumentCount(args, 3);
+			verify(args[1], args[2]);
+			break;
+		case KEYWORD_ENCRYPT_IN_PLACE:
+			checkArgumentCount(args, 2);
+			encryptOrDecryptInPlace(args[1], true);
+			break;
+		case KEYWORD_DECRYPT_IN_PLACE:
+			checkArgumentCount(args, 2);
+			encryptOrDecryptInPlace(args[1], false);
+			break;
+		case KEYWORD_ENCRYPT_DIR:
+		case KEYWORD_DECRYPT_DIR:
+			boolean encrypt = args[0].equals(KEYWORD_ENCRYPT_DIR);
+			if (args.length == 4) {
+				encryptOrDecryptDirectory(args[1], args[2], encrypt,
+						parseInt(args[3], 1));
+			} else {
+				checkArgumentCount(args, 3);
+				encryptOrDecryptDirectory(args[1], args[2], encrypt,
+						Runtime.getRuntime().availableProcessors());
+			}
+			break;
+		case KEYWORD_BATCH:
+			checkArgumentCount(args, 2);
+			batch(args[1]);
+			break;
+		default:
+			printErrorMessageAndExit(-2);
+		}
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} in given mode and places result
+	 * at {@code dest}. Key and initialization vector are taken from
+	 * command-line options or asked from user. In CBC mode, if checkpoints
+	 * are enabled, an interrupted job is resumed from its last checkpoint.
+	 * 
+	 * @param mode
+	 *            the mode
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt source file
+	 *            and if set to {@code false} it will decrypt source file
+	 * @see CryptoEngine#process(Mode, boolean, Path, Path)
+	 */
+	private static void encryptOrDecrypt(Mode mode, String src,
+			String dest, boolean encrypt) {
+		checkIfNullOrEmpty(src, -1);
+		checkIfNullOrEmpty(dest, -1);
+
+		if (mode == Mode.CBC && compressionLevel >= 0) {
+			mode = Mode.DEFLATE;
+		}
+
+		CryptoEngine engine = createEngine(mode.needsInitVector());
+		Statistics statistics = startStatistics(src);
+		engine.setStatistics(statistics);
+
+		try {
+			if (mode == Mode.CBC && checkpointInterval > 0) {
+				long resumedFrom = engine.processResumable(
+						encrypt,
+						Paths.get(src),
+						Paths.get(dest),
+						checkpointInterval);
+
+				if (resumedFrom > 0) {
+					System.out.printf(
+							Messages.RESUMED_MESSAGE + "%n",
+							resumedFrom);
+				}
+			} else {
+				engine.process(mode, encrypt, Paths.get(src), Paths.get(dest));
+			}
+
+			finishStatistics(statistics, src, dest);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (AEADBadTagException e) {
+			System.err.printf("Authentication failed: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (IllegalBlockSizeException e) {
+			System.err.printf(
+					"Illegal block size exception: %s%n",
+					e.getMessage());
+			System.exit(-7);
+		} catch (BadPaddingException e) {
+			System.err.printf("Bad padding exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		printSuccessMessage(src, dest, encrypt);
+	}
+
+	/**
+	 * Encrypts or decrypts file in place using AES algorithm in CBC mode, so
+	 * no free space for a separate destination file is needed. If the job was
+	 * interrupted, running it again resumes it from its journal. Compression
+	 * cannot be done in place.
+	 * 
+	 * @param file
+	 *            the path of the file
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt the file and
+	 *            if set to {@code false} it will decrypt the file
+	 * @see CryptoEngine#processInPlace(boolean, Path)
+	 */
+	private static void encryptOrDecryptInPlace(String file, boolean encrypt) {
+		checkIfNullOrEmpty(file, -1);
+
+		if (compressionLevel >= 0) {
+			System.err.println(Messages.COMPRESS_IN_PLACE_ERROR);
+			System.exit(-1);
+		}
+
+		CryptoEngine engine = createEngine(true);
+		Statistics statistics = startStatistics(file);
+		engine.setStatistics(statistics);
+
+		try {
+			long resumedFrom = engine.processInPlace(encrypt, Paths.get(file));
+
+			if (resumedFrom > 0) {
+				System.out.printf(
+						Messages.JOURNAL_RESUMED_MESSAGE + "%n",
+						resumedFrom);
+			}
+
+			finishStatistics(statistics, file, null);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (IllegalBlockSizeException e) {
+			System.err.printf(
+					"Illegal block size exception: %s%n",
+					e.getMessage());
+			System.exit(-7);
+		} catch (BadPaddingException e) {
+			System.err.printf("Bad padding exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		System.out.printf(
+				(encrypt ? Messages.ENCRYPTION_IN_PLACE_SUCCESS_MESSAGE
+						: Messages.DECRYPTION_IN_PLACE_SUCCESS_MESSAGE) + "%n",
+				file);
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} using AES algorithm in CBC mode
+	 * and places result at {@code dest}. While file is being processed SHA-256
+	 * digests of both source and destination file are calculated. Digests are
+	 * printed and stored next to the destination file in a file with
+	 * {@value #DIGEST_FILE_EXTENSION} extension, in the same format
+	 * {@code sha256sum} uses.
+	 * 
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt source file
+	 *            and if set to {@code false} it will decrypt source file
+	 */
+	private static void encryptOrDecryptWithDigest(String src, String dest,
+			boolean encrypt) {
+		checkIfNullOrEmpty(src, -1);
+		checkIfNullOrEmpty(dest, -1);
+
+		Cipher cipher = createCbcCipher(encrypt);
+		MessageDigest srcDigest = createSha256();
+		MessageDigest destDigest = createSha256();
+
+		Path srcPath = Paths.get(src);
+		Path destPath = Paths.get(dest);
+		Path digestPath = Paths.get(dest + DIGEST_FILE_EXTENSION);
+
+		try {
+			Statistics statistics = startStatistics(src);
+			ChannelCipher channelCipher = new ChannelCipher(cipher);
+			channelCipher.setInputDigest(srcDigest);
+			channelCipher.setOutputDigest(destDigest);
+			channelCipher.setStatistics(statistics);
+			channelCipher.process(srcPath, destPath);
+			finishStatistics(statistics, src, dest);
+
+			String srcHex = Hex.encode(srcDigest.digest());
+			String destHex = Hex.encode(destDigest.digest());
+
+			System.out.printf(Messages.DIGEST_MESSAGE + "%n", src, srcHex);
+			System.out.printf(Messages.DIGEST_MESSAGE + "%n", dest, destHex);
+
+			Path dir = digestPath.toAbsolutePath().getParent();
+			Files.write(
+					digestPath,
+					Arrays.asList(
+							srcHex + "  " + dir.relativize(
+									srcPath.toAbsolutePath()),
+							destHex + "  " + dir.relativize(
+									destPath.toAbsolutePath())),
+					StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (IllegalBlockSizeException e) {
+			System.err.printf(
+					"Illegal block size exception: %s%n",
+					e.getMessage());
+			System.exit(-7);
+		} catch (BadPaddingException e) {
+			System.err.printf("Bad padding exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		printSuccessMessage(src, dest, encrypt);
+		System.out.printf(Messages.DIGEST_STORED_MESSAGE + "%n", digestPath);
+	}
+
+	/**
+	 * Verifies all chunks of the file encrypted in GCM mode without
+	 * decrypting it to disk. Chunks are verified in parallel using all
+	 * available processors.
+	 * 
+	 * @param src
+	 *            the path of encrypted file
+	 * @see GcmChunkedCipher#verify(Path)
+	 */
+	private static void verifyGcm(String src) {
+		checkIfNullOrEmpty(src, -1);
+
+		List<Integer> failed = null;
+
+		try {
+			failed = new GcmChunkedCipher(askForKey()).verify(Paths.get(src));
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		if (failed.isEmpty()) {
+			System.out.printf(Messages.GCM_VERIFY_SUCCESS_MESSAGE + "%n", src);
+		} else {
+			System.out.printf(
+					Messages.GCM_VERIFY_FAIL_MESSAGE + "%n",
+					src,
+					failed.size(),
+					failed);
+			System.exit(-7);
+		}
+	}
+
+	/**
+	 * Decrypts file encrypted in CBC mode in memory and checks if SHA-256
+	 * digest of its content matches the expected digest. Decrypted content is
+	 * never written to disk.
+	 * 
+	 * @param src
+	 *            the path of encrypted file
+	 * @param expected
+	 *            expected digest of decrypted content as 64 hex-digits
+	 * @see CryptoEngine#digestDecrypted(Path)
+	 */
+	private static void verify(String src, String expected) {
+		checkIfNullOrEmpty(src, -1);
+
+		if (!expected.matches("^[A-Fa-f0-9]{64}$")) {
+			System.err.println(Messages.CHECKSUM_FORMAT_ERROR);
+			System.exit(-3);
+		}
+
+		CryptoEngine engine = createEngine(true);
+		Statistics statistics = startStatistics(src);
+		engine.setStatistics(statistics);
+		byte[] digest = null;
+
+		try {
+			digest = engine.digestDecrypted(Paths.get(src));
+			finishStatistics(statistics, src, null);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (IllegalBlockSizeException e) {
+			System.err.printf(
+					"Illegal block size exception: %s%n",
+					e.getMessage());
+			System.exit(-7);
+		} catch (BadPaddingException e) {
+			System.err.printf("Bad padding exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		if (Hex.equals(digest, expected)) {
+			System.out.printf(Messages.VERIFY_SUCCESS_MESSAGE + "%n", src);
+		} else {
+			System.out.printf(
+					Messages.VERIFY_FAIL_MESSAGE + "%n",
+					src,
+					Hex.encode(digest));
+			System.exit(-7);
+		}
+	}
+
+	/**
+	 * Decrypts {@code length} bytes of the original file starting at
+	 * {@code offset} from the chunked container at {@code src}. Only chunks
+	 * covering the range are decrypted.
+	 * 
+	 * @param src
+	 *            the path of the container
+	 * @param offset
+	 *            offset of the first byte in the original file
+	 * @param length
+	 *            number of bytes
+	 * @param dest
+	 *            the path of destination file or {@code null} if bytes should
+	 *            be written to standard output
+	 * @see ChunkedContainer#decryptRange(Path, long, long,
+	 *      WritableByteChannel)
+	 */
+	private static void decryptRange(String src, long offset, long length,
+			String dest) {
+		checkIfNullOrEmpty(src, -1);
+		if (dest != null) {
+			checkIfNullOrEmpty(dest, -1);
+		}
+
+		SecretKeySpec keySpec = askForKey();
+
+		try {
+			ChunkedContainer container = new ChunkedContainer(keySpec);
+
+			if (dest == null) {
+				System.out.flush();
+				container.decryptRange(Paths.get(src), offset, length,
+						Channels.newChannel(System.out));
+				System.out.flush();
+				return;
+			}
+
+			try (FileChannel out = FileChannel.open(
+					Paths.get(dest),
+					StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				container.decryptRange(Paths.get(src), offset, length, out);
+			}
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (AEADBadTagException e) {
+			System.err.printf("Authentication failed: %s%n", e.getMessage());
+			System.exit(-7);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		printSuccessMessage(src, dest, false);
+	}
+
+	/**
+	 * Asks user for digest and then proceeds to validating that digest with
+	 * real digest of specified file. If digest cache is enabled, digest of
+	 * an unchanged file is taken from the cache.
+	 * 
+	 * @param filePath
+	 *            the path of file
+	 * @param blockSize
+	 *            size of blocks in which file is read
+	 */
+	private static void checksha(String filePath, int blockSize) {
+		checkIfNullOrEmpty(filePath, -1);
+
+		System.out.printf(Messages.CHECKSUM_MESSAGE + "%n", filePath);
+
+		System.out.print(">");
+
+		String digestExpected = getScanner().nextLine();
+
+		if (!digestExpected.matches("^[A-Fa-f0-9]{64}$")) {
+			System.err.println(Messages.CHECKSUM_FORMAT_ERROR);
+			System.exit(-3);
+		}
+
+		byte[] digest = null;
+
+		try {
+			Statistics statistics = startStatistics(filePath);
+			FileDigester digester = new FileDigester("SHA-256", blockSize);
+			digester.setStatistics(statistics);
+			DigestCache cache = loadDigestCache();
+
+			if (cache == null) {
+				digest = digester.digest(Paths.get(filePath));
+			} else {
+				digest = cache.digest(Paths.get(filePath), digester);
+				storeDigestCache(cache);
+			}
+
+			finishStatistics(statistics, filePath, null);
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		if (Hex.equals(digest, digestExpected)) {
+			System.out
+					.printf(Messages.CHECKSUM_SUCCESS_MESSAGE + "%n", filePath);
+		} else {
+			System.out.printf(
+					Messages.CHECKSUM_FAIL_MESSAGE + "%n",
+					filePath,
+					Hex.encode(digest));
+		}
+	}
+
+	/**
+	 * Validates digests of all files listed in the manifest. Manifest must be
+	 * in the format {@code sha256sum} uses. Files are hashed concurrently. If
+	 * digest cache is enabled, unchanged files aren't hashed again. Program
+	 * exits if any file doesn't match its digest or couldn't be read.
+	 * 
+	 * @param manifestPath
+	 *            the path of manifest
+	 * @see ManifestVerifier
+	 */
+	private static void checkshaManifest(String manifestPath) {
+		checkIfNullOrEmpty(manifestPath, -1);
+
+		int failed = 0;
+
+		try {
+			ManifestVerifier verifier = new ManifestVerifier();
+			DigestCache cache = loadDigestCache();
+			verifier.setDigestCache(cache);
+			failed = verifier.verify(Paths.get(manifestPath), System.out);
+
+			if (cache != null) {
+				storeDigestCache(cache);
+			}
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		if (failed > 0) {
+			System.exit(-7);
+		}
+	}
+
+	/**
+	 * Calculates digests of the file with several algorithms over a single
+	 * read of the file and prints them. Every algorithm runs on its own
+	 * thread.
+	 * 
+	 * @param filePath
+	 *            the path of file
+	 * @param algorithms
+	 *            comma-separated names of the algorithms, e.g.
+	 *            {@code SHA-256,MD5,CRC32C}
+	 * @see MultiDigester
+	 */
+	private static void digest(String filePath, String algorithms) {
+		checkIfNullOrEmpty(filePath, -1);
+		checkIfNullOrEmpty(algorithms, -1);
+
+		Map<String, byte[]> digests = null;
+
+		try {
+			Statistics statistics = startStatistics(filePath);
+			MultiDigester digester = new MultiDigester(
+					Arrays.asList(algorithms.split(",")));
+			digester.setStatistics(statistics);
+			digests = digester.digest(Paths.get(filePath));
+			finishStatistics(statistics, filePath, null);
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		digests.forEach((algorithm, digest) -> System.out.printf(
+				Messages.ALGORITHM_DIGEST_MESSAGE + "%n",
+				algorithm,
+				filePath,
+				Hex.encode(digest)));
+	}
+
+	/**
+	 * Calculates tree hash of the file using all available processors, prints
+	 * its root digest and stores digests of all chunks into a sidecar file.
+	 * 
+	 * @param filePath
+	 *            the path of file
+	 * @param chunkSize
+	 *            size of chunks which are hashed independently
+	 * @see TreeDigester
+	 */
+	private static void treesha(String filePath, int chunkSize) {
+		checkIfNullOrEmpty(filePath, -1);
+
+		Path treePath = Paths.get(filePath + TREE_FILE_EXTENSION);
+
+		try {
+			TreeDigester.TreeHash tree = new TreeDigester(
+					chunkSize,
+					Runtime.getRuntime().availableProcessors())
+							.digest(Paths.get(filePath));
+			tree.store(treePath);
+
+			System.out.printf(
+					Messages.TREE_DIGEST_MESSAGE + "%n",
+					filePath,
+					tree.getChunkCount(),
+					Hex.encode(tree.getRoot()));
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(-3);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		System.out.printf(Messages.DIGEST_STORED_MESSAGE + "%n", treePath);
+	}
+
+	/**
+	 * Calculates tree hash of the file again and compares it with the tree
+	 * hash stored in its sidecar file. Indexes of all chunks that changed are
+	 * printed and program exits if the file changed.
+	 * 
+	 * @param filePath
+	 *            the path of file
+	 * @see TreeDigester
+	 */
+	private static void treeshaVerify(String filePath) {
+		checkIfNullOrEmpty(filePath, -1);
+
+		try {
+			TreeDigester.TreeHash stored = TreeDigester.TreeHash
+					.load(Paths.get(filePath + TREE_FILE_EXTENSION));
+			TreeDigester.TreeHash actual = new TreeDigester(
+					stored.getChunkSize(),
+					Runtime.getRuntime().availableProcessors())
+							.digest(Paths.get(filePath));
+
+			if (actual.getSize() != stored.getSize()) {
+				System.out.printf(
+						Messages.TREE_SIZE_CHANGED_MESSAGE + "%n",
+						filePath,
+						stored.getSize(),
+						actual.getSize());
+				System.exit(-7);
+			}
+
+			List<Integer> differing = stored.differingChunks(actual);
+			if (differing.isEmpty()) {
+				System.out.printf(
+						Messages.TREE_VERIFY_SUCCESS_MESSAGE + "%n",
+						filePath);
+			} else {
+				System.out.printf(
+						Messages.TREE_VERIFY_FAIL_MESSAGE + "%n",
+						filePath,
+						differing.size(),
+						stored.getChunkCount(),
+						differing);
+				System.exit(-7);
+			}
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+	}
+
+	/**
+	 * Re-verifies a single chunk of the file against the digest stored in its
+	 * sidecar file. Only that chunk is read from the file.
+	 * 
+	 * @param filePath
+	 *            the path of file
+	 * @param chunk
+	 *            index of the chunk
+	 * @see TreeDigester#verifyChunk(Path, TreeDigester.TreeHash, int)
+	 */
+	private static void treeshaVerifyChunk(String filePath, int chunk) {
+		checkIfNullOrEmpty(filePath, -1);
+
+		boolean matches = false;
+
+		try {
+			TreeDigester.TreeHash stored = TreeDigester.TreeHash
+					.load(Paths.get(filePath + TREE_FILE_EXTENSION));
+			matches = TreeDigester
+					.verifyChunk(Paths.get(filePath), stored, chunk);
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		} catch (IndexOutOfBoundsException e) {
+			System.err.println(e.getMessage());
+			System.exit(-3);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		System.out.printf(
+				(matches ? Messages.TREE_CHUNK_SUCCESS_MESSAGE
+						: Messages.TREE_CHUNK_FAIL_MESSAGE) + "%n",
+				chunk,
+				filePath);
+	}
+
+	/**
+	 * Encrypts or decrypts all files in the directory tree at {@code src} in
+	 * CBC mode and places results at the same relative paths under
+	 * {@code dest}. Files are processed concurrently. Every file gets its own
+	 * initialization vector derived from a random salt of the job, so only
+	 * the key is asked for.
+	 * 
+	 * @param src
+	 *            the path of source directory
+	 * @param dest
+	 *            the path of destination directory
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt source files
+	 *            and if set to {@code false} it will decrypt source files
+	 * @param parallelism
+	 *            number of files processed at the same time
+	 * @see DirectoryJob
+	 */
+	private static void encryptOrDecryptDirectory(String src, String dest,
+			boolean encrypt, int parallelism) {
+		checkIfNullOrEmpty(src, -1);
+		checkIfNullOrEmpty(dest, -1);
+
+		int failed = 0;
+
+		try {
+			Mode mode = compressionLevel >= 0 ? Mode.DEFLATE : Mode.CBC;
+			failed = new DirectoryJob(createEngine(false), mode, parallelism)
+					.run(Paths.get(src), Paths.get(dest), encrypt, System.out);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		if (failed > 0) {
+			System.exit(-7);
+		}
+	}
+
+	/**
+	 * Runs all jobs listed in the job file in this JVM. Key is taken from
+	 * command-line options or asked from user only once; initialization
+	 * vectors are given on job lines, one per file.
+	 * 
+	 * @param jobFile
+	 *            the path of job file
+	 * @see BatchRunner
+	 */
+	private static void batch(String jobFile) {
+		checkIfNullOrEmpty(jobFile, -1);
+
+		int failed = 0;
+
+		try {
+			failed = new BatchRunner(createEngine(false))
+					.run(Paths.get(jobFile), System.out);
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-7);
+		}
+
+		if (failed > 0) {
+			System.exit(-7);
+		}
+	}
+
+	/**
+	 * Parses options given before the command and returns remaining
+	 * command-line arguments. Supported options are {@value #OPTION_KEY},
+	 * {@value #OPTION_IV}, {@value #OPTION_KEY_FILE},
+	 * {@value #OPTION_CHECKPOINT}, {@value #OPTION_COMPRESS},
+	 * {@value #OPTION_PROGRESS}, {@value #OPTION_STATS} and
+	 * {@value #OPTION_DIGEST_CACHE}. If an option is invalid message
+	 * informing user about invalid input is printed and program exits.
+	 * 
+	 * @param args
+	 *            command-line arguments
+	 * @return command-line arguments without options
+	 */
+	private static String[] parseOptions(String[] args) {
+		int i = 0;
+
+		for (; i < args.length && args[i].startsWith("--"); i += 2) {
+			if (i + 1 == args.length) {
+				printErrorMessageAndExit(-1);
+			}
+
+			String value = args[i + 1];
+
+			switch (args[i]) {
+			case OPTION_KEY:
+				presetKey = new SecretKeySpec(
+						parseHex(value, Messages.PASSWORD_FORMAT_ERROR),
+						"AES");
+				break;
+			case OPTION_IV:
+				presetInitVector = parseHex(
+						value,
+						Messages.INITIAL_VECTOR_FORMAT_ERROR);
+				break;
+			case OPTION_KEY_FILE:
+				loadKeyFile(value);
+				break;
+			case OPTION_CHECKPOINT:
+				checkpointInterval = parseInt(value, 1) * 1024L * 1024L;
+				break;
+			case OPTION_PROGRESS:
+				progressInterval = parseInt(value, 1) * 1000L;
+				break;
+			case OPTION_STATS:
+				checkIfNullOrEmpty(value, -1);
+				statsFile = value;
+				break;
+			case OPTION_DIGEST_CACHE:
+				checkIfNullOrEmpty(value, -1);
+				digestCacheFile = value;
+				break;
+			case OPTION_COMPRESS:
+				compressionLevel = parseInt(value, 0);
+				if (compressionLevel > 9) {
+					printErrorMessageAndExit(-1);
+				}
+				break;
+			default:
+				printErrorMessageAndExit(-1);
+			}
+		}
+
+		if (compressionLevel >= 0 && checkpointInterval > 0) {
+			System.err.println(Messages.COMPRESS_CHECKPOINT_ERROR);
+			System.exit(-1);
+		}
+
+		return Arrays.copyOfRange(args, i, args.length);
+	}
+
+	/**
+	 * Loads key and, if present, initialization vector from the key file. If
+	 * key file cannot be read program exits.
+	 * 
+	 * @param keyFile
+	 *            the path of the key file
+	 * @see CryptoEngine#fromKeyFile(Path)
+	 */
+	private static void loadKeyFile(String keyFile) {
+		checkIfNullOrEmpty(keyFile, -1);
+
+		try {
+			CryptoEngine engine = CryptoEngine.fromKeyFile(Paths.get(keyFile));
+
+			presetKey = engine.getKeySpec();
+			if (engine.hasInitVector()) {
+				presetInitVector = engine.getInitVector();
+			}
+		} catch (IOException e) {
+			System.err.printf("IO exception: %s%n", e.getMessage());
+			System.exit(-3);
+		}
+	}
+
+	/**
+	 * Starts collecting statistics of the current job if progress or
+	 * statistics file were requested by command-line options and starts
+	 * printing progress to the standard error if it was requested.
+	 * 
+	 * @param src
+	 *            the path of the source file, used for the expected number of
+	 *            bytes
+	 * @return the statistics or {@code null} if they weren't requested
+	 */
+	private static Statistics startStatistics(String src) {
+		if (progressInterval == 0 && statsFile == null) {
+			return null;
+		}
+
+		Statistics statistics = new Statistics();
+
+		try {
+			statistics.setTotalBytes(Files.size(Paths.get(src)));
+		} catch (IOException e) {
+			// total stays unknown, processing itself will report the error
+		}
+
+		if (progressInterval > 0) {
+			progressReporter = new ProgressReporter(
+					statistics,
+					System.err,
+					progressInterval);
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * Finishes collecting statistics of the current job, stops progress and
+	 * stores statistics to the file given by command-line options. If job
+	 * didn't report its bytes, i.e. mode has no stage statistics, sizes of
+	 * source and destination files are used.
+	 * 
+	 * @param statistics
+	 *            the statistics or {@code null} if they weren't requested
+	 * @param src
+	 *            the path of the source file
+	 * @param dest
+	 *            the path of the destination file or {@code null} if job
+	 *            has no destination
+	 * @throws IOException
+	 *             if statistics cannot be stored
+	 */
+	private static void finishStatistics(Statistics statistics, String src,
+			String dest) throws IOException {
+		if (statistics == null) {
+			return;
+		}
+
+		statistics.finish();
+
+		if (statistics.getBytesRead() == 0) {
+			statistics.addRead(Files.size(Paths.get(src)));
+		}
+
+		if (statistics.getBytesWritten() == 0 && dest != null) {
+			statistics.addWritten(Files.size(Paths.get(dest)));
+		}
+
+		if (progressReporter != null) {
+			progressReporter.close();
+			progressReporter = null;
+		}
+
+		if (statsFile != null) {
+			statistics.store(Paths.get(statsFile), job);
+		}
+	}
+
+	/**
+	 * Loads the digest cache from the file given by command-line options.
+	 * 
+	 * @return the cache or {@code null} if digests aren't cached
+	 * @throws IOException
+	 *             if cache file exists but cannot be read
+	 * @see DigestCache
+	 */
+	private static DigestCache loadDigestCache() throws IOException {
+		if (digestCacheFile == null) {
+			return null;
+		}
+
+		return DigestCache.load(
+				Paths.get(digestCacheFile),
+				DigestCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Stores the digest cache and prints how many digests were taken from
+	 * it.
+	 * 
+	 * @param cache
+	 *            the cache
+	 * @throws IOException
+	 *             if cache cannot be stored
+	 */
+	private static void storeDigestCache(DigestCache cache)
+			throws IOException {
+		cache.store();
+		System.out.printf(
+				Messages.DIGEST_CACHE_MESSAGE + "%n",
+				cache.getHits(),
+				cache.getMisses());
+	}
+
+	/**
+	 * Returns engine using key and, if needed, initialization vector given by
+	 * command-line options or asked from user. Compression level given by
+	 * command-line options is set to the engine.
+	 * 
+	 * @param withInitVector
+	 *            {@code true} if engine needs initialization vector
+	 * @return the engine
+	 */
+	private static CryptoEngine createEngine(boolean withInitVector) {
+		byte[] key = askForKey().getEncoded();
+		CryptoEngine engine = new CryptoEngine(
+				key,
+				withInitVector ? askForInitVector() : null);
+
+		if (compressionLevel >= 0) {
+			engine.setCompressionLevel(compressionLevel);
+		}
+
+		return engine;
+	}
+
+	/**
+	 * Returns AES cipher in CBC mode initialized with key and initialization
+	 * vector given by command-line options or asked from user. If cipher
+	 * cannot be initialized program exits.
+	 * 
+	 * @param encrypt
+	 *            if set to {@code true} cipher is initialized for encryption
+	 *            and if set to {@code false} for decryption
+	 * @return the initialized cipher
+	 */
+	private static Cipher createCbcCipher(boolean encrypt) {
+		Cipher cipher = null;
+
+		try {
+			cipher = createEngine(true).createCbcCipher(encrypt);
+		} catch (GeneralSecurityException e) {
+			System.err.println("Security exception: " + e.getMessage());
+			System.exit(-9);
+		}
+
+		return cipher;
+	}
+
+	/**
+	 * Returns new SHA-256 message digest. If algorithm isn't available program
+	 * exits.
+	 * 
+	 * @return the SHA-256 message digest
+	 */
+	private static MessageDigest createSha256() {
+		MessageDigest sha256 = null;
+
+		try {
+			sha256 = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			System.err.printf("Security exception: %s%n", e.getMessage());
+			System.exit(-4);
+		}
+
+		return sha256;
+	}
+
+	/**
+	 * Asks user for password and returns it as AES key specification. If key
+	 * was given by command-line options user isn't asked. If given password
+	 * is not of right format program exits.
+	 * 
+	 * @return the AES key specification
+	 */
+	private static SecretKeySpec askForKey() {
+		if (presetKey != null) {
+			return presetKey;
+		}
+
+		byte[] password = promptHex(
+				Messages.PASSWORD_MESSAGE,
+				Messages.PASSWORD_FORMAT_ERROR);
+
+		return new SecretKeySpec(password, "AES");
+	}
+
+	/**
+	 * Asks user for initialization vector and returns it as array of bytes. If
+	 * vector was given by command-line options user isn't asked. If given
+	 * vector is not of right format program exits.
+	 * 
+	 * @return the initialization vector
+	 */
+	private static byte[] askForInitVector() {
+		if (presetInitVector != null) {
+			return presetInitVector.clone();
+		}
+
+		return promptHex(
+				Messages.INITIAL_VECTOR_MESSAGE,
+				Messages.INITIAL_VECTOR_FORMAT_ERROR);
+	}
+
+	/**
+	 * Prints message and reads 32 hex-digits from standard input. If user
+	 * input is not of right format error message is printed and program exits.
+	 * 
+	 * @param message
+	 *            message asking user for input
+	 * @param formatError
+	 *            message printed if input is not of right format
+	 * @return bytes represented by user input
+	 */
+	private static byte[] promptHex(String message, String formatError) {
+		System.out.println(message);
+
+		System.out.printf(">");
+		return parseHex(getScanner().nextLine(), formatError);
+	}
+
+	/**
+	 * Parses 32 hex-digits. If input is not of right format error message is
+	 * printed and program exits.
+	 * 
+	 * @param input
+	 *            the input
+	 * @param formatError
+	 *            message printed if input is not of right format
+	 * @return bytes represented by input
+	 */
+	private static byte[] parseHex(String input, String formatError) {
+		if (!input.matches("^[A-Fa-f0-9]{32}$")) {
+			System.err.println(formatError);
+			System.exit(-3);
+		}
+
+		return Hex.decode(input);
+	}
+
+	/**
+	 * Returns the scanner reading from standard input. Scanner is created on
+	 * first use and shared between all prompts so that no buffered input is
+	 * lost.
+	 * 
+	 * @return the scanner reading from standard input
+	 */
+	private static Scanner getScanner() {
+		if (scanner == null) {
+			scanner = new Scanner(System.in);
+		}
+
+		return scanner;
+	}
+
+	/**
+	 * Prints message informing user that encryption or decryption completed.
+	 * 
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param encrypt
+	 *            {@code true} if file was encrypted; {@code false} if it was
+	 *            decrypted
+	 */
+	private static void printSuccessMessage(String src, String dest,
+			boolean encrypt) {
+		if (encrypt) {
+			System.out.printf(
+					Messages.ENCRYPTION_SUCCESS_MESSAGE + "%n",
+					dest,
+					src);
+		} else {
+			System.out.printf(
+					Messages.DECRYPTION_SUCCESS_MESSAGE + "%n",
+					dest,
+					src);
+		}
+	}
+
+	/**
+	 * Checks if number of command-line arguments is as expected. If it isn't
+	 * message informing user about invalid input is printed and program exits.
+	 * 
+	 * @param args
+	 *            command-line arguments
+	 * @param count
+	 *            expected number of arguments
+	 */
+	private static void checkArgumentCount(String[] args, int count) {
+		if (args.length != count) {
+			printErrorMessageAndExit(-1);
+		}
+	}
+
+	/**
+	 * Parses the integer which must not be less than {@code min}. If string
+	 * doesn't represent such integer message informing user about invalid
+	 * input is printed and program exits.
+	 * 
+	 * @param str
+	 *            string to be parsed
+	 * @param min
+	 *            the smallest allowed value
+	 * @return the parsed integer
+	 */
+	private static int parseInt(String str, int min) {
+		int value = 0;
+
+		try {
+			value = Integer.parseInt(str);
+		} catch (NumberFormatException e) {
+			printErrorMessageAndExit(-1);
+		}
+
+		if (value < min) {
+			printErrorMessageAndExit(-1);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Parses the non-negative long integer. If string doesn't represent such
+	 * integer message informing user about invalid input is printed and
+	 * program exits.
+	 * 
+	 * @param str
+	 *            string to be parsed
+	 * @return the parsed integer
+	 */
+	private static long parseLong(String str) {
+		long value = 0;
+
+		try {
+			value = Long.parseLong(str);
+		} catch (NumberFormatException e) {
+			printErrorMessageAndExit(-1);
+		}
+
+		if (value < 0) {
+			printErrorMessageAndExit(-1);
+		}
+
+		return value;
+	}
+
+	/**
+	 * CHecks if string is null. If it's null {@link IllegalArgumentException}
+	 * is thrown and if it's empty program exits with specified exit status.
+	 * 
+	 * @param str
+	 *            string to be checked
+	 * @param status
+	 *            exit status
+	 */
+	private static void checkIfNullOrEmpty(String str, int status) {
+		if (str == null) {
+			throw new IllegalArgumentException("File path cannot be null!");
+		}
+
+		if (str.isEmpty()) {
+			System.err.println("File path cannot be empty string!");
+			System.exit(status);
+		}
+	}
+
+	/**
+	 * Prints message informing user about invalid input and exits the program
+	 * with specified exit status.
+	 * 
+	 * @param status
+	 *            exit status
+	 */
+	private static void printErrorMessageAndExit(int status) {
+		System.err.printf(Messages.INVALID_INPUT);
+
+		System.exit(status);
+	}
+}
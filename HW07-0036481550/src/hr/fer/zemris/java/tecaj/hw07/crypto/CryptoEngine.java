@@ -0,0 +1,701 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@code CryptoEngine} is a class that encrypts, decrypts and digests files,
+ * channels and streams using AES key and initialization vector given on
+ * construction. Unlike {@link Crypto} it never reads standard input or exits
+ * the program; all errors are reported with exceptions, so one engine can be
+ * reused for any number of jobs in the same JVM.
+ * <p>
+ * Key and initialization vector never change, and every thread gets its own
+ * digester, so jobs can run on several threads at once. Compression level and
+ * statistics are settings shared by all following jobs and should be set
+ * before jobs are started. Note that every job of an engine encrypts with the
+ * same initialization vector; engine for each file should be obtained by
+ * {@link #withInitVector(byte[])} when many files are encrypted with one key.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class CryptoEngine {
+
+	/**
+	 * Size of buffers used for streams.
+	 */
+	public static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Transformation used in CBC mode.
+	 */
+	private static final String CBC_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+	/**
+	 * Property of key file containing the key.
+	 */
+	private static final String KEY_PROPERTY = "key";
+
+	/**
+	 * Property of key file containing the initialization vector.
+	 */
+	private static final String IV_PROPERTY = "iv";
+
+	/**
+	 * Expected format of key and initialization vector.
+	 */
+	private static final String HEX_FORMAT = "^[A-Fa-f0-9]{32}$";
+
+	/**
+	 * The AES key.
+	 */
+	private final SecretKeySpec keySpec;
+
+	/**
+	 * The initialization vector; may be {@code null}.
+	 */
+	private final byte[] initVector;
+
+	/**
+	 * File digester of each thread.
+	 */
+	private final ThreadLocal<FileDigester> digesters = new ThreadLocal<>();
+
+	/**
+	 * Compression level used in {@link Mode#DEFLATE} mode.
+	 */
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	/**
+	 * Statistics updated by all jobs of this engine.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * {@code Mode} is the mode in which files are encrypted or decrypted.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	public enum Mode {
+
+		/**
+		 * AES in CBC mode with PKCS5 padding, see {@link ChannelCipher}.
+		 */
+		CBC,
+
+		/**
+		 * AES in CBC mode with reading, cipher work and writing on separate
+		 * threads, see {@link PipelinedCipher}.
+		 */
+		PIPELINED,
+
+		/**
+		 * AES in CTR mode processed in parallel, see
+		 * {@link ParallelCtrCipher}.
+		 */
+		CTR,
+
+		/**
+		 * Random-access container with authenticated chunks, see
+		 * {@link ChunkedContainer}. Initialization vector isn't used.
+		 */
+		CHUNKED,
+
+		/**
+		 * AES in GCM mode on chunks with their own nonce and tag, see
+		 * {@link GcmChunkedCipher}. Initialization vector isn't used.
+		 */
+		GCM,
+
+		/**
+		 * AES in CBC mode on data compressed before encryption, see
+		 * {@link DeflatingCipher}.
+		 */
+		DEFLATE;
+
+		/**
+		 * Checks if mode needs initialization vector.
+		 *
+		 * @return {@code true} if mode needs initialization vector
+		 */
+		public boolean needsInitVector() {
+			return this != CHUNKED && this != GCM;
+		}
+	}
+
+	/**
+	 * Constructs a new {@code CryptoEngine}.
+	 *
+	 * @param key
+	 *            the AES key (16 bytes)
+	 * @param initVector
+	 *            the initialization vector (16 bytes) or {@code null} if only
+	 *            modes which don't need it will be used
+	 * @throws IllegalArgumentException
+	 *             if key or initialization vector is not of right length
+	 */
+	public CryptoEngine(byte[] key, byte[] initVector) {
+		if (key == null || key.length != 16) {
+			throw new IllegalArgumentException("Key must be 16 bytes long!");
+		}
+
+		if (initVector != null && initVector.length != 16) {
+			throw new IllegalArgumentException(
+					"Initialization vector must be 16 bytes long!");
+		}
+
+		this.keySpec = new SecretKeySpec(key, "AES");
+		this.initVector = initVector == null ? null : initVector.clone();
+	}
+
+	/**
+	 * Creates a new {@code CryptoEngine} using key and initialization vector
+	 * stored in the key file. Key file is a properties file with hex-encoded
+	 * {@code key} and optional {@code iv} properties:
+	 *
+	 * <pre>
+	 * key = a52217e3ee213ef1ffdee3a192e2ac7e
+	 * iv = 000102030405060708090a0b0c0d0e0f
+	 * </pre>
+	 *
+	 * @param keyFile
+	 *            the path of the key file
+	 * @return the engine
+	 * @throws IOException
+	 *             if key file cannot be read or is not of right format
+	 */
+	public static CryptoEngine fromKeyFile(Path keyFile) throws IOException {
+		Properties properties = new Properties();
+
+		try (Reader reader = Files
+				.newBufferedReader(keyFile, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+
+		String key = properties.getProperty(KEY_PROPERTY, "").trim();
+		String iv = properties.getProperty(IV_PROPERTY, "").trim();
+
+		if (!key.matches(HEX_FORMAT)
+				|| !iv.isEmpty() && !iv.matches(HEX_FORMAT)) {
+			throw new IOException(keyFile
+					+ " must contain key and optional iv as 32 hex-digits!");
+		}
+
+		return new CryptoEngine(
+				Hex.decode(key),
+				iv.isEmpty() ? null : Hex.decode(iv));
+	}
+
+	/**
+	 * Returns an engine with the same key, compression level and statistics
+	 * as this one, but with the given initialization vector.
+	 *
+	 * @param initVector
+	 *            the initialization vector (16 bytes)
+	 * @return the engine
+	 * @throws IllegalArgumentException
+	 *             if initialization vector is not of right length
+	 */
+	public CryptoEngine withInitVector(byte[] initVector) {
+		if (initVector == null) {
+			throw new IllegalArgumentException(
+					"Initialization vector must be 16 bytes long!");
+		}
+
+		CryptoEngine engine = new CryptoEngine(
+				keySpec.getEncoded(),
+				initVector);
+		engine.compressionLevel = compressionLevel;
+		engine.statistics = statistics;
+
+		return engine;
+	}
+
+	/**
+	 * Encrypts file at {@code src} in CBC mode and places result at
+	 * {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void encrypt(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		process(Mode.CBC, true, src, dest);
+	}
+
+	/**
+	 * Decrypts file at {@code src} in CBC mode and places result at
+	 * {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs, e.g. padding is invalid
+	 */
+	public void decrypt(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		process(Mode.CBC, false, src, dest);
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} in given mode and places result
+	 * at {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param mode
+	 *            the mode
+	 * @param encrypt
+	 *            if set to {@code true} source file is encrypted and if set
+	 *            to {@code false} it is decrypted
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 * @throws IllegalStateException
+	 *             if mode needs initialization vector and it wasn't given
+	 */
+	public void process(Mode mode, boolean encrypt, Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		switch (mode) {
+		case CBC:
+			ChannelCipher channelCipher = new ChannelCipher(
+					createCbcCipher(encrypt));
+			channelCipher.setStatistics(statistics);
+			channelCipher.process(src, dest);
+			break;
+		case PIPELINED:
+			PipelinedCipher pipelined = new PipelinedCipher(
+					createCbcCipher(encrypt));
+			pipelined.setStatistics(statistics);
+			pipelined.process(src, dest);
+			break;
+		case CTR:
+			new ParallelCtrCipher(keySpec, getInitVector())
+					.process(src, dest, encrypt);
+			break;
+		case CHUNKED:
+			ChunkedContainer container = new ChunkedContainer(keySpec);
+			if (encrypt) {
+				container.encrypt(src, dest);
+			} else {
+				container.decrypt(src, dest);
+			}
+			break;
+		case GCM:
+			GcmChunkedCipher gcm = new GcmChunkedCipher(keySpec);
+			if (encrypt) {
+				gcm.encrypt(src, dest);
+			} else {
+				gcm.decrypt(src, dest);
+			}
+			break;
+		case DEFLATE:
+			DeflatingCipher deflating = new DeflatingCipher(
+					createCbcCipher(encrypt),
+					compressionLevel);
+			deflating.setStatistics(statistics);
+			deflating.process(src, dest, encrypt);
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported mode " + mode);
+		}
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} in CBC mode and places result
+	 * at {@code dest}, storing a checkpoint every {@code checkpointInterval}
+	 * written bytes. If the same job was interrupted before, it is resumed
+	 * from its last checkpoint.
+	 *
+	 * @param encrypt
+	 *            if set to {@code true} source file is encrypted and if set
+	 *            to {@code false} it is decrypted
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param checkpointInterval
+	 *            number of bytes written between two checkpoints
+	 * @return offset from which job was resumed; 0 if it started from the
+	 *         beginning
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 * @see CheckpointedCipher
+	 */
+	public long processResumable(boolean encrypt, Path src, Path dest,
+			long checkpointInterval)
+			throws IOException, GeneralSecurityException {
+		return new CheckpointedCipher(
+				keySpec,
+				getInitVector(),
+				checkpointInterval).process(src, dest, encrypt);
+	}
+
+	/**
+	 * Encrypts or decrypts file in place in CBC mode, without a separate
+	 * destination file, storing a journal before every step. If the same job
+	 * was interrupted before, its last step is undone and job is resumed from
+	 * it.
+	 *
+	 * @param encrypt
+	 *            if set to {@code true} file is encrypted and if set to
+	 *            {@code false} it is decrypted
+	 * @param file
+	 *            the path of the file
+	 * @return offset from which job was resumed; 0 if it started from the
+	 *         beginning
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 * @see InPlaceCipher
+	 */
+	public long processInPlace(boolean encrypt, Path file)
+			throws IOException, GeneralSecurityException {
+		InPlaceCipher cipher = new InPlaceCipher(
+				keySpec,
+				getInitVector(),
+				InPlaceCipher.DEFAULT_LOOKAHEAD_SIZE);
+		cipher.setStatistics(statistics);
+		return cipher.process(file, encrypt);
+	}
+
+	/**
+	 * Encrypts all bytes of the source channel starting from its current
+	 * position in CBC mode and writes result to the destination channel.
+	 * Channels aren't closed.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void encrypt(FileChannel in, WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		ChannelCipher channelCipher = new ChannelCipher(createCbcCipher(true));
+		channelCipher.setStatistics(statistics);
+		channelCipher.process(in, out);
+	}
+
+	/**
+	 * Decrypts all bytes of the source channel starting from its current
+	 * position in CBC mode and writes result to the destination channel.
+	 * Channels aren't closed.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs, e.g. padding is invalid
+	 */
+	public void decrypt(FileChannel in, WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		ChannelCipher channelCipher = new ChannelCipher(createCbcCipher(false));
+		channelCipher.setStatistics(statistics);
+		channelCipher.process(in, out);
+	}
+
+	/**
+	 * Encrypts all bytes of the input stream in CBC mode and writes result to
+	 * the output stream. Streams aren't closed.
+	 *
+	 * @param in
+	 *            the input stream
+	 * @param out
+	 *            the output stream
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void encrypt(InputStream in, OutputStream out)
+			throws IOException, GeneralSecurityException {
+		process(createCbcCipher(true), in, out);
+	}
+
+	/**
+	 * Decrypts all bytes of the input stream in CBC mode and writes result to
+	 * the output stream. Streams aren't closed.
+	 *
+	 * @param in
+	 *            the input stream
+	 * @param out
+	 *            the output stream
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs, e.g. padding is invalid
+	 */
+	public void decrypt(InputStream in, OutputStream out)
+			throws IOException, GeneralSecurityException {
+		process(createCbcCipher(false), in, out);
+	}
+
+	/**
+	 * Decrypts file at {@code src} in CBC mode and returns SHA-256 digest of
+	 * the decrypted content. Decrypted content is passed straight from the
+	 * cipher to the digest and is never written to disk.
+	 *
+	 * @param src
+	 *            the path of encrypted file
+	 * @return the digest of the decrypted content
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs, e.g. padding is invalid
+	 */
+	public byte[] digestDecrypted(Path src)
+			throws IOException, GeneralSecurityException {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		ChannelCipher channelCipher = new ChannelCipher(createCbcCipher(false));
+		channelCipher.setOutputDigest(digest);
+		channelCipher.setStatistics(statistics);
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ)) {
+			channelCipher.process(in, ChannelUtils.nullChannel());
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Returns SHA-256 digest of the file.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @return the digest
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	public byte[] digest(Path file)
+			throws IOException, NoSuchAlgorithmException {
+		return getDigester().digest(file);
+	}
+
+	/**
+	 * Returns SHA-256 digest of all bytes read from the channel. Channel isn't
+	 * closed.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @return the digest
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	public byte[] digest(ReadableByteChannel channel)
+			throws IOException, NoSuchAlgorithmException {
+		return getDigester().digest(channel);
+	}
+
+	/**
+	 * Returns SHA-256 digest of all bytes read from the stream. Stream isn't
+	 * closed.
+	 *
+	 * @param in
+	 *            the stream
+	 * @return the digest
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	public byte[] digest(InputStream in)
+			throws IOException, NoSuchAlgorithmException {
+		return getDigester().digest(in);
+	}
+
+	/**
+	 * Returns a new AES cipher in CBC mode initialized with key and
+	 * initialization vector of this engine.
+	 *
+	 * @param encrypt
+	 *            if set to {@code true} cipher is initialized for encryption
+	 *            and if set to {@code false} for decryption
+	 * @return the initialized cipher
+	 * @throws GeneralSecurityException
+	 *             if cipher cannot be created or initialized
+	 * @throws IllegalStateException
+	 *             if initialization vector wasn't given
+	 */
+	public Cipher createCbcCipher(boolean encrypt)
+			throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance(CBC_TRANSFORMATION);
+		cipher.init(
+				encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE,
+				keySpec,
+				new IvParameterSpec(getInitVector()));
+		return cipher;
+	}
+
+	/**
+	 * Sets the compression level used in {@link Mode#DEFLATE} mode.
+	 *
+	 * @param compressionLevel
+	 *            compression level from 0 to 9 or
+	 *            {@link Deflater#DEFAULT_COMPRESSION}
+	 * @throws IllegalArgumentException
+	 *             if compression level is invalid
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+				&& (compressionLevel < Deflater.NO_COMPRESSION
+						|| compressionLevel > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalArgumentException(
+					"Compression level must be between 0 and 9!");
+		}
+
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * Sets the statistics updated by all following jobs of this engine. Bytes
+	 * and stage times are collected in {@link Mode#CBC},
+	 * {@link Mode#PIPELINED} and {@link Mode#DEFLATE} modes and by digest
+	 * methods.
+	 *
+	 * @param statistics
+	 *            the statistics or {@code null} if statistics shouldn't be
+	 *            collected
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Returns the AES key.
+	 *
+	 * @return the AES key
+	 */
+	public SecretKeySpec getKeySpec() {
+		return keySpec;
+	}
+
+	/**
+	 * Checks if initialization vector was given.
+	 *
+	 * @return {@code true} if initialization vector was given
+	 */
+	public boolean hasInitVector() {
+		return initVector != null;
+	}
+
+	/**
+	 * Returns the initialization vector.
+	 *
+	 * @return the initialization vector
+	 * @throws IllegalStateException
+	 *             if initialization vector wasn't given
+	 */
+	public byte[] getInitVector() {
+		if (initVector == null) {
+			throw new IllegalStateException(
+					"Initialization vector wasn't given!");
+		}
+
+		return initVector.clone();
+	}
+
+	/**
+	 * Returns the file digester of the current thread.
+	 *
+	 * @return the file digester
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	private FileDigester getDigester() throws NoSuchAlgorithmException {
+		FileDigester digester = digesters.get();
+
+		if (digester == null) {
+			digester = new FileDigester("SHA-256");
+			digesters.set(digester);
+		}
+
+		digester.setStatistics(statistics);
+
+		return digester;
+	}
+
+	/**
+	 * Passes all bytes of the input stream through the cipher and writes
+	 * result to the output stream. Input and output arrays are reused for the
+	 * whole stream.
+	 *
+	 * @param cipher
+	 *            initialized cipher
+	 * @param in
+	 *            the input stream
+	 * @param out
+	 *            the output stream
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	private static void process(Cipher cipher, InputStream in,
+			OutputStream out) throws IOException, GeneralSecurityException {
+		byte[] input = new byte[STREAM_BUFFER_SIZE];
+		byte[] output = new byte[cipher.getOutputSize(STREAM_BUFFER_SIZE)];
+
+		for (int r; (r = in.read(input)) >= 0;) {
+			if (cipher.getOutputSize(r) > output.length) {
+				output = new byte[cipher.getOutputSize(r)];
+			}
+
+			out.write(output, 0, cipher.update(input, 0, r, output));
+		}
+
+		if (cipher.getOutputSize(0) > output.length) {
+			output = new byte[cipher.getOutputSize(0)];
+		}
+
+		out.write(output, 0, cipher.doFinal(output, 0));
+		out.flush();
+	}
+}
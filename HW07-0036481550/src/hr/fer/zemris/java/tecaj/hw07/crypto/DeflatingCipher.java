@@ -0,0 +1,366 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.crypto.Cipher;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.Statistics.Stage;
+
+/**
+ * {@code DeflatingCipher} is a class that compresses files before encryption
+ * and decompresses them after decryption using already initialized
+ * {@link Cipher}.
+ * <p>
+ * Compression is a stage of the same streaming loop as encryption, so no
+ * intermediate file is written: every buffer read from the source is passed
+ * to the {@link Deflater}, compressed bytes go straight to the cipher and
+ * only the encrypted compressed bytes are written. Decryption runs the same
+ * loop backwards through the {@link Inflater}. All buffers are allocated
+ * once and reused for the whole file.
+ * <p>
+ * Compressed data is stored in zlib format, so decrypted content of the file
+ * can also be decompressed by any zlib tool.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class DeflatingCipher {
+
+	/**
+	 * Default size of a buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * Initialized cipher.
+	 */
+	private final Cipher cipher;
+
+	/**
+	 * Compression level used for encryption.
+	 */
+	private final int level;
+
+	/**
+	 * Buffer with bytes read from the source.
+	 */
+	private final byte[] input;
+
+	/**
+	 * Buffer with compressed bytes, i.e. bytes between the compression and
+	 * the cipher stage.
+	 */
+	private final byte[] compressed;
+
+	/**
+	 * Buffer with bytes written to the destination.
+	 */
+	private final byte[] output;
+
+	/**
+	 * Statistics updated with bytes and time of every stage.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * Constructs a new {@code DeflatingCipher}.
+	 *
+	 * @param cipher
+	 *            initialized cipher
+	 * @param level
+	 *            compression level from 0 to 9 or
+	 *            {@link Deflater#DEFAULT_COMPRESSION}; ignored for decryption
+	 * @throws IllegalArgumentException
+	 *             if cipher is {@code null} or level is invalid
+	 */
+	public DeflatingCipher(Cipher cipher, int level) {
+		if (cipher == null) {
+			throw new IllegalArgumentException("Cipher cannot be null!");
+		}
+
+		if (level != Deflater.DEFAULT_COMPRESSION
+				&& (level < Deflater.NO_COMPRESSION
+						|| level > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalArgumentException(
+					"Compression level must be between 0 and 9!");
+		}
+
+		this.cipher = cipher;
+		this.level = level;
+		this.input = new byte[DEFAULT_BUFFER_SIZE];
+		this.compressed = new byte[cipher.getOutputSize(DEFAULT_BUFFER_SIZE)];
+		this.output = new byte[cipher.getOutputSize(compressed.length)];
+	}
+
+	/**
+	 * Sets the statistics updated with bytes and time of every stage.
+	 *
+	 * @param statistics
+	 *            the statistics or {@code null} if statistics shouldn't be
+	 *            collected
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Compresses and encrypts or decrypts and decompresses file at
+	 * {@code src} and places result at {@code dest}. If destination file
+	 * exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param encrypt
+	 *            if set to {@code true} source file is compressed and
+	 *            encrypted and if set to {@code false} it is decrypted and
+	 *            decompressed; must match the mode of the cipher
+	 * @throws IOException
+	 *             if an I/O error occurs or decrypted data isn't valid
+	 *             compressed data
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	public void process(Path src, Path dest, boolean encrypt)
+			throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (encrypt) {
+				encrypt(in, out);
+			} else {
+				decrypt(in, out);
+			}
+		}
+	}
+
+	/**
+	 * Compresses and encrypts all bytes of the source channel.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	private void encrypt(FileChannel in, WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		Deflater deflater = new Deflater(level);
+
+		try {
+			for (int r; (r = read(in)) >= 0;) {
+				deflater.setInput(input, 0, r);
+
+				while (!deflater.needsInput()) {
+					update(deflate(deflater), out);
+				}
+			}
+
+			deflater.finish();
+			while (!deflater.finished()) {
+				update(deflate(deflater), out);
+			}
+
+			long time = System.nanoTime();
+			int n = cipher.doFinal(output, 0);
+			statistics.record(Stage.CIPHER, time);
+			write(output, n, out);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decrypts and decompresses all bytes of the source channel.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs or decrypted data isn't valid
+	 *             compressed data
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	private void decrypt(FileChannel in, WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		Inflater inflater = new Inflater();
+
+		try {
+			for (int r; (r = read(in)) >= 0;) {
+				long time = System.nanoTime();
+				int n = cipher.update(input, 0, r, compressed, 0);
+				statistics.record(Stage.CIPHER, time);
+				inflate(inflater, n, out);
+			}
+
+			long time = System.nanoTime();
+			int n = cipher.doFinal(compressed, 0);
+			statistics.record(Stage.CIPHER, time);
+			inflate(inflater, n, out);
+
+			if (!inflater.finished()) {
+				throw new IOException("Compressed data is truncated!");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Compressed data is corrupted!", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Passes compressed bytes to the cipher and writes the result.
+	 *
+	 * @param length
+	 *            number of compressed bytes
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	private void update(int length, WritableByteChannel out)
+			throws IOException, GeneralSecurityException {
+		if (length > 0) {
+			long time = System.nanoTime();
+			int n = cipher.update(compressed, 0, length, output, 0);
+			statistics.record(Stage.CIPHER, time);
+			write(output, n, out);
+		}
+	}
+
+	/**
+	 * Compresses bytes given to the deflater into the buffer of compressed
+	 * bytes.
+	 *
+	 * @param deflater
+	 *            the deflater
+	 * @return number of compressed bytes
+	 */
+	private int deflate(Deflater deflater) {
+		long time = System.nanoTime();
+		int n = deflater.deflate(compressed);
+		statistics.record(Stage.COMPRESS, time);
+		return n;
+	}
+
+	/**
+	 * Passes decrypted bytes to the inflater and writes all bytes it
+	 * produces.
+	 *
+	 * @param inflater
+	 *            the inflater
+	 * @param length
+	 *            number of decrypted bytes
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs or there are bytes after the end of
+	 *             compressed data
+	 * @throws DataFormatException
+	 *             if decrypted data isn't valid compressed data
+	 */
+	private void inflate(Inflater inflater, int length,
+			WritableByteChannel out) throws IOException, DataFormatException {
+		if (length == 0) {
+			return;
+		}
+
+		if (inflater.finished()) {
+			throw new IOException("Unexpected data after compressed data!");
+		}
+
+		inflater.setInput(compressed, 0, length);
+
+		while (true) {
+			long time = System.nanoTime();
+			int n = inflater.inflate(output);
+			statistics.record(Stage.COMPRESS, time);
+			write(output, n, out);
+
+			if (inflater.finished()) {
+				if (inflater.getRemaining() > 0) {
+					throw new IOException(
+							"Unexpected data after compressed data!");
+				}
+				return;
+			}
+
+			if (n == 0 && inflater.needsInput()) {
+				return;
+			}
+
+			if (inflater.needsDictionary()) {
+				throw new DataFormatException("Preset dictionary required!");
+			}
+		}
+	}
+
+	/**
+	 * Fills the input buffer from the source channel.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @return number of bytes read; -1 if end of the channel was reached
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private int read(FileChannel in) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(input);
+		long time = System.nanoTime();
+
+		while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+			// fill the whole buffer, fewer calls to the deflater and cipher
+		}
+
+		statistics.record(Stage.READ, time);
+		statistics.addRead(buffer.position());
+		return buffer.position() == 0 ? -1 : buffer.position();
+	}
+
+	/**
+	 * Writes the first {@code length} bytes of the array to the destination
+	 * channel.
+	 *
+	 * @param array
+	 *            the array
+	 * @param length
+	 *            number of bytes to write
+	 * @param out
+	 *            the destination channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void write(byte[] array, int length, WritableByteChannel out)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(array, 0, length);
+		long time = System.nanoTime();
+
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+
+		statistics.record(Stage.WRITE, time);
+		statistics.addWritten(length);
+	}
+}
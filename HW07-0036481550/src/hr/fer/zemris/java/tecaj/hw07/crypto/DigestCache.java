@@ -0,0 +1,367 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code DigestCache} is a persistent cache of file digests, so digest of an
+ * unchanged file doesn't have to be calculated again.
+ * <p>
+ * Digests are keyed by algorithm and canonical path of the file, and every
+ * digest remembers size, modification time and file key (e.g. device and
+ * inode) the file had when it was hashed, and on POSIX file systems also its
+ * change time, which can't be set back like modification time. Digest is
+ * returned from the cache only if all of them are still the same; any change
+ * forces a rehash. A file modified within {@value #RACY_INTERVAL_MILLIS} ms
+ * before it was hashed is not cached, because it could be modified again
+ * without changing its modification time on file systems with coarse
+ * timestamps.
+ * <p>
+ * Cache holds at most {@code capacity} digests; when it is full the least
+ * recently used digest is evicted. It is stored as a text file with one
+ * digest per line, from the least to the most recently used, so the order
+ * survives loading, and it is written to a temporary file first and then
+ * atomically moved, so a crash never leaves a half-written cache. Lines
+ * which cannot be parsed are ignored.
+ * <p>
+ * Objects of this class are thread-safe, but digests are calculated outside
+ * the lock, so different files can be hashed concurrently.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class DigestCache {
+
+	/**
+	 * Default maximum number of cached digests.
+	 */
+	public static final int DEFAULT_CAPACITY = 10_000;
+
+	/**
+	 * Files modified less than this many milliseconds before hashing are not
+	 * cached.
+	 */
+	public static final long RACY_INTERVAL_MILLIS = 2000;
+
+	/**
+	 * Separator of fields in a line of the cache file.
+	 */
+	private static final String SEPARATOR = "\t";
+
+	/**
+	 * The path of the cache file.
+	 */
+	private final Path file;
+
+	/**
+	 * Cached entries in access order, keyed by algorithm and canonical path.
+	 */
+	private final Map<String, CachedDigest> entries;
+
+	/**
+	 * Number of lookups answered from the cache.
+	 */
+	private long hits;
+
+	/**
+	 * Number of lookups which needed hashing.
+	 */
+	private long misses;
+
+	/**
+	 * Constructs a new empty {@code DigestCache}.
+	 *
+	 * @param file
+	 *            the path of the cache file
+	 * @param capacity
+	 *            maximum number of cached digests
+	 * @throws IllegalArgumentException
+	 *             if path is {@code null} or capacity isn't positive
+	 */
+	public DigestCache(Path file, int capacity) {
+		if (file == null) {
+			throw new IllegalArgumentException("Path cannot be null!");
+		}
+
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+					"Capacity must be a positive number!");
+		}
+
+		this.file = file;
+		this.entries = new LinkedHashMap<String, CachedDigest>(
+				16,
+				0.75f,
+				true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, CachedDigest> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Loads the cache from the file. If file doesn't exist the cache is
+	 * empty.
+	 *
+	 * @param file
+	 *            the path of the cache file
+	 * @param capacity
+	 *            maximum number of cached digests
+	 * @return the cache
+	 * @throws IOException
+	 *             if file exists but cannot be read
+	 */
+	public static DigestCache load(Path file, int capacity)
+			throws IOException {
+		DigestCache cache = new DigestCache(file, capacity);
+
+		if (!Files.exists(file)) {
+			return cache;
+		}
+
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			String[] fields = line.split(SEPARATOR, 6);
+			if (fields.length != 6) {
+				continue;
+			}
+
+			try {
+				CachedDigest entry = new CachedDigest(
+						Long.parseLong(fields[1]),
+						Long.parseLong(fields[2]),
+						fields[3],
+						Hex.decode(fields[0]));
+				cache.entries.put(key(fields[4], fields[5]), entry);
+			} catch (IllegalArgumentException e) {
+				// malformed line, digest will be calculated again
+			}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Stores the cache to its file.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void store() throws IOException {
+		Path temp = Paths.get(file + ".tmp");
+
+		try (BufferedWriter writer = Files
+				.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, CachedDigest> e : entries.entrySet()) {
+				CachedDigest entry = e.getValue();
+				writer.write(Hex.encode(entry.digest) + SEPARATOR + entry.size
+						+ SEPARATOR + entry.modified + SEPARATOR
+						+ entry.fileKey + SEPARATOR + e.getKey());
+				writer.newLine();
+			}
+		}
+
+		Files.move(
+				temp,
+				file,
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the digest of the file. If the file hasn't changed since its
+	 * digest was cached, the cached digest is returned; otherwise the digest
+	 * is calculated by the digester and cached.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param digester
+	 *            the digester used if digest isn't cached
+	 * @return the digest of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public byte[] digest(Path path, FileDigester digester)
+			throws IOException {
+		String key = key(
+				digester.getAlgorithm(),
+				path.toRealPath().toString());
+		CachedDigest before = CachedDigest.of(path, null);
+
+		synchronized (this) {
+			CachedDigest cached = entries.get(key);
+			if (cached != null && cached.matches(before)) {
+				hits++;
+				return cached.digest.clone();
+			}
+			misses++;
+		}
+
+		long start = System.currentTimeMillis();
+		byte[] digest = digester.digest(path);
+		CachedDigest after = CachedDigest.of(path, digest);
+
+		// file changed while it was hashed or could change unnoticed
+		if (after.matches(before) && start - TimeUnit.NANOSECONDS
+				.toMillis(after.modified) >= RACY_INTERVAL_MILLIS) {
+			synchronized (this) {
+				entries.put(key, after);
+			}
+		}
+
+		return digest;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups which needed hashing.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of cached digests.
+	 *
+	 * @return the number of cached digests
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the key of a digest.
+	 *
+	 * @param algorithm
+	 *            the algorithm
+	 * @param path
+	 *            canonical path of the file
+	 * @return the key
+	 */
+	private static String key(String algorithm, String path) {
+		return algorithm + SEPARATOR + path;
+	}
+
+	/**
+	 * {@code CachedDigest} is a cached digest together with the state of the
+	 * file when it was hashed.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class CachedDigest {
+
+		/**
+		 * Size of the file.
+		 */
+		private final long size;
+
+		/**
+		 * Modification time of the file in nanoseconds.
+		 */
+		private final long modified;
+
+		/**
+		 * File key of the file or {@code -} if file system has none, followed
+		 * by change time of the file where file system supports it.
+		 */
+		private final String fileKey;
+
+		/**
+		 * The digest.
+		 */
+		private final byte[] digest;
+
+		/**
+		 * Constructs a new {@code CachedDigest}.
+		 *
+		 * @param size
+		 *            size of the file
+		 * @param modified
+		 *            modification time of the file in nanoseconds
+		 * @param fileKey
+		 *            file key of the file
+		 * @param digest
+		 *            the digest
+		 */
+		public CachedDigest(long size, long modified, String fileKey,
+				byte[] digest) {
+			this.size = size;
+			this.modified = modified;
+			this.fileKey = fileKey;
+			this.digest = digest;
+		}
+
+		/**
+		 * Returns an entry with the current state of the file.
+		 *
+		 * @param path
+		 *            the path of the file
+		 * @param digest
+		 *            the digest
+		 * @return the entry
+		 * @throws IOException
+		 *             if attributes of the file cannot be read
+		 */
+		public static CachedDigest of(Path path, byte[] digest)
+				throws IOException {
+			BasicFileAttributes attributes = Files
+					.readAttributes(path, BasicFileAttributes.class);
+			Object fileKey = attributes.fileKey();
+			String key = fileKey == null ? "-"
+					: fileKey.toString().replace(SEPARATOR, " ");
+
+			// change time can't be set by touch, unlike modification time
+			try {
+				Object changed = Files.getAttribute(path, "unix:ctime");
+				key += "@" + ((FileTime) changed).to(TimeUnit.NANOSECONDS);
+			} catch (UnsupportedOperationException
+					| IllegalArgumentException e) {
+				// not a POSIX file system
+			}
+
+			return new CachedDigest(
+					attributes.size(),
+					attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+					key,
+					digest);
+		}
+
+		/**
+		 * Checks if file had the same state in both entries.
+		 *
+		 * @param other
+		 *            the other entry
+		 * @return {@code true} if size, modification time and file key are
+		 *         the same
+		 */
+		public boolean matches(CachedDigest other) {
+			return size == other.size && modified == other.modified
+					&& fileKey.equals(other.fileKey);
+		}
+	}
+}
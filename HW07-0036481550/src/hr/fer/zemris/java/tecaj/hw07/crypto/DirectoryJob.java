@@ -0,0 +1,342 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.CryptoEngine.Mode;
+
+/**
+ * {@code DirectoryJob} is a class that encrypts or decrypts all files of a
+ * directory tree using {@link CryptoEngine}. Structure of the source tree is
+ * mirrored under the destination directory and every file keeps its relative
+ * path and name.
+ * <p>
+ * Files are processed concurrently by a fixed number of worker threads. They
+ * are scheduled from the largest to the smallest, so large files, which take
+ * the longest, start first and small files fill the gaps at the end instead
+ * of leaving one large file running alone on an otherwise idle machine.
+ * <p>
+ * In modes which need an initialization vector every file gets its own, the
+ * first 16 bytes of SHA-256 of a random salt and the relative path of the
+ * file, so identical files or identical beginnings of files don't give
+ * identical ciphertext. The salt is generated for every encryption and
+ * stored in file {@value #SALT_FILE} at the root of the destination tree,
+ * from which decryption reads it. Initialization vector of the engine isn't
+ * used in that case.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class DirectoryJob {
+
+	/**
+	 * Name of the file at the root of encrypted tree which holds the salt.
+	 */
+	public static final String SALT_FILE = ".directory-salt";
+
+	/**
+	 * Length of the salt in bytes.
+	 */
+	private static final int SALT_LENGTH = 16;
+
+	/**
+	 * The engine processing files.
+	 */
+	private final CryptoEngine engine;
+
+	/**
+	 * Mode in which files are processed.
+	 */
+	private final Mode mode;
+
+	/**
+	 * Number of worker threads.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Constructs a new {@code DirectoryJob}.
+	 *
+	 * @param engine
+	 *            the engine processing files
+	 * @param mode
+	 *            mode in which files are processed
+	 * @param parallelism
+	 *            number of worker threads
+	 * @throws IllegalArgumentException
+	 *             if engine or mode is {@code null} or parallelism isn't
+	 *             positive
+	 */
+	public DirectoryJob(CryptoEngine engine, Mode mode, int parallelism) {
+		if (engine == null || mode == null) {
+			throw new IllegalArgumentException(
+					"Engine and mode cannot be null!");
+		}
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException(
+					"Parallelism must be a positive number!");
+		}
+
+		this.engine = engine;
+		this.mode = mode;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Encrypts or decrypts all files of the source tree into the destination
+	 * tree and prints result of every file and a summary to the given stream.
+	 * Existing destination files are overwritten. A file that fails doesn't
+	 * stop the others.
+	 *
+	 * @param src
+	 *            the source directory
+	 * @param dest
+	 *            the destination directory
+	 * @param encrypt
+	 *            if set to {@code true} files are encrypted and if set to
+	 *            {@code false} they are decrypted
+	 * @param out
+	 *            the stream to which results are printed
+	 * @return the number of files that failed
+	 * @throws IOException
+	 *             if source tree cannot be walked, destination tree cannot
+	 *             be created or salt cannot be read or stored
+	 */
+	public int run(Path src, Path dest, boolean encrypt, PrintStream out)
+			throws IOException {
+		Path srcDir = src.toAbsolutePath().normalize();
+		Path destDir = dest.toAbsolutePath().normalize();
+
+		if (!Files.isDirectory(srcDir)) {
+			throw new IOException(src + " is not a directory!");
+		}
+
+		if (destDir.startsWith(srcDir)) {
+			throw new IOException(
+					"Destination cannot be inside the source directory!");
+		}
+
+		Path saltFile = srcDir.resolve(SALT_FILE);
+		if (encrypt && Files.exists(saltFile)) {
+			throw new IOException(
+					"Source directory cannot contain " + SALT_FILE + "!");
+		}
+
+		byte[] salt = mode.needsInitVector()
+				? salt(saltFile, destDir.resolve(SALT_FILE), encrypt)
+				: null;
+		List<Entry> entries = collect(srcDir, destDir, saltFile);
+		entries.sort(Comparator.comparingLong((Entry e) -> e.size).reversed());
+
+		ExecutorService pool = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(parallelism, entries.size())));
+		AtomicInteger failed = new AtomicInteger();
+		AtomicLong bytes = new AtomicLong();
+
+		for (Entry entry : entries) {
+			pool.execute(() -> {
+				Path relative = srcDir.relativize(entry.path);
+
+				try {
+					CryptoEngine fileEngine = salt == null ? engine
+							: engine.withInitVector(initVector(salt, relative));
+					fileEngine.process(
+							mode,
+							encrypt,
+							entry.path,
+							destDir.resolve(relative));
+					bytes.addAndGet(entry.size);
+					out.printf(Messages.DIRECTORY_FILE_MESSAGE + "%n", relative);
+				} catch (IOException | GeneralSecurityException
+						| RuntimeException e) {
+					failed.incrementAndGet();
+					out.printf(
+							Messages.DIRECTORY_FILE_FAILED_MESSAGE + "%n",
+							relative,
+							e.getMessage());
+				}
+			});
+		}
+
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				// keep waiting, large files can take a long time
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IOException("Processing was interrupted!", e);
+		}
+
+		out.printf(
+				Messages.DIRECTORY_SUMMARY_MESSAGE + "%n",
+				src,
+				entries.size() - failed.get(),
+				failed.get(),
+				bytes.get());
+
+		return failed.get();
+	}
+
+	/**
+	 * Returns the salt of the job. When encrypting a new random salt is
+	 * stored to the destination tree; when decrypting it is read from the
+	 * source tree.
+	 *
+	 * @param srcSaltFile
+	 *            the path of the salt file in the source tree
+	 * @param destSaltFile
+	 *            the path of the salt file in the destination tree
+	 * @param encrypt
+	 *            {@code true} if files are encrypted
+	 * @return the salt
+	 * @throws IOException
+	 *             if salt cannot be read or stored
+	 */
+	private static byte[] salt(Path srcSaltFile, Path destSaltFile,
+			boolean encrypt) throws IOException {
+		if (encrypt) {
+			byte[] salt = new byte[SALT_LENGTH];
+			new SecureRandom().nextBytes(salt);
+			Files.createDirectories(destSaltFile.getParent());
+			Files.write(
+					destSaltFile,
+					Hex.encode(salt).getBytes(StandardCharsets.US_ASCII));
+			return salt;
+		}
+
+		if (!Files.exists(srcSaltFile)) {
+			throw new IOException(
+					"Encrypted directory has no " + SALT_FILE + "!");
+		}
+
+		String hex = new String(
+				Files.readAllBytes(srcSaltFile),
+				StandardCharsets.US_ASCII).trim();
+		if (!hex.matches("^[A-Fa-f0-9]{" + 2 * SALT_LENGTH + "}$")) {
+			throw new IOException(SALT_FILE + " is not of right format!");
+		}
+
+		return Hex.decode(hex);
+	}
+
+	/**
+	 * Returns the initialization vector of a file: the first 16 bytes of
+	 * SHA-256 of the salt and the relative path of the file, with {@code /}
+	 * as separator on every platform.
+	 *
+	 * @param salt
+	 *            the salt of the job
+	 * @param relative
+	 *            path of the file relative to the root of the tree
+	 * @return the initialization vector
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	private static byte[] initVector(byte[] salt, Path relative)
+			throws NoSuchAlgorithmException {
+		MessageDigest sha = MessageDigest.getInstance("SHA-256");
+		sha.update(salt);
+		sha.update(relative.toString()
+				.replace(File.separatorChar, '/')
+				.getBytes(StandardCharsets.UTF_8));
+
+		return Arrays.copyOf(sha.digest(), 16);
+	}
+
+	/**
+	 * Walks the source tree, creates the mirrored directories under the
+	 * destination directory and returns all regular files of the source tree
+	 * except the salt file.
+	 *
+	 * @param srcDir
+	 *            the source directory
+	 * @param destDir
+	 *            the destination directory
+	 * @param saltFile
+	 *            the path of the salt file in the source tree
+	 * @return all regular files of the source tree
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static List<Entry> collect(Path srcDir, Path destDir,
+			Path saltFile) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+
+		Files.walkFileTree(srcDir, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir,
+					BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(destDir.resolve(srcDir.relativize(dir)));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && !file.equals(saltFile)) {
+					entries.add(new Entry(file, attrs.size()));
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return entries;
+	}
+
+	/**
+	 * {@code Entry} is a regular file of the source tree.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class Entry {
+
+		/**
+		 * The path of the file.
+		 */
+		private final Path path;
+
+		/**
+		 * Size of the file.
+		 */
+		private final long size;
+
+		/**
+		 * Constructs a new {@code Entry}.
+		 *
+		 * @param path
+		 *            the path of the file
+		 * @param size
+		 *            size of the file
+		 */
+		public Entry(Path path, long size) {
+			this.path = path;
+			this.size = size;
+		}
+	}
+}
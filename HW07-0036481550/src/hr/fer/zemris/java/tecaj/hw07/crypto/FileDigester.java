@@ -0,0 +1,186 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.Statistics.Stage;
+
+/**
+ * {@code FileDigester} is a class that calculates digest of files, channels
+ * or streams using {@link MessageDigest}.
+ * <p>
+ * Bytes are read from the channel into one array which is reused for every
+ * block and passed to the digest directly, so hashing loop doesn't allocate
+ * or copy any memory. Size of the block is configurable; larger blocks mean
+ * fewer system calls.
+ * <p>
+ * Objects of this class are not thread-safe. Every thread should use its own
+ * instance.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class FileDigester {
+
+	/**
+	 * Default block size.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * The message digest.
+	 */
+	private final MessageDigest digest;
+
+	/**
+	 * Array into which blocks are read.
+	 */
+	private final byte[] block;
+
+	/**
+	 * Buffer wrapping the array.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Statistics updated with bytes and time of every stage.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * Constructs a new {@code FileDigester} using specified algorithm and
+	 * default block size.
+	 *
+	 * @param algorithm
+	 *            the name of the algorithm
+	 * @throws NoSuchAlgorithmException
+	 *             if algorithm isn't available
+	 */
+	public FileDigester(String algorithm) throws NoSuchAlgorithmException {
+		this(algorithm, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Constructs a new {@code FileDigester} using specified algorithm and
+	 * block size.
+	 *
+	 * @param algorithm
+	 *            the name of the algorithm
+	 * @param blockSize
+	 *            the block size
+	 * @throws NoSuchAlgorithmException
+	 *             if algorithm isn't available
+	 * @throws IllegalArgumentException
+	 *             if block size isn't positive
+	 */
+	public FileDigester(String algorithm, int blockSize)
+			throws NoSuchAlgorithmException {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException(
+					"Block size must be a positive number!");
+		}
+
+		this.digest = MessageDigest.getInstance(algorithm);
+		this.block = new byte[blockSize];
+		this.buffer = ByteBuffer.wrap(block);
+	}
+
+	/**
+	 * Sets the statistics updated with bytes and time of every stage.
+	 *
+	 * @param statistics
+	 *            the statistics or {@code null} if statistics shouldn't be
+	 *            collected
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Returns the digest of the file.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @return the digest of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public byte[] digest(Path file) throws IOException {
+		try (FileChannel channel = FileChannel
+				.open(file, StandardOpenOption.READ)) {
+			return digest(channel);
+		}
+	}
+
+	/**
+	 * Returns the digest of all bytes read from the channel until end of
+	 * stream is reached. Channel isn't closed by this method.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @return the digest of the bytes read from the channel
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public byte[] digest(ReadableByteChannel channel) throws IOException {
+		digest.reset();
+
+		while (true) {
+			buffer.clear();
+			long time = System.nanoTime();
+			int r = channel.read(buffer);
+			time = statistics.record(Stage.READ, time);
+
+			if (r < 0) {
+				break;
+			}
+
+			statistics.addRead(r);
+			digest.update(block, 0, r);
+			statistics.record(Stage.DIGEST, time);
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Returns the digest of all bytes read from the stream until end of stream
+	 * is reached. Stream isn't closed by this method.
+	 *
+	 * @param in
+	 *            the stream
+	 * @return the digest of the bytes read from the stream
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public byte[] digest(InputStream in) throws IOException {
+		digest.reset();
+
+		long time = System.nanoTime();
+		for (int r; (r = in.read(block)) >= 0;) {
+			time = statistics.record(Stage.READ, time);
+			statistics.addRead(r);
+			digest.update(block, 0, r);
+			time = statistics.record(Stage.DIGEST, time);
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Returns the name of the algorithm.
+	 *
+	 * @return the name of the algorithm
+	 */
+	public String getAlgorithm() {
+		return digest.getAlgorithm();
+	}
+}
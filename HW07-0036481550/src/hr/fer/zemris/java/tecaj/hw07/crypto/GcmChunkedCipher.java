@@ -0,0 +1,549 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@code GcmChunkedCipher} is a class that encrypts and decrypts files using
+ * AES algorithm in GCM mode, which both encrypts and authenticates the data.
+ * <p>
+ * File is split into chunks of bounded size and every chunk is encrypted
+ * separately, with its own nonce and its own authentication tag, so no chunk
+ * has to be held in memory longer than it takes to process it. Encrypted file
+ * starts with a header containing magic bytes, format version, chunk size and
+ * a random nonce prefix; it is followed by the chunks, each one being its
+ * ciphertext immediately followed by its {@value #TAG_SIZE}-byte tag.
+ * <p>
+ * Nonce of a chunk is the nonce prefix followed by the index of the chunk, so
+ * chunks cannot be reordered. Header and a flag marking the final chunk are
+ * authenticated as additional data of every chunk, so header cannot be
+ * modified and the file cannot be truncated at a chunk boundary without
+ * detection. Empty file has exactly one, empty and final, chunk.
+ * <p>
+ * Decryption checks every chunk before its plaintext is written and stops at
+ * the first chunk that fails, without reading the rest of the file.
+ * Verification without decryption checks all chunks in parallel.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class GcmChunkedCipher {
+
+	/**
+	 * Default chunk size.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Maximum chunk size. Buffers of chunk size are allocated for every
+	 * worker, so a chunk size read from the header is limited.
+	 */
+	public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Magic bytes at the beginning of every encrypted file.
+	 */
+	private static final byte[] MAGIC = "HW07GCMC"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Format version.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Size of the nonce prefix.
+	 */
+	private static final int PREFIX_SIZE = 8;
+
+	/**
+	 * Size of the header.
+	 */
+	private static final int HEADER_SIZE = MAGIC.length + 8 + PREFIX_SIZE;
+
+	/**
+	 * Size of the authentication tag of a chunk.
+	 */
+	private static final int TAG_SIZE = 16;
+
+	/**
+	 * Transformation used by this cipher.
+	 */
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+	/**
+	 * The AES key.
+	 */
+	private final SecretKeySpec keySpec;
+
+	/**
+	 * Size of a chunk of newly encrypted files.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Number of threads verifying chunks.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Constructs a new {@code GcmChunkedCipher} with default chunk size and
+	 * parallelism equal to number of available processors.
+	 *
+	 * @param keySpec
+	 *            the AES key
+	 */
+	public GcmChunkedCipher(SecretKeySpec keySpec) {
+		this(keySpec, DEFAULT_CHUNK_SIZE,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a new {@code GcmChunkedCipher} with specified chunk size and
+	 * parallelism. Chunk size is only used for encryption; decryption uses the
+	 * chunk size stored in the file.
+	 *
+	 * @param keySpec
+	 *            the AES key
+	 * @param chunkSize
+	 *            size of a chunk, not larger than {@value #MAX_CHUNK_SIZE}
+	 * @param parallelism
+	 *            number of threads verifying chunks
+	 * @throws IllegalArgumentException
+	 *             if any of arguments is invalid
+	 */
+	public GcmChunkedCipher(SecretKeySpec keySpec, int chunkSize,
+			int parallelism) {
+		if (keySpec == null) {
+			throw new IllegalArgumentException("Key cannot be null!");
+		}
+
+		if (chunkSize <= 0 || parallelism <= 0) {
+			throw new IllegalArgumentException(
+					"Chunk size and parallelism must be positive numbers!");
+		}
+
+		if (chunkSize > MAX_CHUNK_SIZE) {
+			throw new IllegalArgumentException(
+					"Chunk size cannot be larger than " + MAX_CHUNK_SIZE + "!");
+		}
+
+		this.keySpec = keySpec;
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Encrypts file at {@code src} and places result at {@code dest}. If
+	 * destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void encrypt(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		byte[] prefix = new byte[PREFIX_SIZE];
+		new SecureRandom().nextBytes(prefix);
+		Header header = new Header(chunkSize, prefix);
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			int chunks = TreeDigester.chunkCount(size, chunkSize);
+
+			ChannelUtils.writeFully(out, ByteBuffer.wrap(header.bytes), 0);
+
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			ByteBuffer input = ByteBuffer.allocateDirect(chunkSize);
+			ByteBuffer output = ByteBuffer.allocateDirect(
+					chunkSize + TAG_SIZE);
+
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				long position = (long) chunk * chunkSize;
+				input.clear().limit((int) Math.min(chunkSize, size - position));
+				ChannelUtils.readFully(in, input, position);
+				input.flip();
+
+				header.init(cipher, Cipher.ENCRYPT_MODE, keySpec, chunk,
+						chunk == chunks - 1);
+
+				output.clear();
+				cipher.doFinal(input, output);
+				output.flip();
+
+				ChannelUtils.writeFully(out, output, header.offset(chunk));
+			}
+		}
+	}
+
+	/**
+	 * Decrypts file at {@code src} and places result at {@code dest}. Every
+	 * chunk is authenticated before its plaintext is written. If any chunk
+	 * fails authentication, decryption stops immediately and destination file
+	 * is deleted.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs or file is not of right format
+	 * @throws AEADBadTagException
+	 *             if a chunk fails authentication
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public void decrypt(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		boolean completed = false;
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			Header header = Header.read(in);
+			int chunks = header.chunkCount(in.size());
+
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			ByteBuffer input = ByteBuffer.allocateDirect(
+					header.chunkSize + TAG_SIZE);
+			ByteBuffer output = ByteBuffer.allocateDirect(header.chunkSize);
+
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				header.read(in, input, chunk);
+				header.init(cipher, Cipher.DECRYPT_MODE, keySpec, chunk,
+						chunk == chunks - 1);
+
+				output.clear();
+				header.doFinal(cipher, input, output, chunk);
+				output.flip();
+
+				ChannelUtils.writeFully(
+						out,
+						output,
+						(long) chunk * header.chunkSize);
+			}
+
+			completed = true;
+		} finally {
+			if (!completed) {
+				Files.deleteIfExists(dest);
+			}
+		}
+	}
+
+	/**
+	 * Verifies all chunks of the encrypted file without writing the
+	 * plaintext anywhere. Chunks are verified in parallel.
+	 *
+	 * @param src
+	 *            the path of encrypted file
+	 * @return indexes of chunks that failed authentication; empty list if file
+	 *         is intact
+	 * @throws IOException
+	 *             if an I/O error occurs or file is not of right format
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	public List<Integer> verify(Path src)
+			throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ)) {
+			Header header = Header.read(in);
+			int chunks = header.chunkCount(in.size());
+			boolean[] failed = new boolean[chunks];
+
+			int threads = Math.min(parallelism, chunks);
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			AtomicInteger next = new AtomicInteger();
+
+			try {
+				List<Future<Void>> workers = new ArrayList<>(threads);
+
+				for (int i = 0; i < threads; i++) {
+					workers.add(pool.submit(() -> {
+						Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+						ByteBuffer input = ByteBuffer.allocateDirect(
+								header.chunkSize + TAG_SIZE);
+						ByteBuffer output = ByteBuffer
+								.allocateDirect(header.chunkSize);
+
+						for (int c; (c = next.getAndIncrement()) < chunks;) {
+							header.read(in, input, c);
+							header.init(cipher, Cipher.DECRYPT_MODE, keySpec,
+									c, c == chunks - 1);
+
+							output.clear();
+							try {
+								header.doFinal(cipher, input, output, c);
+							} catch (AEADBadTagException e) {
+								failed[c] = true;
+							}
+						}
+
+						return null;
+					}));
+				}
+
+				for (Future<Void> worker : workers) {
+					worker.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Verification was interrupted!", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof GeneralSecurityException) {
+					throw (GeneralSecurityException) cause;
+				}
+
+				throw new IOException(cause.getMessage(), cause);
+			} finally {
+				pool.shutdownNow();
+			}
+
+			List<Integer> result = new ArrayList<>();
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				if (failed[chunk]) {
+					result.add(chunk);
+				}
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * {@code Header} is the header of an encrypted file. It knows where every
+	 * chunk is and how cipher must be initialized for it.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class Header {
+
+		/**
+		 * Size of a chunk.
+		 */
+		private final int chunkSize;
+
+		/**
+		 * Nonce prefix.
+		 */
+		private final byte[] prefix;
+
+		/**
+		 * Encoded header.
+		 */
+		private final byte[] bytes;
+
+		/**
+		 * Constructs a new {@code Header}.
+		 *
+		 * @param chunkSize
+		 *            size of a chunk
+		 * @param prefix
+		 *            nonce prefix
+		 */
+		public Header(int chunkSize, byte[] prefix) {
+			this.chunkSize = chunkSize;
+			this.prefix = prefix;
+
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+			buffer.put(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(chunkSize);
+			buffer.put(prefix);
+			this.bytes = buffer.array();
+		}
+
+		/**
+		 * Reads and validates the header from the beginning of the channel.
+		 *
+		 * @param in
+		 *            the channel
+		 * @return the header
+		 * @throws IOException
+		 *             if an I/O error occurs or header is not of right format
+		 */
+		public static Header read(FileChannel in) throws IOException {
+			if (in.size() < HEADER_SIZE) {
+				throw new IOException("File is not encrypted in GCM mode!");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+			ChannelUtils.readFully(in, buffer, 0);
+			buffer.flip();
+
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(MAGIC, magic)) {
+				throw new IOException("File is not encrypted in GCM mode!");
+			}
+
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException(
+						"Unsupported GCM format version " + version + "!");
+			}
+
+			int chunkSize = buffer.getInt();
+			if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+				throw new IOException("GCM header is corrupted!");
+			}
+
+			byte[] prefix = new byte[PREFIX_SIZE];
+			buffer.get(prefix);
+
+			return new Header(chunkSize, prefix);
+		}
+
+		/**
+		 * Returns the number of chunks of the encrypted file of given size.
+		 *
+		 * @param size
+		 *            size of the encrypted file
+		 * @return the number of chunks
+		 * @throws IOException
+		 *             if file is truncated inside the tag of the last chunk
+		 */
+		public int chunkCount(long size) throws IOException {
+			long stored = chunkSize + TAG_SIZE;
+			long body = size - HEADER_SIZE;
+			long chunks = Math.max(1, (body + stored - 1) / stored);
+
+			if (body < TAG_SIZE || body - (chunks - 1) * stored < TAG_SIZE
+					|| chunks > Integer.MAX_VALUE) {
+				throw new IOException("File is truncated or corrupted!");
+			}
+
+			return (int) chunks;
+		}
+
+		/**
+		 * Returns offset of the chunk in the encrypted file.
+		 *
+		 * @param chunk
+		 *            index of the chunk
+		 * @return offset of the chunk
+		 */
+		public long offset(int chunk) {
+			return HEADER_SIZE + (long) chunk * (chunkSize + TAG_SIZE);
+		}
+
+		/**
+		 * Reads the chunk with its tag into the buffer and flips it.
+		 *
+		 * @param in
+		 *            the channel of the encrypted file
+		 * @param buffer
+		 *            the buffer
+		 * @param chunk
+		 *            index of the chunk
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public void read(FileChannel in, ByteBuffer buffer, int chunk)
+				throws IOException {
+			long offset = offset(chunk);
+
+			buffer.clear().limit((int) Math.min(
+					chunkSize + TAG_SIZE,
+					in.size() - offset));
+			ChannelUtils.readFully(in, buffer, offset);
+			buffer.flip();
+		}
+
+		/**
+		 * Initializes the cipher for the chunk: sets its nonce and passes the
+		 * header and the final flag as additional authenticated data.
+		 *
+		 * @param cipher
+		 *            the cipher
+		 * @param mode
+		 *            cipher mode
+		 * @param keySpec
+		 *            the AES key
+		 * @param chunk
+		 *            index of the chunk
+		 * @param last
+		 *            {@code true} if chunk is the final one
+		 * @throws GeneralSecurityException
+		 *             if cipher cannot be initialized
+		 */
+		public void init(Cipher cipher, int mode, SecretKeySpec keySpec,
+				int chunk, boolean last) throws GeneralSecurityException {
+			byte[] nonce = Arrays.copyOf(prefix, PREFIX_SIZE + 4);
+			ByteBuffer.wrap(nonce, PREFIX_SIZE, 4).putInt(chunk);
+
+			cipher.init(
+					mode,
+					keySpec,
+					new GCMParameterSpec(TAG_SIZE * 8, nonce));
+			cipher.updateAAD(bytes);
+			cipher.updateAAD(new byte[] { (byte) (last ? 1 : 0) });
+		}
+
+		/**
+		 * Decrypts and authenticates the chunk. Exception thrown by the cipher
+		 * is replaced by one naming the chunk that failed.
+		 *
+		 * @param cipher
+		 *            initialized cipher
+		 * @param input
+		 *            the chunk with its tag
+		 * @param output
+		 *            the buffer for plaintext
+		 * @param chunk
+		 *            index of the chunk
+		 * @throws AEADBadTagException
+		 *             if chunk fails authentication
+		 * @throws GeneralSecurityException
+		 *             if a security error occurs
+		 */
+		public void doFinal(Cipher cipher, ByteBuffer input,
+				ByteBuffer output, int chunk) throws GeneralSecurityException {
+			try {
+				cipher.doFinal(input, output);
+			} catch (AEADBadTagException e) {
+				AEADBadTagException named = new AEADBadTagException(
+						"Chunk " + chunk + " failed authentication!");
+				named.initCause(e);
+				throw named;
+			}
+		}
+	}
+}
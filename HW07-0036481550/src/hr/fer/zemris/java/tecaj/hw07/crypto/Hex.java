@@ -0,0 +1,181 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+/**
+ * {@code Hex} is a helper class that converts bytes to hex-encoded text and
+ * back using lookup tables.
+ * <p>
+ * Every byte is encoded by two table lookups and every pair of hex-digits is
+ * decoded by two table lookups, without any parsing or formatting objects.
+ * Methods which take a destination array, {@link #encode(byte[], char[])}
+ * and {@link #decode(CharSequence, byte[])}, don't allocate anything, so a
+ * caller processing many digests of the same size can reuse one array.
+ * Encoded text is lowercase, like output of {@code sha256sum}; both cases
+ * are accepted when decoding.
+ * <p>
+ * Digest can be compared with hex-encoded text by
+ * {@link #equals(byte[], CharSequence)} in time which doesn't depend on
+ * position of the first differing byte.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public final class Hex {
+
+	/**
+	 * Hex-digits indexed by their value.
+	 */
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Values of hex-digits indexed by character; -1 for characters which
+	 * aren't hex-digits.
+	 */
+	private static final byte[] VALUES = new byte[128];
+
+	static {
+		for (int i = 0; i < VALUES.length; i++) {
+			VALUES[i] = -1;
+		}
+
+		for (int i = 0; i < 16; i++) {
+			VALUES[DIGITS[i]] = (byte) i;
+			VALUES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+		}
+	}
+
+	/**
+	 * Private constructor, class contains only static methods.
+	 */
+	private Hex() {
+	}
+
+	/**
+	 * Encodes bytes as lowercase hex-encoded text.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @return hex-encoded text
+	 */
+	public static String encode(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		encode(bytes, chars);
+		return new String(chars);
+	}
+
+	/**
+	 * Encodes bytes as lowercase hex-digits into the destination array.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @param dest
+	 *            the destination array, at least twice as long as bytes
+	 * @throws IllegalArgumentException
+	 *             if destination array is too short
+	 */
+	public static void encode(byte[] bytes, char[] dest) {
+		if (dest.length < bytes.length * 2) {
+			throw new IllegalArgumentException(
+					"Destination array is too short!");
+		}
+
+		for (int i = 0, j = 0; i < bytes.length; i++) {
+			int b = bytes[i] & 0xFF;
+			dest[j++] = DIGITS[b >>> 4];
+			dest[j++] = DIGITS[b & 0x0F];
+		}
+	}
+
+	/**
+	 * Decodes hex-encoded text.
+	 *
+	 * @param hex
+	 *            hex-encoded text
+	 * @return the bytes
+	 * @throws IllegalArgumentException
+	 *             if text has odd length or contains a character which isn't
+	 *             a hex-digit
+	 */
+	public static byte[] decode(CharSequence hex) {
+		if (hex.length() % 2 != 0) {
+			throw new IllegalArgumentException(
+					"Hex-encoded text must have even length!");
+		}
+
+		byte[] bytes = new byte[hex.length() / 2];
+		decode(hex, bytes);
+		return bytes;
+	}
+
+	/**
+	 * Decodes hex-encoded text into the destination array.
+	 *
+	 * @param hex
+	 *            hex-encoded text
+	 * @param dest
+	 *            the destination array, exactly half as long as text
+	 * @throws IllegalArgumentException
+	 *             if length of text isn't twice the length of destination
+	 *             array or text contains a character which isn't a hex-digit
+	 */
+	public static void decode(CharSequence hex, byte[] dest) {
+		if (hex.length() != dest.length * 2) {
+			throw new IllegalArgumentException(
+					"Hex-encoded text must be twice as long as destination!");
+		}
+
+		for (int i = 0; i < dest.length; i++) {
+			int high = value(hex.charAt(2 * i));
+			int low = value(hex.charAt(2 * i + 1));
+
+			if ((high | low) < 0) {
+				throw new IllegalArgumentException(
+						"Invalid hex-digit at position " + 2 * i + "!");
+			}
+
+			dest[i] = (byte) (high << 4 | low);
+		}
+	}
+
+	/**
+	 * Checks if bytes are equal to the bytes encoded by hex-encoded text.
+	 * Text is decoded on the fly, nothing is allocated, and every byte is
+	 * compared regardless of where the first difference is, so time of the
+	 * comparison doesn't reveal how many leading bytes match.
+	 *
+	 * @param bytes
+	 *            the bytes, e.g. a digest
+	 * @param hex
+	 *            hex-encoded text in any case
+	 * @return {@code true} if text encodes exactly the given bytes
+	 */
+	public static boolean equals(byte[] bytes, CharSequence hex) {
+		if (hex.length() != bytes.length * 2) {
+			return false;
+		}
+
+		int difference = 0;
+		int invalid = 0;
+
+		for (int i = 0; i < bytes.length; i++) {
+			int high = value(hex.charAt(2 * i));
+			int low = value(hex.charAt(2 * i + 1));
+
+			invalid |= high | low;
+			difference |= (bytes[i] & 0xFF) ^ (high << 4 | low) & 0xFF;
+		}
+
+		return difference == 0 && invalid >= 0;
+	}
+
+	/**
+	 * Returns the value of the hex-digit.
+	 *
+	 * @param c
+	 *            the character
+	 * @return the value of the hex-digit or -1 if character isn't a
+	 *         hex-digit
+	 */
+	private static int value(char c) {
+		return c < VALUES.length ? VALUES[c] : -1;
+	}
+}
@@ -0,0 +1,611 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.Statistics.Stage;
+
+/**
+ * {@code InPlaceCipher} is a class that encrypts or decrypts a file using AES
+ * algorithm in CBC mode in place, through one read-write {@link FileChannel},
+ * so no free space of the size of the file is needed. Result is the same as
+ * the result of {@link ChannelCipher}.
+ * <p>
+ * File is processed in steps of {@code lookaheadSize} bytes. Every step reads
+ * the bytes into the lookahead buffer, transforms them and writes them back
+ * at the same offset. Without padding CBC mode maps every block to a block at
+ * the same offset, so the write never overtakes the read; the padding is
+ * handled by the last step only, which grows the file by at most one block
+ * when encrypting and cuts it when decrypting. Before decrypting, the last
+ * block is decrypted alone, so a wrong key is reported by bad padding before
+ * any byte of the file is changed.
+ * <p>
+ * A step overwrites its bytes, so an interrupted step would leave a mix of
+ * plaintext and ciphertext which cannot be told apart. Before every step the
+ * offset, the file length, the last ciphertext block before the offset and
+ * the original bytes of the step are stored next to the file in a journal
+ * with {@value #JOURNAL_EXTENSION} extension, and the file is forced to the
+ * storage device after the step. Journal is written to a temporary file and
+ * atomically moved over the old one, and it contains a digest of its
+ * content, so it is either the old or the new one. When the same job is run
+ * after a crash, original bytes are restored from the journal and processing
+ * continues from its offset. Journal is never larger than the lookahead
+ * buffer and is deleted when job completes.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class InPlaceCipher {
+
+	/**
+	 * Default size of the lookahead buffer, which is also the largest size of
+	 * the journal.
+	 */
+	public static final int DEFAULT_LOOKAHEAD_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * Extension of the journal file.
+	 */
+	public static final String JOURNAL_EXTENSION = ".journal";
+
+	/**
+	 * AES block size.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Transformation used for all but the last step.
+	 */
+	private static final String TRANSFORMATION = "AES/CBC/NoPadding";
+
+	/**
+	 * Transformation used for the last block.
+	 */
+	private static final String PADDED_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+	/**
+	 * The AES key.
+	 */
+	private final SecretKeySpec keySpec;
+
+	/**
+	 * The initialization vector.
+	 */
+	private final byte[] initVector;
+
+	/**
+	 * Size of the lookahead buffer.
+	 */
+	private final int lookaheadSize;
+
+	/**
+	 * Statistics of the processing; disabled by default.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * Constructs a new {@code InPlaceCipher}.
+	 *
+	 * @param keySpec
+	 *            the AES key
+	 * @param initVector
+	 *            the initialization vector
+	 * @param lookaheadSize
+	 *            size of the lookahead buffer, a positive multiple of block
+	 *            size
+	 * @throws IllegalArgumentException
+	 *             if any of arguments is invalid
+	 */
+	public InPlaceCipher(SecretKeySpec keySpec, byte[] initVector,
+			int lookaheadSize) {
+		if (keySpec == null) {
+			throw new IllegalArgumentException("Key cannot be null!");
+		}
+
+		if (initVector == null || initVector.length != BLOCK_SIZE) {
+			throw new IllegalArgumentException(
+					"Initialization vector must be 16 bytes long!");
+		}
+
+		if (lookaheadSize <= 0 || lookaheadSize % BLOCK_SIZE != 0) {
+			throw new IllegalArgumentException(
+					"Lookahead size must be a positive multiple of 16!");
+		}
+
+		this.keySpec = keySpec;
+		this.initVector = initVector.clone();
+		this.lookaheadSize = lookaheadSize;
+	}
+
+	/**
+	 * Sets statistics to which read, cipher and write times are recorded.
+	 *
+	 * @param statistics
+	 *            the statistics; {@code null} disables them
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Encrypts or decrypts the file in place. If a journal of the same job
+	 * exists, the interrupted step is undone and processing continues from
+	 * it.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt the file and
+	 *            if set to {@code false} it will decrypt the file
+	 * @return offset from which processing was resumed; 0 if it started from
+	 *         the beginning
+	 * @throws IOException
+	 *             if an I/O error occurs or journal belongs to another job
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs, e.g. the file isn't encrypted
+	 *             with this key
+	 */
+	public long process(Path file, boolean encrypt)
+			throws IOException, GeneralSecurityException {
+		Path journalPath = Paths.get(file + JOURNAL_EXTENSION);
+		byte[] keyCheck = keyCheck();
+
+		try (FileChannel channel = FileChannel.open(
+				file,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			Journal journal = Journal.load(journalPath);
+			long offset = 0;
+			byte[] chain = initVector;
+			long resumedFrom = 0;
+
+			if (journal != null) {
+				if (journal.encrypt != encrypt
+						|| !MessageDigest.isEqual(journal.keyCheck, keyCheck)) {
+					throw new IOException("Journal " + journalPath
+							+ " belongs to another job!");
+				}
+
+				journal.restore(channel);
+				offset = journal.offset;
+				chain = journal.chain;
+				resumedFrom = offset;
+			}
+
+			long length = channel.size();
+			int tail = encrypt ? 0
+					: checkLastBlock(channel, length, offset, chain);
+
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			cipher.init(
+					encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE,
+					keySpec,
+					new IvParameterSpec(chain));
+
+			byte[] lookahead = new byte[lookaheadSize];
+			long end = length - length % BLOCK_SIZE;
+
+			while (offset < end) {
+				int n = (int) Math.min(lookaheadSize, end - offset);
+
+				long time = System.nanoTime();
+				read(channel, lookahead, n, offset);
+				time = statistics.record(Stage.READ, time);
+
+				new Journal(encrypt, keyCheck, offset, length, chain,
+						Arrays.copyOf(lookahead, n)).store(journalPath);
+				time = statistics.record(Stage.WRITE, time);
+
+				if (!encrypt) {
+					chain = Arrays.copyOfRange(lookahead, n - BLOCK_SIZE, n);
+				}
+				cipher.update(lookahead, 0, n, lookahead, 0);
+				if (encrypt) {
+					chain = Arrays.copyOfRange(lookahead, n - BLOCK_SIZE, n);
+				}
+				time = statistics.record(Stage.CIPHER, time);
+
+				write(channel, lookahead, n, offset);
+				channel.force(false);
+				statistics.record(Stage.WRITE, time);
+
+				statistics.addRead(n);
+				statistics.addWritten(n);
+				offset += n;
+			}
+
+			if (encrypt) {
+				encryptTail(channel, journalPath, keyCheck, end, length,
+						chain);
+			} else {
+				channel.truncate(length - BLOCK_SIZE + tail);
+				channel.force(false);
+			}
+
+			Files.deleteIfExists(journalPath);
+			return resumedFrom;
+		}
+	}
+
+	/**
+	 * Encrypts the last incomplete block of the file together with the
+	 * padding. File grows by at most one block.
+	 *
+	 * @param channel
+	 *            channel of the file
+	 * @param journalPath
+	 *            path of the journal
+	 * @param keyCheck
+	 *            digest of the key and the initialization vector
+	 * @param offset
+	 *            offset of the last incomplete block
+	 * @param length
+	 *            length of the file
+	 * @param chain
+	 *            the last ciphertext block before the offset
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if a security error occurs
+	 */
+	private void encryptTail(FileChannel channel, Path journalPath,
+			byte[] keyCheck, long offset, long length, byte[] chain)
+			throws IOException, GeneralSecurityException {
+		byte[] tail = new byte[(int) (length - offset)];
+		read(channel, tail, tail.length, offset);
+
+		new Journal(true, keyCheck, offset, length, chain, tail)
+				.store(journalPath);
+
+		Cipher cipher = Cipher.getInstance(PADDED_TRANSFORMATION);
+		cipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(chain));
+		byte[] block = cipher.doFinal(tail);
+
+		write(channel, block, block.length, offset);
+		channel.force(false);
+		statistics.addRead(tail.length);
+		statistics.addWritten(block.length);
+	}
+
+	/**
+	 * Decrypts the last block of the encrypted file alone and checks its
+	 * padding, without changing the file.
+	 *
+	 * @param channel
+	 *            channel of the file
+	 * @param length
+	 *            length of the file
+	 * @param offset
+	 *            offset from which processing continues
+	 * @param chain
+	 *            the last ciphertext block before the offset
+	 * @return number of bytes of the last block which are not padding
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if length isn't a multiple of block size or padding is bad,
+	 *             i.e. file isn't encrypted with this key
+	 */
+	private int checkLastBlock(FileChannel channel, long length, long offset,
+			byte[] chain) throws IOException, GeneralSecurityException {
+		if (length == 0 || length % BLOCK_SIZE != 0) {
+			throw new IllegalBlockSizeException(
+					"Encrypted file length must be a positive multiple of 16!");
+		}
+
+		// blocks before the offset are already decrypted
+		byte[] previous = chain;
+		if (length - BLOCK_SIZE > offset) {
+			previous = new byte[BLOCK_SIZE];
+			read(channel, previous, BLOCK_SIZE, length - 2 * BLOCK_SIZE);
+		}
+
+		byte[] last = new byte[BLOCK_SIZE];
+		read(channel, last, BLOCK_SIZE, length - BLOCK_SIZE);
+
+		Cipher cipher = Cipher.getInstance(PADDED_TRANSFORMATION);
+		cipher.init(
+				Cipher.DECRYPT_MODE,
+				keySpec,
+				new IvParameterSpec(previous));
+
+		try {
+			return cipher.doFinal(last).length;
+		} catch (BadPaddingException e) {
+			throw new BadPaddingException(
+					"File is not encrypted with this key!");
+		}
+	}
+
+	/**
+	 * Returns digest of the key and the initialization vector, which
+	 * identifies the job in the journal.
+	 *
+	 * @return the digest
+	 * @throws GeneralSecurityException
+	 *             if SHA-256 is not available
+	 */
+	private byte[] keyCheck() throws GeneralSecurityException {
+		MessageDigest sha = MessageDigest.getInstance("SHA-256");
+		sha.update(keySpec.getEncoded());
+		sha.update(initVector);
+		return sha.digest();
+	}
+
+	/**
+	 * Reads exactly {@code n} bytes of the channel at given position into the
+	 * array.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @param bytes
+	 *            the array
+	 * @param n
+	 *            number of bytes
+	 * @param position
+	 *            the position
+	 * @throws IOException
+	 *             if an I/O error occurs or channel ends sooner
+	 */
+	private static void read(FileChannel channel, byte[] bytes, int n,
+			long position) throws IOException {
+		ChannelUtils.readFully(channel, ByteBuffer.wrap(bytes, 0, n),
+				position);
+	}
+
+	/**
+	 * Writes {@code n} bytes of the array to the channel at given position.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @param bytes
+	 *            the array
+	 * @param n
+	 *            number of bytes
+	 * @param position
+	 *            the position
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static void write(FileChannel channel, byte[] bytes, int n,
+			long position) throws IOException {
+		ChannelUtils.writeFully(channel, ByteBuffer.wrap(bytes, 0, n),
+				position);
+	}
+
+	/**
+	 * {@code Journal} is the persisted state of one step of a job: everything
+	 * needed to undo the step and continue from it.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class Journal {
+
+		/**
+		 * Magic bytes at the start of the journal.
+		 */
+		private static final byte[] MAGIC = "HW07JRNL"
+				.getBytes(StandardCharsets.US_ASCII);
+
+		/**
+		 * Length of SHA-256 digest.
+		 */
+		private static final int DIGEST_LENGTH = 32;
+
+		/**
+		 * Length of the journal without the original bytes.
+		 */
+		private static final int HEADER_LENGTH = MAGIC.length + 1
+				+ DIGEST_LENGTH + 8 + 8 + BLOCK_SIZE + 4;
+
+		/**
+		 * Indicates that job encrypts the file.
+		 */
+		private final boolean encrypt;
+
+		/**
+		 * Digest of the key and the initialization vector.
+		 */
+		private final byte[] keyCheck;
+
+		/**
+		 * Offset of the step.
+		 */
+		private final long offset;
+
+		/**
+		 * Length of the file before the step.
+		 */
+		private final long length;
+
+		/**
+		 * The last ciphertext block before the offset.
+		 */
+		private final byte[] chain;
+
+		/**
+		 * Original bytes of the step.
+		 */
+		private final byte[] data;
+
+		/**
+		 * Constructs a new {@code Journal}.
+		 *
+		 * @param encrypt
+		 *            {@code true} if job encrypts the file
+		 * @param keyCheck
+		 *            digest of the key and the initialization vector
+		 * @param offset
+		 *            offset of the step
+		 * @param length
+		 *            length of the file before the step
+		 * @param chain
+		 *            the last ciphertext block before the offset
+		 * @param data
+		 *            original bytes of the step
+		 */
+		public Journal(boolean encrypt, byte[] keyCheck, long offset,
+				long length, byte[] chain, byte[] data) {
+			this.encrypt = encrypt;
+			this.keyCheck = keyCheck;
+			this.offset = offset;
+			this.length = length;
+			this.chain = chain;
+			this.data = data;
+		}
+
+		/**
+		 * Loads the journal from the file.
+		 *
+		 * @param file
+		 *            the path of the journal
+		 * @return the journal or {@code null} if file doesn't exist
+		 * @throws IOException
+		 *             if file cannot be read or is corrupted
+		 */
+		public static Journal load(Path file) throws IOException {
+			if (!Files.exists(file)) {
+				return null;
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+			if (buffer.remaining() < HEADER_LENGTH + DIGEST_LENGTH
+					|| !checkDigest(buffer)) {
+				throw new IOException("Journal " + file + " is corrupted!");
+			}
+
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			boolean encrypt = buffer.get() != 0;
+			byte[] keyCheck = new byte[DIGEST_LENGTH];
+			buffer.get(keyCheck);
+			long offset = buffer.getLong();
+			long length = buffer.getLong();
+			byte[] chain = new byte[BLOCK_SIZE];
+			buffer.get(chain);
+			int size = buffer.getInt();
+
+			if (!Arrays.equals(magic, MAGIC) || offset < 0
+					|| size != buffer.remaining() - DIGEST_LENGTH
+					|| offset + size > length) {
+				throw new IOException("Journal " + file + " is corrupted!");
+			}
+
+			byte[] data = new byte[size];
+			buffer.get(data);
+
+			return new Journal(encrypt, keyCheck, offset, length, chain, data);
+		}
+
+		/**
+		 * Stores the journal to a temporary file, forces it to the storage
+		 * device and atomically replaces the file with it.
+		 *
+		 * @param file
+		 *            the path of the journal
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public void store(Path file) throws IOException {
+			ByteBuffer buffer = ByteBuffer
+					.allocate(HEADER_LENGTH + data.length + DIGEST_LENGTH);
+			buffer.put(MAGIC);
+			buffer.put((byte) (encrypt ? 1 : 0));
+			buffer.put(keyCheck);
+			buffer.putLong(offset);
+			buffer.putLong(length);
+			buffer.put(chain);
+			buffer.putInt(data.length);
+			buffer.put(data);
+			buffer.put(digest(buffer.array(), buffer.position()));
+			buffer.flip();
+
+			Path temp = Paths.get(file + ".tmp");
+			try (FileChannel channel = FileChannel.open(
+					temp,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.WRITE)) {
+				ChannelUtils.writeFully(channel, buffer, 0);
+				channel.force(true);
+			}
+
+			Files.move(
+					temp,
+					file,
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		/**
+		 * Undoes the step: writes the original bytes back and restores the
+		 * length of the file.
+		 *
+		 * @param channel
+		 *            channel of the file
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public void restore(FileChannel channel) throws IOException {
+			if (channel.size() < offset) {
+				throw new IOException("File is shorter than its journal!");
+			}
+
+			ChannelUtils.writeFully(channel, ByteBuffer.wrap(data), offset);
+			channel.truncate(length);
+			channel.force(false);
+		}
+
+		/**
+		 * Checks if the digest at the end of the buffer matches its content.
+		 *
+		 * @param buffer
+		 *            the buffer wrapping the whole journal
+		 * @return {@code true} if digest matches
+		 */
+		private static boolean checkDigest(ByteBuffer buffer) {
+			int end = buffer.limit() - DIGEST_LENGTH;
+			byte[] expected = Arrays.copyOfRange(buffer.array(), end,
+					buffer.limit());
+			return MessageDigest.isEqual(expected,
+					digest(buffer.array(), end));
+		}
+
+		/**
+		 * Calculates SHA-256 digest of the first {@code n} bytes of the array.
+		 *
+		 * @param bytes
+		 *            the array
+		 * @param n
+		 *            number of bytes
+		 * @return the digest
+		 */
+		private static byte[] digest(byte[] bytes, int n) {
+			try {
+				MessageDigest sha = MessageDigest.getInstance("SHA-256");
+				sha.update(bytes, 0, n);
+				return sha.digest();
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
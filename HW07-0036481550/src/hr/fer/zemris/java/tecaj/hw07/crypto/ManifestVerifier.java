@@ -0,0 +1,232 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code ManifestVerifier} is a class that verifies SHA-256 digests of files
+ * listed in a manifest written in the format {@code sha256sum} uses:
+ *
+ * <pre>
+ * 9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08  file.txt
+ * 60303ae22b998861bce3b28f33eec1be758a213c86c93c076dbe9f558c11c752 *image.bin
+ * </pre>
+ *
+ * Relative paths are resolved against the directory containing the manifest.
+ * <p>
+ * Files are hashed concurrently by a fixed number of worker threads and every
+ * file is read only once, even if it's listed more than once. Results are
+ * printed in the same order files are listed in the manifest, followed by a
+ * summary.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class ManifestVerifier {
+
+	/**
+	 * Pattern of one manifest line.
+	 */
+	private static final Pattern LINE_PATTERN = Pattern
+			.compile("^([A-Fa-f0-9]{64}) [ *](.+)$");
+
+	/**
+	 * Number of worker threads.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Size of blocks in which files are read.
+	 */
+	private final int blockSize;
+
+	/**
+	 * Cache of digests; {@code null} if every file is hashed.
+	 */
+	private DigestCache digestCache;
+
+	/**
+	 * Constructs a new {@code ManifestVerifier} with parallelism equal to
+	 * number of available processors and default block size.
+	 */
+	public ManifestVerifier() {
+		this(Runtime.getRuntime().availableProcessors(),
+				FileDigester.DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Constructs a new {@code ManifestVerifier} with specified parallelism and
+	 * block size.
+	 *
+	 * @param parallelism
+	 *            number of worker threads
+	 * @param blockSize
+	 *            size of blocks in which files are read
+	 * @throws IllegalArgumentException
+	 *             if parallelism or block size isn't positive
+	 */
+	public ManifestVerifier(int parallelism, int blockSize) {
+		if (parallelism <= 0 || blockSize <= 0) {
+			throw new IllegalArgumentException(
+					"Parallelism and block size must be positive numbers!");
+		}
+
+		this.parallelism = parallelism;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Sets the cache of digests, so files which haven't changed since they
+	 * were hashed aren't read again.
+	 *
+	 * @param digestCache
+	 *            the cache or {@code null} if every file should be hashed
+	 */
+	public void setDigestCache(DigestCache digestCache) {
+		this.digestCache = digestCache;
+	}
+
+	/**
+	 * Verifies all files listed in the manifest and prints result for every
+	 * file and a summary to the given stream.
+	 *
+	 * @param manifest
+	 *            the path of the manifest
+	 * @param out
+	 *            the stream to which results are printed
+	 * @return the number of files which don't match their digest or couldn't
+	 *         be read
+	 * @throws IOException
+	 *             if manifest cannot be read
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	public int verify(Path manifest, PrintStream out)
+			throws IOException, NoSuchAlgorithmException {
+		// fail early if algorithm isn't available to worker threads
+		MessageDigest.getInstance("SHA-256");
+
+		Path dir = manifest.toAbsolutePath().getParent();
+		List<String> names = new ArrayList<>();
+		List<byte[]> expected = new ArrayList<>();
+		List<Path> paths = new ArrayList<>();
+		int malformed = 0;
+
+		for (String line : Files
+				.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+
+			Matcher matcher = LINE_PATTERN.matcher(line);
+			if (!matcher.matches()) {
+				malformed++;
+				continue;
+			}
+
+			names.add(matcher.group(2));
+			expected.add(Hex.decode(matcher.group(1)));
+			paths.add(dir.resolve(matcher.group(2)).normalize());
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(parallelism, paths.size())));
+		ThreadLocal<FileDigester> digesters = ThreadLocal.withInitial(() -> {
+			try {
+				return new FileDigester("SHA-256", blockSize);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		int ok = 0;
+		int failed = 0;
+		int unreadable = 0;
+
+		try {
+			Map<Path, Future<byte[]>> digests = new HashMap<>();
+			for (Path path : paths) {
+				if (!digests.containsKey(path)) {
+					digests.put(
+							path,
+							pool.submit(
+									() -> digest(path, digesters.get())));
+				}
+			}
+
+			for (int i = 0, n = paths.size(); i < n; i++) {
+				byte[] actual = null;
+
+				try {
+					actual = digests.get(paths.get(i)).get();
+				} catch (ExecutionException e) {
+					out.printf(
+							Messages.MANIFEST_UNREADABLE_MESSAGE + "%n",
+							names.get(i));
+					unreadable++;
+					continue;
+				}
+
+				if (MessageDigest.isEqual(expected.get(i), actual)) {
+					out.printf(Messages.MANIFEST_OK_MESSAGE + "%n", names.get(i));
+					ok++;
+				} else {
+					out.printf(
+							Messages.MANIFEST_FAILED_MESSAGE + "%n",
+							names.get(i));
+					failed++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Verification was interrupted!", e);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (malformed > 0) {
+			out.printf(Messages.MANIFEST_MALFORMED_MESSAGE + "%n", malformed);
+		}
+
+		out.printf(
+				Messages.MANIFEST_SUMMARY_MESSAGE + "%n",
+				paths.size(),
+				ok,
+				failed,
+				unreadable);
+
+		return failed + unreadable;
+	}
+
+	/**
+	 * Returns the digest of the file, from the cache if one is set.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param digester
+	 *            the digester of the current thread
+	 * @return the digest of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private byte[] digest(Path path, FileDigester digester)
+			throws IOException {
+		return digestCache == null ? digester.digest(path)
+				: digestCache.digest(path, digester);
+	}
+}
@@ -1,83 +1,325 @@
-package hr.fer.zemris.java.tecaj.hw07.crypto;
-
-/**
- * {@code Messages} class is a class that contains string constants used as
- * messages in {@link Crypto} class.
- * 
- * @author Karlo Vrbić
- * @version 1.0
- */
-public class Messages {
-
-	/**
-	 * Invalid input message.
-	 */
-	public static final String INVALID_INPUT = "You need to give arguments:%n"
-			+ "\t\t- checksha <filepath>%n"
-			+ "\t\t- encrypt <filepath> <encrypted_filepath>%n"
-			+ "\t\t- decrypt <encrypted_filepath> <filepath>%n";
-
-	// encryption/decryption messages
-
-	/**
-	 * Password message.
-	 */
-	public static final String PASSWORD_MESSAGE = "Please provide password as "
-			+ "hex-encoded text (16 bytes, i.e. 32 hex-digits):";
-	
-	/**
-	 * Password format error message.
-	 */
-	public static final String PASSWORD_FORMAT_ERROR = "Given password is not of"
-			+ " right format!";
-
-	/**
-	 * Initial vector message.
-	 */
-	public static final String INITIAL_VECTOR_MESSAGE = "Please provide "
-			+ "initialization vector as hex-encoded text (32 hex-digits):";
-	
-	/**
-	 * Initial vector format error message.
-	 */
-	public static final String INITIAL_VECTOR_FORMAT_ERROR = "Given initial "
-			+ "vector is not of right format!";
-
-	/**
-	 * Encryption success message.
-	 */
-	public static final String ENCRYPTION_SUCCESS_MESSAGE = "Encryption "
-			+ "completed. Generated file %s based on file %s.";
-	
-	/**
-	 * Decryption success message.
-	 */
-	public static final String DECRYPTION_SUCCESS_MESSAGE = "Decryption "
-			+ "completed. Generated file %s based on file %s.";
-
-	// checksum messages
-
-	/**
-	 * Checksum message
-	 */
-	public static final String CHECKSUM_MESSAGE = "Please provide expected "
-			+ "sha-256 digest for %s:";
-	
-	/**
-	 * Checksum format error message
-	 */
-	public static final String CHECKSUM_FORMAT_ERROR = "Digestion error. Given "
-			+ "digest is not of right format!";
-	
-	/**
-	 * Checksum success message
-	 */
-	public static final String CHECKSUM_SUCCESS_MESSAGE = "Digesting completed."
-			+ " Digest of %s matches expected digest.";
-	
-	/**
-	 * Checksum fail message
-	 */
-	public static final String CHECKSUM_FAIL_MESSAGE = "Digesting completed. "
-			+ "Digest of %s does not match the expected digest. Digest was: %s";
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+/**
+ * {@code Messages} class is a class that contains string constants used as
+ * messages in {@link Crypto} class.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class Messages {
+
+	/**
+	 * Invalid input message.
+	 */
+	public static final String INVALID_INPUT = "You need to give arguments:%n"
+			+ "\t[--key <hex>] [--iv <hex>] [--key-file <filepath>] "
+			+ "[--checkpoint <megabytes>] [--compress <level>]%n"
+			+ "\t[--progress <seconds>] [--stats <filepath>] "
+			+ "[--digest-cache <filepath>] <command>%n"
+			+ "\t\t- checksha <filepath> [block_size]%n"
+			+ "\t\t- checksha-manifest <manifest_filepath>%n"
+			+ "\t\t- digest <filepath> [algorithm,...]%n"
+			+ "\t\t- treesha <filepath> [chunk_size]%n"
+			+ "\t\t- treesha-verify <filepath> [chunk_index]%n"
+			+ "\t\t- encrypt <filepath> <encrypted_filepath>%n"
+			+ "\t\t- decrypt <encrypted_filepath> <filepath>%n"
+			+ "\t\t- encrypt-ctr <filepath> <encrypted_filepath>%n"
+			+ "\t\t- decrypt-ctr <encrypted_filepath> <filepath>%n"
+			+ "\t\t- encrypt-pipe <filepath> <encrypted_filepath>%n"
+			+ "\t\t- decrypt-pipe <encrypted_filepath> <filepath>%n"
+			+ "\t\t- encrypt-sha <filepath> <encrypted_filepath>%n"
+			+ "\t\t- decrypt-sha <encrypted_filepath> <filepath>%n"
+			+ "\t\t- encrypt-chunked <filepath> <encrypted_filepath>%n"
+			+ "\t\t- decrypt-chunked <encrypted_filepath> <filepath>%n"
+			+ "\t\t- decrypt-range <encrypted_filepath> <offset> <length> "
+			+ "[filepath]%n"
+			+ "\t\t- encrypt-gcm <filepath> <encrypted_filepath>%n"
+			+ "\t\t- decrypt-gcm <encrypted_filepath> <filepath>%n"
+			+ "\t\t- verify-gcm <encrypted_filepath>%n"
+			+ "\t\t- verify <encrypted_filepath> <expected_sha256>%n"
+			+ "\t\t- encrypt-inplace <filepath>%n"
+			+ "\t\t- decrypt-inplace <encrypted_filepath>%n"
+			+ "\t\t- encrypt-dir <directory> <encrypted_directory> "
+			+ "[parallelism]%n"
+			+ "\t\t- decrypt-dir <encrypted_directory> <directory> "
+			+ "[parallelism]%n"
+			+ "\t\t- batch <job_filepath>%n";
+
+	// encryption/decryption messages
+
+	/**
+	 * Password message.
+	 */
+	public static final String PASSWORD_MESSAGE = "Please provide password as "
+			+ "hex-encoded text (16 bytes, i.e. 32 hex-digits):";
+	
+	/**
+	 * Password format error message.
+	 */
+	public static final String PASSWORD_FORMAT_ERROR = "Given password is not of"
+			+ " right format!";
+
+	/**
+	 * Initial vector message.
+	 */
+	public static final String INITIAL_VECTOR_MESSAGE = "Please provide "
+			+ "initialization vector as hex-encoded text (32 hex-digits):";
+	
+	/**
+	 * Initial vector format error message.
+	 */
+	public static final String INITIAL_VECTOR_FORMAT_ERROR = "Given initial "
+			+ "vector is not of right format!";
+
+	/**
+	 * Encryption success message.
+	 */
+	public static final String ENCRYPTION_SUCCESS_MESSAGE = "Encryption "
+			+ "completed. Generated file %s based on file %s.";
+	
+	/**
+	 * Decryption success message.
+	 */
+	public static final String DECRYPTION_SUCCESS_MESSAGE = "Decryption "
+			+ "completed. Generated file %s based on file %s.";
+
+	/**
+	 * Resumed from checkpoint message.
+	 */
+	public static final String RESUMED_MESSAGE = "Resumed from checkpoint at "
+			+ "byte %d.";
+
+	/**
+	 * In place encryption success message.
+	 */
+	public static final String ENCRYPTION_IN_PLACE_SUCCESS_MESSAGE =
+			"Encryption completed. File %s is encrypted in place.";
+
+	/**
+	 * In place decryption success message.
+	 */
+	public static final String DECRYPTION_IN_PLACE_SUCCESS_MESSAGE =
+			"Decryption completed. File %s is decrypted in place.";
+
+	/**
+	 * Resumed from journal message.
+	 */
+	public static final String JOURNAL_RESUMED_MESSAGE = "Resumed from journal "
+			+ "at byte %d.";
+
+	/**
+	 * Progress message.
+	 */
+	public static final String PROGRESS_MESSAGE = "%.1f of %.1f MB (%d%%), "
+			+ "%.1f MB/s, ETA %d:%02d ";
+
+	/**
+	 * Progress message when total size is unknown.
+	 */
+	public static final String PROGRESS_UNKNOWN_MESSAGE = "%.1f MB, "
+			+ "%.1f MB/s ";
+
+	/**
+	 * Compression with checkpoints error message.
+	 */
+	public static final String COMPRESS_CHECKPOINT_ERROR = "Compression "
+			+ "cannot be combined with checkpoints!";
+
+	/**
+	 * Compression in place error message.
+	 */
+	public static final String COMPRESS_IN_PLACE_ERROR = "Compression "
+			+ "cannot be done in place!";
+
+	/**
+	 * Digest message.
+	 */
+	public static final String DIGEST_MESSAGE = "SHA-256 digest of %s is %s";
+
+	/**
+	 * Digest of a given algorithm message.
+	 */
+	public static final String ALGORITHM_DIGEST_MESSAGE = "%s digest of %s "
+			+ "is %s";
+
+	/**
+	 * Digest cache message.
+	 */
+	public static final String DIGEST_CACHE_MESSAGE = "Digest cache: %d "
+			+ "unchanged, %d hashed.";
+
+	/**
+	 * Digest stored message.
+	 */
+	public static final String DIGEST_STORED_MESSAGE = "Digests stored in %s.";
+
+	// GCM messages
+
+	/**
+	 * GCM verification success message.
+	 */
+	public static final String GCM_VERIFY_SUCCESS_MESSAGE = "Verification "
+			+ "completed. All chunks of %s are authentic.";
+
+	/**
+	 * GCM verification fail message.
+	 */
+	public static final String GCM_VERIFY_FAIL_MESSAGE = "Verification "
+			+ "completed. %s is corrupted, %d chunk(s) failed authentication: "
+			+ "%s";
+
+	// directory messages
+
+	/**
+	 * Directory file processed message.
+	 */
+	public static final String DIRECTORY_FILE_MESSAGE = "Processed %s.";
+
+	/**
+	 * Directory file failed message.
+	 */
+	public static final String DIRECTORY_FILE_FAILED_MESSAGE = "Failed to "
+			+ "process %s: %s";
+
+	/**
+	 * Directory summary message.
+	 */
+	public static final String DIRECTORY_SUMMARY_MESSAGE = "Directory %s "
+			+ "completed. %d file(s) processed, %d failed, %d bytes in total.";
+
+	// batch messages
+
+	/**
+	 * Batch job failed message.
+	 */
+	public static final String BATCH_JOB_FAILED_MESSAGE = "Job at line %d "
+			+ "(%s) failed: %s";
+
+	/**
+	 * Batch initialization vector reused error message.
+	 */
+	public static final String BATCH_IV_REUSED_ERROR = "Initialization vector"
+			+ " %s was already used for encryption in this batch!";
+
+	/**
+	 * Batch counter range overlap error message.
+	 */
+	public static final String BATCH_COUNTER_OVERLAP_ERROR = "Counter blocks"
+			+ " of initialization vector %s overlap counter blocks of an"
+			+ " earlier CTR encryption in this batch!";
+
+	/**
+	 * Batch summary message.
+	 */
+	public static final String BATCH_SUMMARY_MESSAGE = "Batch completed. %d "
+			+ "job(s) succeeded, %d failed.";
+
+	// checksum messages
+
+	/**
+	 * Checksum message
+	 */
+	public static final String CHECKSUM_MESSAGE = "Please provide expected "
+			+ "sha-256 digest for %s:";
+	
+	/**
+	 * Checksum format error message
+	 */
+	public static final String CHECKSUM_FORMAT_ERROR = "Digestion error. Given "
+			+ "digest is not of right format!";
+	
+	/**
+	 * Checksum success message
+	 */
+	public static final String CHECKSUM_SUCCESS_MESSAGE = "Digesting completed."
+			+ " Digest of %s matches expected digest.";
+	
+	/**
+	 * Checksum fail message
+	 */
+	public static final String CHECKSUM_FAIL_MESSAGE = "Digesting completed. "
+			+ "Digest of %s does not match the expected digest. Digest was: %s";
+
+	/**
+	 * Verification of encrypted file success message.
+	 */
+	public static final String VERIFY_SUCCESS_MESSAGE = "Verification "
+			+ "completed. Decrypted content of %s matches expected digest.";
+
+	/**
+	 * Verification of encrypted file fail message.
+	 */
+	public static final String VERIFY_FAIL_MESSAGE = "Verification "
+			+ "completed. Decrypted content of %s does not match the expected "
+			+ "digest. Digest was: %s";
+
+	// manifest messages
+
+	/**
+	 * Manifest entry matches message
+	 */
+	public static final String MANIFEST_OK_MESSAGE = "%s: OK";
+
+	/**
+	 * Manifest entry doesn't match message
+	 */
+	public static final String MANIFEST_FAILED_MESSAGE = "%s: FAILED";
+
+	/**
+	 * Manifest entry cannot be read message
+	 */
+	public static final String MANIFEST_UNREADABLE_MESSAGE = "%s: FAILED open"
+			+ " or read";
+
+	/**
+	 * Manifest improperly formatted lines message
+	 */
+	public static final String MANIFEST_MALFORMED_MESSAGE = "WARNING: %d line(s)"
+			+ " are improperly formatted";
+
+	/**
+	 * Manifest summary message
+	 */
+	public static final String MANIFEST_SUMMARY_MESSAGE = "Verified %d file(s):"
+			+ " %d OK, %d FAILED, %d could not be read.";
+
+	// tree hash messages
+
+	/**
+	 * Tree hash message
+	 */
+	public static final String TREE_DIGEST_MESSAGE = "Tree hash of %s (%d "
+			+ "chunk(s)) is %s";
+
+	/**
+	 * Tree hash verification success message
+	 */
+	public static final String TREE_VERIFY_SUCCESS_MESSAGE = "Verification "
+			+ "completed. Tree hash of %s matches stored tree hash.";
+
+	/**
+	 * Tree hash verification fail message
+	 */
+	public static final String TREE_VERIFY_FAIL_MESSAGE = "Verification "
+			+ "completed. Tree hash of %s does not match stored tree hash. "
+			+ "%d of %d chunk(s) changed: %s";
+
+	/**
+	 * Tree hash file size changed message
+	 */
+	public static final String TREE_SIZE_CHANGED_MESSAGE = "Verification "
+			+ "completed. Size of %s changed from %d to %d bytes.";
+
+	/**
+	 * Tree hash chunk success message
+	 */
+	public static final String TREE_CHUNK_SUCCESS_MESSAGE = "Chunk %d of %s "
+			+ "matches stored digest.";
+
+	/**
+	 * Tree hash chunk fail message
+	 */
+	public static final String TREE_CHUNK_FAIL_MESSAGE = "Chunk %d of %s does "
+			+ "not match stored digest.";
 }
\ No newline at end of file
@@ -0,0 +1,481 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hr.fer.zemris.java.tecaj.hw07.crypto.Statistics.Stage;
+
+/**
+ * {@code MultiDigester} is a class that calculates digests of several
+ * algorithms over a single read of a file.
+ * <p>
+ * The calling thread reads the file into a bounded ring of reusable buffers,
+ * like the reader of {@link PipelinedCipher}, and every algorithm runs on its
+ * own thread. A filled buffer is passed to all algorithm threads, which only
+ * read it, and returns to the reader when the last of them is done with it.
+ * So the file is read once and time of the whole job is the time of the
+ * slowest algorithm instead of the sum of all of them. When all buffers are
+ * in use the reader waits for the slowest algorithm.
+ * <p>
+ * Any {@link MessageDigest} algorithm is supported, and {@value #CRC32C}
+ * which is calculated by {@link Crc32c}; its digest is the checksum as four
+ * bytes in big-endian order.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class MultiDigester {
+
+	/**
+	 * Name of the CRC-32C algorithm.
+	 */
+	public static final String CRC32C = "CRC32C";
+
+	/**
+	 * Algorithms used when none are given.
+	 */
+	public static final String DEFAULT_ALGORITHMS = "SHA-256,SHA-512,MD5,"
+			+ CRC32C;
+
+	/**
+	 * Default size of a buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Default number of buffers in the ring.
+	 */
+	public static final int DEFAULT_BUFFER_COUNT = 4;
+
+	/**
+	 * Names of the algorithms.
+	 */
+	private final List<String> algorithms;
+
+	/**
+	 * Size of a buffer.
+	 */
+	private final int bufferSize;
+
+	/**
+	 * Number of buffers in the ring.
+	 */
+	private final int bufferCount;
+
+	/**
+	 * Statistics updated with bytes and time of reading and digesting.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * Constructs a new {@code MultiDigester} with default buffer size and
+	 * number of buffers.
+	 *
+	 * @param algorithms
+	 *            names of the algorithms
+	 * @throws NoSuchAlgorithmException
+	 *             if any of algorithms is not available
+	 */
+	public MultiDigester(List<String> algorithms)
+			throws NoSuchAlgorithmException {
+		this(algorithms, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+	}
+
+	/**
+	 * Constructs a new {@code MultiDigester} with specified buffer size and
+	 * number of buffers.
+	 *
+	 * @param algorithms
+	 *            names of the algorithms
+	 * @param bufferSize
+	 *            size of a buffer
+	 * @param bufferCount
+	 *            number of buffers in the ring
+	 * @throws NoSuchAlgorithmException
+	 *             if any of algorithms is not available
+	 * @throws IllegalArgumentException
+	 *             if no algorithm is given or buffer size or count aren't
+	 *             positive
+	 */
+	public MultiDigester(List<String> algorithms, int bufferSize,
+			int bufferCount) throws NoSuchAlgorithmException {
+		if (algorithms == null || algorithms.isEmpty()) {
+			throw new IllegalArgumentException(
+					"At least one algorithm must be given!");
+		}
+
+		if (bufferSize <= 0 || bufferCount <= 0) {
+			throw new IllegalArgumentException(
+					"Buffer size and count must be positive numbers!");
+		}
+
+		for (String algorithm : algorithms) {
+			Accumulator.of(algorithm);
+		}
+
+		this.algorithms = new ArrayList<>(algorithms);
+		this.bufferSize = bufferSize;
+		this.bufferCount = bufferCount;
+	}
+
+	/**
+	 * Sets the statistics updated with bytes and time of reading and
+	 * digesting.
+	 *
+	 * @param statistics
+	 *            the statistics or {@code null} if statistics shouldn't be
+	 *            collected
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Returns digests of the file calculated by all algorithms.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @return digests mapped by names of algorithms, in order in which
+	 *         algorithms were given
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Map<String, byte[]> digest(Path file) throws IOException {
+		BlockingQueue<Slot> free = new ArrayBlockingQueue<>(bufferCount);
+		for (int i = 0; i < bufferCount; i++) {
+			free.add(new Slot());
+		}
+
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		List<Worker> workers = new ArrayList<>(algorithms.size());
+		List<Thread> threads = new ArrayList<>(algorithms.size() + 1);
+		threads.add(Thread.currentThread());
+
+		for (String algorithm : algorithms) {
+			Worker worker = newWorker(algorithm, free);
+			workers.add(worker);
+			threads.add(new Thread(() -> {
+				try {
+					worker.run();
+				} catch (InterruptedException e) {
+					// another thread failed and stopped the workers
+				} catch (Exception e) {
+					fail(e, failure, threads);
+				}
+			}, "digest-" + algorithm));
+		}
+
+		threads.subList(1, threads.size()).forEach(Thread::start);
+
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			read(in, free, workers, failure);
+		} catch (IOException e) {
+			fail(e, failure, threads);
+		} catch (InterruptedException e) {
+			fail(new IOException("Digesting was interrupted!", e), failure,
+					threads);
+		}
+
+		for (Thread thread : threads.subList(1, threads.size())) {
+			while (thread.isAlive()) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					fail(new IOException("Digesting was interrupted!", e),
+							failure, threads);
+				}
+			}
+		}
+
+		// interrupt sent to this thread by a failed worker must not leak
+		Thread.interrupted();
+
+		Exception e = failure.get();
+
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e != null) {
+			throw new IOException(e.getMessage(), e);
+		}
+
+		Map<String, byte[]> digests = new LinkedHashMap<>();
+		for (int i = 0; i < workers.size(); i++) {
+			digests.put(algorithms.get(i), workers.get(i).accumulator.digest());
+		}
+
+		return digests;
+	}
+
+	/**
+	 * Returns names of the algorithms.
+	 *
+	 * @return names of the algorithms
+	 */
+	public List<String> getAlgorithms() {
+		return new ArrayList<>(algorithms);
+	}
+
+	/**
+	 * Returns a new worker of the algorithm.
+	 *
+	 * @param algorithm
+	 *            name of the algorithm
+	 * @param free
+	 *            slots that can be filled by the reader
+	 * @return the worker
+	 */
+	private Worker newWorker(String algorithm, BlockingQueue<Slot> free) {
+		try {
+			return new Worker(Accumulator.of(algorithm), free);
+		} catch (NoSuchAlgorithmException e) {
+			// availability was checked by the constructor
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Remembers the first failure and interrupts all threads, including the
+	 * reader, so nobody waits for a slot which never comes.
+	 *
+	 * @param e
+	 *            the exception
+	 * @param failure
+	 *            the first exception thrown by any of threads
+	 * @param threads
+	 *            the reader and all workers
+	 */
+	private static void fail(Exception e, AtomicReference<Exception> failure,
+			List<Thread> threads) {
+		if (failure.compareAndSet(null, e)) {
+			threads.forEach(Thread::interrupt);
+		}
+	}
+
+	/**
+	 * Reader. Fills free slots from the channel and passes every slot to all
+	 * workers until end of file is reached or a worker fails.
+	 *
+	 * @param in
+	 *            the channel
+	 * @param free
+	 *            slots that can be filled
+	 * @param workers
+	 *            the workers
+	 * @param failure
+	 *            the first exception thrown by any of workers
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InterruptedException
+	 *             if reader is interrupted
+	 */
+	private void read(FileChannel in, BlockingQueue<Slot> free,
+			List<Worker> workers, AtomicReference<Exception> failure)
+			throws IOException, InterruptedException {
+		while (failure.get() == null) {
+			Slot slot = free.take();
+			ByteBuffer buffer = ByteBuffer.wrap(slot.data);
+
+			boolean last = false;
+			long time = System.nanoTime();
+			while (buffer.hasRemaining()) {
+				if (in.read(buffer) < 0) {
+					last = true;
+					break;
+				}
+			}
+			statistics.record(Stage.READ, time);
+			statistics.addRead(buffer.position());
+
+			slot.length = buffer.position();
+			slot.last = last;
+			slot.pending.set(workers.size());
+
+			// slot mustn't be touched after it is passed to workers
+			for (Worker worker : workers) {
+				worker.queue.put(slot);
+			}
+
+			if (last) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * {@code Worker} is the thread-confined state of one algorithm.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class Worker {
+
+		/**
+		 * The algorithm.
+		 */
+		private final Accumulator accumulator;
+
+		/**
+		 * Slots filled by the reader that are waiting for this worker.
+		 */
+		private final BlockingQueue<Slot> queue;
+
+		/**
+		 * Slots that can be filled by the reader.
+		 */
+		private final BlockingQueue<Slot> free;
+
+		/**
+		 * Constructs a new {@code Worker}.
+		 *
+		 * @param accumulator
+		 *            the algorithm
+		 * @param free
+		 *            slots that can be filled by the reader
+		 */
+		public Worker(Accumulator accumulator, BlockingQueue<Slot> free) {
+			this.accumulator = accumulator;
+			this.queue = new ArrayBlockingQueue<>(bufferCount);
+			this.free = free;
+		}
+
+		/**
+		 * Digests slots until the last one. The worker which is the last to
+		 * finish a slot returns it to the reader.
+		 *
+		 * @throws InterruptedException
+		 *             if worker is interrupted
+		 */
+		public void run() throws InterruptedException {
+			while (true) {
+				Slot slot = queue.take();
+
+				long time = System.nanoTime();
+				accumulator.update(slot.data, slot.length);
+				statistics.record(Stage.DIGEST, time);
+
+				if (slot.last) {
+					return;
+				}
+
+				if (slot.pending.decrementAndGet() == 0) {
+					free.put(slot);
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@code Slot} is one element of the buffer ring, shared read-only by all
+	 * workers.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class Slot {
+
+		/**
+		 * Bytes read from the file.
+		 */
+		private final byte[] data = new byte[bufferSize];
+
+		/**
+		 * Number of bytes read.
+		 */
+		private int length;
+
+		/**
+		 * Indicates that this slot contains the last bytes of the file.
+		 */
+		private boolean last;
+
+		/**
+		 * Number of workers which haven't digested this slot yet.
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+	}
+
+	/**
+	 * {@code Accumulator} is a common interface of message digests and
+	 * checksums.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private interface Accumulator {
+
+		/**
+		 * Updates the accumulator with bytes.
+		 *
+		 * @param bytes
+		 *            the array
+		 * @param length
+		 *            number of bytes from the start of the array
+		 */
+		void update(byte[] bytes, int length);
+
+		/**
+		 * Completes the calculation.
+		 *
+		 * @return the digest
+		 */
+		byte[] digest();
+
+		/**
+		 * Returns a new accumulator of the algorithm.
+		 *
+		 * @param algorithm
+		 *            name of the algorithm
+		 * @return the accumulator
+		 * @throws NoSuchAlgorithmException
+		 *             if algorithm is not available
+		 */
+		static Accumulator of(String algorithm)
+				throws NoSuchAlgorithmException {
+			if (CRC32C.equalsIgnoreCase(algorithm)) {
+				Crc32c crc = new Crc32c();
+				return new Accumulator() {
+
+					@Override
+					public void update(byte[] bytes, int length) {
+						crc.update(bytes, 0, length);
+					}
+
+					@Override
+					public byte[] digest() {
+						return ByteBuffer.allocate(4)
+								.putInt((int) crc.getValue())
+								.array();
+					}
+				};
+			}
+
+			MessageDigest digest = MessageDigest.getInstance(algorithm);
+			return new Accumulator() {
+
+				@Override
+				public void update(byte[] bytes, int length) {
+					digest.update(bytes, 0, length);
+				}
+
+				@Override
+				public byte[] digest() {
+					return digest.digest();
+				}
+			};
+		}
+	}
+}
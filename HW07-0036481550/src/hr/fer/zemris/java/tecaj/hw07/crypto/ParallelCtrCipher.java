@@ -0,0 +1,383 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@code ParallelCtrCipher} is a class that encrypts and decrypts files using
+ * AES algorithm in counter (CTR) mode.
+ * <p>
+ * In CTR mode every block of the key stream depends only on the initialization
+ * vector and the position of the block so file is split into independent
+ * segments which are processed in parallel on a {@link ForkJoinPool}. Every
+ * segment is written at the same offset in the destination file it was read
+ * from in the source file. Counter for the segment starting at block {@code n}
+ * is initialization vector increased by {@code n}, so the result is the same as
+ * if the whole file was processed by a single cipher.
+ * <p>
+ * Encryption and decryption are the same operation in CTR mode and size of the
+ * destination file is always equal to the size of the source file.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class ParallelCtrCipher {
+
+	/**
+	 * Default segment size.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * Transformation used by this cipher.
+	 */
+	private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+
+	/**
+	 * AES block size.
+	 */
+	static final int BLOCK_SIZE = 16;
+
+	/**
+	 * The AES key.
+	 */
+	private final SecretKeySpec keySpec;
+
+	/**
+	 * The initialization vector i.e. the counter of the first block.
+	 */
+	private final byte[] initVector;
+
+	/**
+	 * Size of a segment processed by one task.
+	 */
+	private final int segmentSize;
+
+	/**
+	 * Number of threads processing segments.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Constructs a new {@code ParallelCtrCipher} with default segment size and
+	 * parallelism equal to number of available processors.
+	 *
+	 * @param keySpec
+	 *            the AES key
+	 * @param initVector
+	 *            the initialization vector
+	 */
+	public ParallelCtrCipher(SecretKeySpec keySpec, byte[] initVector) {
+		this(keySpec, initVector, DEFAULT_SEGMENT_SIZE,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a new {@code ParallelCtrCipher} with specified segment size
+	 * and parallelism.
+	 *
+	 * @param keySpec
+	 *            the AES key
+	 * @param initVector
+	 *            the initialization vector
+	 * @param segmentSize
+	 *            size of a segment processed by one task; must be a positive
+	 *            multiple of 16
+	 * @param parallelism
+	 *            number of threads processing segments
+	 * @throws IllegalArgumentException
+	 *             if any of arguments is invalid
+	 */
+	public ParallelCtrCipher(SecretKeySpec keySpec, byte[] initVector,
+			int segmentSize, int parallelism) {
+		if (keySpec == null) {
+			throw new IllegalArgumentException("Key cannot be null!");
+		}
+
+		if (initVector == null || initVector.length != BLOCK_SIZE) {
+			throw new IllegalArgumentException(
+					"Initialization vector must be 16 bytes long!");
+		}
+
+		if (segmentSize <= 0 || segmentSize % BLOCK_SIZE != 0) {
+			throw new IllegalArgumentException(
+					"Segment size must be a positive multiple of 16!");
+		}
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException(
+					"Parallelism must be a positive number!");
+		}
+
+		this.keySpec = keySpec;
+		this.initVector = initVector.clone();
+		this.segmentSize = segmentSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} and places result at
+	 * {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @param encrypt
+	 *            if set to {@code true} this method will encrypt source file
+	 *            and if set to {@code false} it will decrypt source file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher cannot be initialized with given key
+	 */
+	public void process(Path src, Path dest, boolean encrypt)
+			throws IOException, GeneralSecurityException {
+		int mode = encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE;
+
+		// fail early if key is not valid, segments only change the counter
+		Cipher.getInstance(TRANSFORMATION)
+				.init(mode, keySpec, new IvParameterSpec(initVector));
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long segments = (size + segmentSize - 1) / segmentSize;
+
+			if (segments > 0) {
+				pool.invoke(
+						new SegmentTask(
+								new Segments(in, out, size, mode),
+								0,
+								segments));
+			}
+		} catch (RuntimeException e) {
+			IOException io = ChannelUtils.findCause(e, IOException.class);
+			if (io != null) {
+				throw io;
+			}
+
+			GeneralSecurityException security = ChannelUtils
+					.findCause(e, GeneralSecurityException.class);
+			if (security != null) {
+				throw security;
+			}
+
+			throw e;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the counter of the block at given index, i.e. initialization
+	 * vector interpreted as big-endian 128-bit number increased by
+	 * {@code blockIndex}.
+	 *
+	 * @param initVector
+	 *            the initialization vector
+	 * @param blockIndex
+	 *            the index of the block
+	 * @return the counter of the block
+	 */
+	static byte[] counterAt(byte[] initVector, long blockIndex) {
+		byte[] counter = initVector.clone();
+		long carry = blockIndex;
+
+		for (int i = counter.length - 1; i >= 0 && carry != 0; i--) {
+			long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+			counter[i] = (byte) sum;
+			carry = (carry >>> 8) + (sum >>> 8);
+		}
+
+		return counter;
+	}
+
+	/**
+	 * {@code Segments} holds everything that is shared between the tasks
+	 * processing segments of one file: channels, file size, cipher mode and
+	 * buffers and cipher of every worker thread.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class Segments {
+
+		/**
+		 * Source channel.
+		 */
+		private final FileChannel in;
+
+		/**
+		 * Destination channel.
+		 */
+		private final FileChannel out;
+
+		/**
+		 * Size of the source file.
+		 */
+		private final long size;
+
+		/**
+		 * Cipher mode.
+		 */
+		private final int mode;
+
+		/**
+		 * Cipher of the worker thread.
+		 */
+		private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+		/**
+		 * Input buffer of the worker thread.
+		 */
+		private final ThreadLocal<ByteBuffer> inputs = ThreadLocal
+				.withInitial(() -> ByteBuffer.allocateDirect(segmentSize));
+
+		/**
+		 * Output buffer of the worker thread.
+		 */
+		private final ThreadLocal<ByteBuffer> outputs = ThreadLocal
+				.withInitial(() -> ByteBuffer.allocateDirect(segmentSize));
+
+		/**
+		 * Constructs a new {@code Segments} object.
+		 *
+		 * @param in
+		 *            source channel
+		 * @param out
+		 *            destination channel
+		 * @param size
+		 *            size of the source file
+		 * @param mode
+		 *            cipher mode
+		 */
+		public Segments(FileChannel in, FileChannel out, long size, int mode) {
+			this.in = in;
+			this.out = out;
+			this.size = size;
+			this.mode = mode;
+		}
+
+		/**
+		 * Reads, encrypts or decrypts and writes the segment at given index.
+		 *
+		 * @param segment
+		 *            index of the segment
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 * @throws GeneralSecurityException
+		 *             if a security error occurs
+		 */
+		public void process(long segment)
+				throws IOException, GeneralSecurityException {
+			long position = segment * segmentSize;
+			int length = (int) Math.min(segmentSize, size - position);
+
+			ByteBuffer input = inputs.get();
+			input.clear().limit(length);
+			ChannelUtils.readFully(in, input, position);
+			input.flip();
+
+			Cipher cipher = ciphers.get();
+			if (cipher == null) {
+				cipher = Cipher.getInstance(TRANSFORMATION);
+				ciphers.set(cipher);
+			}
+
+			cipher.init(
+					mode,
+					keySpec,
+					new IvParameterSpec(
+							counterAt(initVector, position / BLOCK_SIZE)));
+
+			ByteBuffer output = outputs.get();
+			output.clear();
+			cipher.doFinal(input, output);
+			output.flip();
+
+			ChannelUtils.writeFully(out, output, position);
+		}
+	}
+
+	/**
+	 * {@code SegmentTask} is a task that processes a range of segments. If the
+	 * range contains more than one segment it is split in half.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class SegmentTask extends RecursiveAction {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Segments of the file.
+		 */
+		private final transient Segments segments;
+
+		/**
+		 * Index of the first segment (inclusive).
+		 */
+		private final long from;
+
+		/**
+		 * Index of the last segment (exclusive).
+		 */
+		private final long to;
+
+		/**
+		 * Constructs a new {@code SegmentTask} processing segments from
+		 * {@code from} (inclusive) to {@code to} (exclusive).
+		 *
+		 * @param segments
+		 *            segments of the file
+		 * @param from
+		 *            index of the first segment (inclusive)
+		 * @param to
+		 *            index of the last segment (exclusive)
+		 */
+		public SegmentTask(Segments segments, long from, long to) {
+			this.segments = segments;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				long middle = (from + to) >>> 1;
+
+				invokeAll(
+						new SegmentTask(segments, from, middle),
+						new SegmentTask(segments, middle, to));
+				return;
+			}
+
+			try {
+				segments.process(from);
+			} catch (IOException | GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
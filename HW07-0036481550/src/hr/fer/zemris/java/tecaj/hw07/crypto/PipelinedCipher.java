@@ -0,0 +1,371 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.Cipher;
+
+/**
+ * {@code PipelinedCipher} is a class that encrypts or decrypts whole files
+ * using already initialized {@link Cipher} in three stages which run on
+ * separate threads:
+ * <ul>
+ * <li>reader thread fills input buffers from the source file
+ * <li>cipher thread passes input buffers to the cipher
+ * <li>writer thread writes output buffers to the destination file
+ * </ul>
+ * Stages pass a bounded ring of reusable buffers between them using blocking
+ * queues, so reading and writing overlap with the cipher work even in modes
+ * like CBC where cipher itself must process data sequentially. When all
+ * buffers are in use the faster stage waits for the slower one.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class PipelinedCipher {
+
+	/**
+	 * Default size of a buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Default number of buffers in the ring.
+	 */
+	public static final int DEFAULT_BUFFER_COUNT = 4;
+
+	/**
+	 * Initialized cipher.
+	 */
+	private final Cipher cipher;
+
+	/**
+	 * Size of a buffer.
+	 */
+	private final int bufferSize;
+
+	/**
+	 * Number of buffers in the ring.
+	 */
+	private final int bufferCount;
+
+	/**
+	 * Slots that can be filled by the reader.
+	 */
+	private BlockingQueue<Slot> free;
+
+	/**
+	 * Slots filled by the reader that are waiting for the cipher.
+	 */
+	private BlockingQueue<Slot> read;
+
+	/**
+	 * Slots processed by the cipher that are waiting for the writer.
+	 */
+	private BlockingQueue<Slot> processed;
+
+	/**
+	 * Threads running the stages.
+	 */
+	private List<Thread> threads;
+
+	/**
+	 * The first exception thrown by any of the stages.
+	 */
+	private AtomicReference<Exception> failure;
+
+	/**
+	 * Statistics updated with bytes and time of every stage.
+	 */
+	private Statistics statistics = Statistics.DISABLED;
+
+	/**
+	 * Constructs a new {@code PipelinedCipher} with default buffer size and
+	 * number of buffers.
+	 *
+	 * @param cipher
+	 *            initialized cipher
+	 */
+	public PipelinedCipher(Cipher cipher) {
+		this(cipher, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+	}
+
+	/**
+	 * Constructs a new {@code PipelinedCipher} with specified buffer size and
+	 * number of buffers.
+	 *
+	 * @param cipher
+	 *            initialized cipher
+	 * @param bufferSize
+	 *            size of a buffer
+	 * @param bufferCount
+	 *            number of buffers in the ring
+	 * @throws IllegalArgumentException
+	 *             if cipher is {@code null} or buffer size or count aren't
+	 *             positive
+	 */
+	public PipelinedCipher(Cipher cipher, int bufferSize, int bufferCount) {
+		if (cipher == null) {
+			throw new IllegalArgumentException("Cipher cannot be null!");
+		}
+
+		if (bufferSize <= 0 || bufferCount <= 0) {
+			throw new IllegalArgumentException(
+					"Buffer size and count must be positive numbers!");
+		}
+
+		this.cipher = cipher;
+		this.bufferSize = bufferSize;
+		this.bufferCount = bufferCount;
+	}
+
+	/**
+	 * Sets the statistics updated with bytes and time of every stage.
+	 *
+	 * @param statistics
+	 *            the statistics or {@code null} if statistics shouldn't be
+	 *            collected
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics == null ? Statistics.DISABLED
+				: statistics;
+	}
+
+	/**
+	 * Encrypts or decrypts file at {@code src} and places result at
+	 * {@code dest}. If destination file exists it is overwritten.
+	 *
+	 * @param src
+	 *            the path of source file
+	 * @param dest
+	 *            the path of destination file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GeneralSecurityException
+	 *             if cipher fails to process the data
+	 */
+	public synchronized void process(Path src, Path dest)
+			throws IOException, GeneralSecurityException {
+		free = new ArrayBlockingQueue<>(bufferCount);
+		read = new ArrayBlockingQueue<>(bufferCount);
+		processed = new ArrayBlockingQueue<>(bufferCount);
+		failure = new AtomicReference<>();
+
+		for (int i = 0; i < bufferCount; i++) {
+			free.add(new Slot());
+		}
+
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(
+						dest,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			threads = new ArrayList<>(3);
+			threads.add(new Thread(() -> runStage(() -> read(in)), "reader"));
+			threads.add(new Thread(() -> runStage(this::cipher), "cipher"));
+			threads.add(new Thread(() -> runStage(() -> write(out)), "writer"));
+
+			threads.forEach(Thread::start);
+
+			// a stage could fail before all other stages were started
+			if (failure.get() != null) {
+				threads.forEach(Thread::interrupt);
+			}
+
+			for (Thread thread : threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					threads.forEach(Thread::interrupt);
+					Thread.currentThread().interrupt();
+					throw new IOException("Processing was interrupted!", e);
+				}
+			}
+		}
+
+		Exception e = failure.get();
+
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e instanceof GeneralSecurityException) {
+			throw (GeneralSecurityException) e;
+		} else if (e != null) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reader stage. Fills input buffers of free slots from the source channel
+	 * until end of file is reached.
+	 *
+	 * @param in
+	 *            the source channel
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	private void read(FileChannel in) throws Exception {
+		while (true) {
+			Slot slot = free.take();
+			ByteBuffer input = slot.input;
+			input.clear();
+
+			boolean last = false;
+			long time = System.nanoTime();
+			while (input.hasRemaining()) {
+				if (in.read(input) < 0) {
+					last = true;
+					break;
+				}
+			}
+
+			statistics.record(Statistics.Stage.READ, time);
+			statistics.addRead(input.position());
+			input.flip();
+			slot.last = last;
+
+			// slot mustn't be touched after it is passed to the next stage
+			read.put(slot);
+
+			if (last) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Cipher stage. Encrypts or decrypts input buffers of read slots into their
+	 * output buffers. The last slot finishes the cipher operation.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	private void cipher() throws Exception {
+		while (true) {
+			Slot slot = read.take();
+			int required = cipher.getOutputSize(slot.input.remaining());
+
+			if (slot.output.capacity() < required) {
+				slot.output = ByteBuffer.allocate(required);
+			}
+
+			slot.output.clear();
+
+			boolean last = slot.last;
+			long time = System.nanoTime();
+			if (last) {
+				cipher.doFinal(slot.input, slot.output);
+			} else {
+				cipher.update(slot.input, slot.output);
+			}
+			statistics.record(Statistics.Stage.CIPHER, time);
+
+			slot.output.flip();
+			processed.put(slot);
+
+			if (last) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writer stage. Writes output buffers of processed slots to the
+	 * destination channel and returns slots to the reader.
+	 *
+	 * @param out
+	 *            the destination channel
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	private void write(FileChannel out) throws Exception {
+		while (true) {
+			Slot slot = processed.take();
+			statistics.addWritten(slot.output.remaining());
+
+			long time = System.nanoTime();
+			while (slot.output.hasRemaining()) {
+				out.write(slot.output);
+			}
+			statistics.record(Statistics.Stage.WRITE, time);
+
+			if (slot.last) {
+				return;
+			}
+
+			free.put(slot);
+		}
+	}
+
+	/**
+	 * Runs the stage. If stage throws an exception it is remembered and all
+	 * stages are stopped.
+	 *
+	 * @param stage
+	 *            the stage
+	 */
+	private void runStage(Stage stage) {
+		try {
+			stage.run();
+		} catch (InterruptedException e) {
+			// another stage failed and stopped the pipeline
+		} catch (Exception e) {
+			if (failure.compareAndSet(null, e)) {
+				threads.forEach(Thread::interrupt);
+			}
+		}
+	}
+
+	/**
+	 * {@code Stage} represents the body of one stage of the pipeline.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	@FunctionalInterface
+	private interface Stage {
+
+		/**
+		 * Runs the stage.
+		 *
+		 * @throws Exception
+		 *             if an error occurs
+		 */
+		void run() throws Exception;
+	}
+
+	/**
+	 * {@code Slot} is one element of the buffer ring. It contains buffer with
+	 * bytes read from the source and buffer with result of the cipher.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class Slot {
+
+		/**
+		 * Bytes read from the source.
+		 */
+		private final ByteBuffer input = ByteBuffer.allocate(bufferSize);
+
+		/**
+		 * Result of the cipher.
+		 */
+		private ByteBuffer output = ByteBuffer
+				.allocate(cipher.getOutputSize(bufferSize));
+
+		/**
+		 * Indicates that this slot contains the last bytes of the source.
+		 */
+		private boolean last;
+	}
+}
@@ -0,0 +1,100 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.PrintStream;
+
+/**
+ * {@code ProgressReporter} is a class that periodically prints the progress
+ * line of {@link Statistics} to a stream while a job runs. Line is printed
+ * from a daemon thread and is rewritten in place using carriage return, so
+ * the terminal isn't flooded. Closing the reporter prints the final line
+ * and a line break.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class ProgressReporter implements AutoCloseable {
+
+	/**
+	 * The statistics whose progress is printed.
+	 */
+	private final Statistics statistics;
+
+	/**
+	 * The stream to which progress is printed.
+	 */
+	private final PrintStream out;
+
+	/**
+	 * Thread printing the progress.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Constructs and starts a new {@code ProgressReporter}.
+	 *
+	 * @param statistics
+	 *            the statistics whose progress is printed
+	 * @param out
+	 *            the stream to which progress is printed
+	 * @param intervalMillis
+	 *            number of milliseconds between two progress lines
+	 * @throws IllegalArgumentException
+	 *             if statistics or stream is {@code null} or interval isn't
+	 *             positive
+	 */
+	public ProgressReporter(Statistics statistics, PrintStream out,
+			long intervalMillis) {
+		if (statistics == null || out == null) {
+			throw new IllegalArgumentException(
+					"Statistics and stream cannot be null!");
+		}
+
+		if (intervalMillis <= 0) {
+			throw new IllegalArgumentException(
+					"Interval must be a positive number!");
+		}
+
+		this.statistics = statistics;
+		this.out = out;
+		this.thread = new Thread(() -> {
+			try {
+				while (true) {
+					Thread.sleep(intervalMillis);
+					print();
+				}
+			} catch (InterruptedException e) {
+				// reporter was closed
+			}
+		}, "progress");
+
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Prints the current progress line over the previous one.
+	 */
+	private void print() {
+		synchronized (out) {
+			out.print("\r" + statistics.formatProgress());
+			out.flush();
+		}
+	}
+
+	/**
+	 * Stops the reporter and prints the final progress line.
+	 */
+	@Override
+	public void close() {
+		thread.interrupt();
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		print();
+		out.println();
+	}
+}
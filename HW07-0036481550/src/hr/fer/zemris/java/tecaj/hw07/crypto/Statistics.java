@@ -0,0 +1,364 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code Statistics} is a class that collects throughput statistics of one
+ * job: number of bytes read and written and time spent in every
+ * {@link Stage} of the processing loop.
+ * <p>
+ * Processing classes measure their stages with
+ * {@link #record(Stage, long)}, which adds time elapsed since the given start
+ * and returns the current time, so consecutive stages can be measured
+ * without calling {@link System#nanoTime()} twice:
+ *
+ * <pre>
+ * long time = System.nanoTime();
+ * int r = channel.read(buffer);
+ * time = statistics.record(Stage.READ, time);
+ * digest.update(block, 0, r);
+ * statistics.record(Stage.DIGEST, time);
+ * </pre>
+ *
+ * Counters are {@link LongAdder}s, so stages running on different threads can
+ * update the same object without contention. Classes which are not given
+ * statistics use {@link #DISABLED}, which ignores all updates.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class Statistics {
+
+	/**
+	 * Statistics which ignore all updates.
+	 */
+	public static final Statistics DISABLED = new Statistics(false);
+
+	/**
+	 * Number of bytes in a megabyte.
+	 */
+	private static final double MEGABYTE = 1024 * 1024;
+
+	/**
+	 * {@code Stage} is a stage of the processing loop.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	public enum Stage {
+
+		/**
+		 * Reading from the source.
+		 */
+		READ,
+
+		/**
+		 * Compressing or decompressing.
+		 */
+		COMPRESS,
+
+		/**
+		 * Encrypting or decrypting.
+		 */
+		CIPHER,
+
+		/**
+		 * Calculating digest.
+		 */
+		DIGEST,
+
+		/**
+		 * Writing to the destination.
+		 */
+		WRITE
+	}
+
+	/**
+	 * Flag indicating whether updates are recorded.
+	 */
+	private final boolean enabled;
+
+	/**
+	 * Number of bytes read.
+	 */
+	private final LongAdder bytesRead = new LongAdder();
+
+	/**
+	 * Number of bytes written.
+	 */
+	private final LongAdder bytesWritten = new LongAdder();
+
+	/**
+	 * Nanoseconds spent in every stage, indexed by ordinal of the stage.
+	 */
+	private final LongAdder[] stageTimes = new LongAdder[Stage.values().length];
+
+	/**
+	 * Time at which statistics were created, in nanoseconds.
+	 */
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * Time at which job finished, in nanoseconds; 0 if it is still running.
+	 */
+	private volatile long endTime;
+
+	/**
+	 * Expected number of bytes to read; 0 if unknown.
+	 */
+	private volatile long totalBytes;
+
+	/**
+	 * Constructs a new enabled {@code Statistics}.
+	 */
+	public Statistics() {
+		this(true);
+	}
+
+	/**
+	 * Constructs a new {@code Statistics}.
+	 *
+	 * @param enabled
+	 *            flag indicating whether updates are recorded
+	 */
+	private Statistics(boolean enabled) {
+		this.enabled = enabled;
+
+		for (int i = 0; i < stageTimes.length; i++) {
+			stageTimes[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Adds time elapsed since {@code start} to the stage.
+	 *
+	 * @param stage
+	 *            the stage
+	 * @param start
+	 *            start of the measured interval, as returned by
+	 *            {@link System#nanoTime()}
+	 * @return the current time, usable as start of the next interval
+	 */
+	public long record(Stage stage, long start) {
+		long now = System.nanoTime();
+
+		if (enabled) {
+			stageTimes[stage.ordinal()].add(now - start);
+		}
+
+		return now;
+	}
+
+	/**
+	 * Adds bytes to the number of bytes read.
+	 *
+	 * @param bytes
+	 *            number of bytes read
+	 */
+	public void addRead(long bytes) {
+		if (enabled && bytes > 0) {
+			bytesRead.add(bytes);
+		}
+	}
+
+	/**
+	 * Adds bytes to the number of bytes written.
+	 *
+	 * @param bytes
+	 *            number of bytes written
+	 */
+	public void addWritten(long bytes) {
+		if (enabled && bytes > 0) {
+			bytesWritten.add(bytes);
+		}
+	}
+
+	/**
+	 * Checks if updates are recorded.
+	 *
+	 * @return {@code true} if updates are recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets the expected number of bytes to read, used for the progress and
+	 * estimated time of arrival.
+	 *
+	 * @param totalBytes
+	 *            expected number of bytes to read; 0 if unknown
+	 */
+	public void setTotalBytes(long totalBytes) {
+		this.totalBytes = totalBytes;
+	}
+
+	/**
+	 * Marks the job as finished. Elapsed time doesn't grow after this call.
+	 */
+	public void finish() {
+		if (endTime == 0) {
+			endTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes read.
+	 *
+	 * @return the number of bytes read
+	 */
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * Returns the number of bytes written.
+	 *
+	 * @return the number of bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * Returns the time spent in the stage.
+	 *
+	 * @param stage
+	 *            the stage
+	 * @return the time spent in the stage, in nanoseconds
+	 */
+	public long getStageTime(Stage stage) {
+		return stageTimes[stage.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the time elapsed since statistics were created until now or
+	 * until the job finished.
+	 *
+	 * @return the elapsed time, in nanoseconds
+	 */
+	public long getElapsedTime() {
+		long end = endTime;
+		return (end == 0 ? System.nanoTime() : end) - startTime;
+	}
+
+	/**
+	 * Returns the average read throughput.
+	 *
+	 * @return the throughput, in megabytes per second
+	 */
+	public double getThroughput() {
+		double seconds = getElapsedTime() / 1e9;
+		return seconds == 0 ? 0 : getBytesRead() / MEGABYTE / seconds;
+	}
+
+	/**
+	 * Returns a line describing the current progress: bytes read, percentage
+	 * and estimated time of arrival if total is known, and throughput.
+	 *
+	 * @return the progress line
+	 */
+	public String formatProgress() {
+		long read = getBytesRead();
+		long total = totalBytes;
+		double throughput = getThroughput();
+
+		if (total <= 0) {
+			return String.format(
+					Messages.PROGRESS_UNKNOWN_MESSAGE,
+					read / MEGABYTE,
+					throughput);
+		}
+
+		long eta = throughput == 0 ? 0
+				: (long) ((total - read) / MEGABYTE / throughput);
+
+		return String.format(
+				Messages.PROGRESS_MESSAGE,
+				read / MEGABYTE,
+				total / MEGABYTE,
+				Math.min(100, read * 100 / total),
+				throughput,
+				eta / 60,
+				eta % 60);
+	}
+
+	/**
+	 * Stores the statistics to a properties file together with a description
+	 * of the host, so results of different hosts can be compared. Times are
+	 * stored in milliseconds.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @param job
+	 *            description of the job, e.g. the command
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void store(Path file, String job) throws IOException {
+		Properties properties = new Properties();
+
+		properties.setProperty("job", job);
+		properties.setProperty("host", hostName());
+		properties.setProperty("os", System.getProperty("os.name") + " "
+				+ System.getProperty("os.arch"));
+		properties.setProperty("java", System.getProperty("java.version"));
+		properties.setProperty(
+				"processors",
+				Integer.toString(Runtime.getRuntime().availableProcessors()));
+		properties.setProperty("bytes.read", Long.toString(getBytesRead()));
+		properties.setProperty(
+				"bytes.written",
+				Long.toString(getBytesWritten()));
+		properties.setProperty("time.total", millis(getElapsedTime()));
+
+		for (Stage stage : Stage.values()) {
+			properties.setProperty(
+					"time." + stage.name().toLowerCase(),
+					millis(getStageTime(stage)));
+		}
+
+		properties.setProperty(
+				"throughput",
+				String.format("%.2f", getThroughput()));
+
+		try (Writer writer = Files
+				.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			properties.store(writer, "Crypto statistics, times in ms, "
+					+ "throughput in MB/s");
+		}
+	}
+
+	/**
+	 * Converts nanoseconds to milliseconds.
+	 *
+	 * @param nanos
+	 *            nanoseconds
+	 * @return milliseconds as string
+	 */
+	private static String millis(long nanos) {
+		return Long.toString(TimeUnit.NANOSECONDS.toMillis(nanos));
+	}
+
+	/**
+	 * Returns the name of this host.
+	 *
+	 * @return the name of this host or {@code unknown} if it cannot be
+	 *         determined
+	 */
+	private static String hostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			return "unknown";
+		}
+	}
+}
@@ -0,0 +1,550 @@
+package hr.fer.zemris.java.tecaj.hw07.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code TreeDigester} is a class that calculates SHA-256 tree hash (Merkle
+ * root) of files.
+ * <p>
+ * File is split into chunks of fixed size and every chunk is hashed
+ * independently, so chunks are hashed in parallel by a fixed number of worker
+ * threads. Digest of a chunk is {@code SHA-256(0x00 || chunk)} and digest of
+ * an inner node is {@code SHA-256(0x01 || left || right)}; different prefixes
+ * make sure a leaf can never be mistaken for a node. If a level has odd number
+ * of nodes the last one is promoted to the next level unchanged. Empty file
+ * has exactly one, empty, chunk.
+ * <p>
+ * Digests of all chunks are kept in a {@link TreeHash} which can be stored
+ * into a sidecar file, so later a single chunk can be re-verified without
+ * reading the rest of the file.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class TreeDigester {
+
+	/**
+	 * Default chunk size.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * Algorithm used for hashing chunks and nodes.
+	 */
+	private static final String ALGORITHM = "SHA-256";
+
+	/**
+	 * Prefix of leaf digests.
+	 */
+	private static final byte LEAF_PREFIX = 0x00;
+
+	/**
+	 * Prefix of inner node digests.
+	 */
+	private static final byte NODE_PREFIX = 0x01;
+
+	/**
+	 * Size of a chunk.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Number of worker threads.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Constructs a new {@code TreeDigester} with default chunk size and
+	 * parallelism equal to number of available processors.
+	 */
+	public TreeDigester() {
+		this(DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a new {@code TreeDigester} with specified chunk size and
+	 * parallelism.
+	 *
+	 * @param chunkSize
+	 *            size of a chunk
+	 * @param parallelism
+	 *            number of worker threads
+	 * @throws IllegalArgumentException
+	 *             if chunk size or parallelism isn't positive
+	 */
+	public TreeDigester(int chunkSize, int parallelism) {
+		if (chunkSize <= 0 || parallelism <= 0) {
+			throw new IllegalArgumentException(
+					"Chunk size and parallelism must be positive numbers!");
+		}
+
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Calculates digests of all chunks of the file and its tree hash.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @return the tree hash of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	public TreeHash digest(Path file)
+			throws IOException, NoSuchAlgorithmException {
+		// fail early if algorithm isn't available to worker threads
+		MessageDigest.getInstance(ALGORITHM);
+
+		try (FileChannel channel = FileChannel
+				.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int chunks = chunkCount(size, chunkSize);
+			byte[][] leaves = new byte[chunks][];
+
+			int threads = Math.min(parallelism, chunks);
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			AtomicInteger next = new AtomicInteger();
+
+			try {
+				List<Future<Void>> workers = new ArrayList<>(threads);
+
+				for (int i = 0; i < threads; i++) {
+					workers.add(pool.submit(() -> {
+						MessageDigest digest = MessageDigest
+								.getInstance(ALGORITHM);
+						byte[] block = new byte[(int) Math
+								.min(chunkSize, Math.max(size, 1))];
+
+						for (int c; (c = next.getAndIncrement()) < chunks;) {
+							leaves[c] = digestChunk(
+									channel, size, chunkSize, c, digest, block);
+						}
+
+						return null;
+					}));
+				}
+
+				for (Future<Void> worker : workers) {
+					worker.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Digesting was interrupted!", e);
+			} catch (ExecutionException e) {
+				IOException io = ChannelUtils
+						.findCause(e, IOException.class);
+				throw io != null ? io : new IOException(e.getMessage(), e);
+			} finally {
+				pool.shutdownNow();
+			}
+
+			return new TreeHash(chunkSize, size, leaves);
+		}
+	}
+
+	/**
+	 * Re-calculates digest of a single chunk of the file and compares it with
+	 * the digest stored in the tree hash. Only that chunk is read.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @param tree
+	 *            the stored tree hash of the file
+	 * @param chunk
+	 *            index of the chunk
+	 * @return {@code true} if chunk matches its stored digest
+	 * @throws IOException
+	 *             if an I/O error occurs or size of the file differs from the
+	 *             size stored in the tree hash
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no chunk with given index
+	 */
+	public static boolean verifyChunk(Path file, TreeHash tree, int chunk)
+			throws IOException, NoSuchAlgorithmException {
+		if (chunk < 0 || chunk >= tree.getChunkCount()) {
+			throw new IndexOutOfBoundsException(
+					"Chunk index must be between 0 and "
+							+ (tree.getChunkCount() - 1) + "!");
+		}
+
+		try (FileChannel channel = FileChannel
+				.open(file, StandardOpenOption.READ)) {
+			if (channel.size() != tree.getSize()) {
+				throw new IOException("File size has changed from "
+						+ tree.getSize() + " to " + channel.size() + "!");
+			}
+
+			int length = (int) Math.min(
+					tree.getChunkSize(),
+					tree.getSize() - (long) chunk * tree.getChunkSize());
+
+			byte[] actual = digestChunk(
+					channel,
+					tree.getSize(),
+					tree.getChunkSize(),
+					chunk,
+					MessageDigest.getInstance(ALGORITHM),
+					new byte[Math.max(length, 0)]);
+
+			return MessageDigest.isEqual(tree.getLeaf(chunk), actual);
+		}
+	}
+
+	/**
+	 * Returns the number of chunks of a file of given size. Empty file has one
+	 * chunk.
+	 *
+	 * @param size
+	 *            size of the file
+	 * @param chunkSize
+	 *            size of a chunk
+	 * @return the number of chunks
+	 * @throws IllegalArgumentException
+	 *             if file has too many chunks
+	 */
+	static int chunkCount(long size, int chunkSize) {
+		long chunks = Math.max(
+				1,
+				size / chunkSize + (size % chunkSize == 0 ? 0 : 1));
+
+		if (chunks > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"File has too many chunks, chunk size must be larger!");
+		}
+
+		return (int) chunks;
+	}
+
+	/**
+	 * Reads the chunk at given index and returns its leaf digest.
+	 *
+	 * @param channel
+	 *            the file channel
+	 * @param size
+	 *            size of the file
+	 * @param chunkSize
+	 *            size of a chunk
+	 * @param chunk
+	 *            index of the chunk
+	 * @param digest
+	 *            the digest used for hashing
+	 * @param block
+	 *            array into which chunk is read; must be large enough
+	 * @return the leaf digest of the chunk
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static byte[] digestChunk(FileChannel channel, long size,
+			int chunkSize, int chunk, MessageDigest digest, byte[] block)
+			throws IOException {
+		long position = (long) chunk * chunkSize;
+		int length = (int) Math.max(0, Math.min(chunkSize, size - position));
+
+		ChannelUtils.readFully(
+				channel,
+				ByteBuffer.wrap(block, 0, length),
+				position);
+
+		digest.reset();
+		digest.update(LEAF_PREFIX);
+		digest.update(block, 0, length);
+		return digest.digest();
+	}
+
+	/**
+	 * Combines leaf digests into the root digest of the tree.
+	 *
+	 * @param leaves
+	 *            the leaf digests
+	 * @return the root digest
+	 * @throws NoSuchAlgorithmException
+	 *             if SHA-256 algorithm isn't available
+	 */
+	static byte[] root(byte[][] leaves) throws NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+		byte[][] level = leaves;
+
+		while (level.length > 1) {
+			byte[][] parents = new byte[(level.length + 1) / 2][];
+
+			for (int i = 0; i < parents.length; i++) {
+				if (2 * i + 1 == level.length) {
+					parents[i] = level[2 * i];
+					continue;
+				}
+
+				digest.update(NODE_PREFIX);
+				digest.update(level[2 * i]);
+				digest.update(level[2 * i + 1]);
+				parents[i] = digest.digest();
+			}
+
+			level = parents;
+		}
+
+		return level[0];
+	}
+
+	/**
+	 * {@code TreeHash} holds chunk size, file size and digests of all chunks of
+	 * one file. It can be stored into and loaded from a text file with the
+	 * following format:
+	 *
+	 * <pre>
+	 * treesha256 &lt;chunk_size&gt; &lt;file_size&gt; &lt;root_digest&gt;
+	 * &lt;digest of chunk 0&gt;
+	 * &lt;digest of chunk 1&gt;
+	 * ...
+	 * </pre>
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	public static class TreeHash {
+
+		/**
+		 * Header keyword of the stored tree hash.
+		 */
+		private static final String HEADER = "treesha256";
+
+		/**
+		 * Size of a chunk.
+		 */
+		private final int chunkSize;
+
+		/**
+		 * Size of the file.
+		 */
+		private final long size;
+
+		/**
+		 * Digests of the chunks.
+		 */
+		private final byte[][] leaves;
+
+		/**
+		 * The root digest.
+		 */
+		private final byte[] root;
+
+		/**
+		 * Constructs a new {@code TreeHash} and calculates its root digest.
+		 *
+		 * @param chunkSize
+		 *            size of a chunk
+		 * @param size
+		 *            size of the file
+		 * @param leaves
+		 *            digests of the chunks
+		 * @throws IllegalArgumentException
+		 *             if chunk size isn't positive, size is negative or
+		 *             number of digests doesn't match the number of chunks
+		 * @throws NoSuchAlgorithmException
+		 *             if SHA-256 algorithm isn't available
+		 */
+		public TreeHash(int chunkSize, long size, byte[][] leaves)
+				throws NoSuchAlgorithmException {
+			if (chunkSize <= 0 || size < 0) {
+				throw new IllegalArgumentException(
+						"Chunk size must be positive and file size"
+								+ " non-negative!");
+			}
+			if (leaves.length != chunkCount(size, chunkSize)) {
+				throw new IllegalArgumentException(
+						"Number of chunk digests doesn't match file size!");
+			}
+
+			this.chunkSize = chunkSize;
+			this.size = size;
+			this.leaves = leaves;
+			this.root = root(leaves);
+		}
+
+		/**
+		 * Loads the tree hash from the file. Root digest stored in the file
+		 * must match the root digest of the stored chunk digests.
+		 *
+		 * @param file
+		 *            the path of the file
+		 * @return the loaded tree hash
+		 * @throws IOException
+		 *             if an I/O error occurs or file is not of right format
+		 * @throws NoSuchAlgorithmException
+		 *             if SHA-256 algorithm isn't available
+		 */
+		public static TreeHash load(Path file)
+				throws IOException, NoSuchAlgorithmException {
+			List<String> lines = Files
+					.readAllLines(file, StandardCharsets.UTF_8);
+			String[] header = lines.isEmpty() ? new String[0]
+					: lines.get(0).trim().split("\\s+");
+
+			if (header.length != 4 || !header[0].equals(HEADER)) {
+				throw new IOException(file + " is not a tree hash file!");
+			}
+
+			TreeHash tree;
+			try {
+				byte[][] leaves = new byte[lines.size() - 1][];
+
+				for (int i = 0; i < leaves.length; i++) {
+					leaves[i] = parseDigest(lines.get(i + 1).trim());
+				}
+
+				tree = new TreeHash(
+						Integer.parseInt(header[1]),
+						Long.parseLong(header[2]),
+						leaves);
+
+				if (!MessageDigest
+						.isEqual(tree.root, parseDigest(header[3]))) {
+					throw new IllegalArgumentException(
+							"Stored root doesn't match stored chunk digests!");
+				}
+			} catch (IllegalArgumentException e) {
+				throw new IOException(
+						file + " is corrupted: " + e.getMessage(), e);
+			}
+
+			return tree;
+		}
+
+		/**
+		 * Stores the tree hash into the file. If file exists it is
+		 * overwritten.
+		 *
+		 * @param file
+		 *            the path of the file
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public void store(Path file) throws IOException {
+			List<String> lines = new ArrayList<>(leaves.length + 1);
+
+			lines.add(String.format(
+					"%s %d %d %s",
+					HEADER,
+					chunkSize,
+					size,
+					Hex.encode(root)));
+
+			for (byte[] leaf : leaves) {
+				lines.add(Hex.encode(leaf));
+			}
+
+			Files.write(file, lines, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Returns indexes of chunks whose digests differ from digests of the
+		 * same chunks in the other tree hash. Tree hashes must have the same
+		 * chunk size and file size.
+		 *
+		 * @param other
+		 *            the other tree hash
+		 * @return indexes of chunks that differ
+		 * @throws IllegalArgumentException
+		 *             if tree hashes have different chunk or file size
+		 */
+		public List<Integer> differingChunks(TreeHash other) {
+			if (chunkSize != other.chunkSize || size != other.size) {
+				throw new IllegalArgumentException(
+						"Tree hashes have different chunk or file size!");
+			}
+
+			List<Integer> differing = new ArrayList<>();
+			for (int i = 0; i < leaves.length; i++) {
+				if (!MessageDigest.isEqual(leaves[i], other.leaves[i])) {
+					differing.add(i);
+				}
+			}
+
+			return differing;
+		}
+
+		/**
+		 * Returns the size of a chunk.
+		 *
+		 * @return the size of a chunk
+		 */
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		/**
+		 * Returns the size of the file.
+		 *
+		 * @return the size of the file
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the number of chunks.
+		 *
+		 * @return the number of chunks
+		 */
+		public int getChunkCount() {
+			return leaves.length;
+		}
+
+		/**
+		 * Returns the digest of the chunk at given index.
+		 *
+		 * @param chunk
+		 *            index of the chunk
+		 * @return the digest of the chunk
+		 */
+		public byte[] getLeaf(int chunk) {
+			return leaves[chunk].clone();
+		}
+
+		/**
+		 * Returns the root digest.
+		 *
+		 * @return the root digest
+		 */
+		public byte[] getRoot() {
+			return root.clone();
+		}
+
+		/**
+		 * Parses the hex-encoded SHA-256 digest.
+		 *
+		 * @param hex
+		 *            the hex-encoded digest
+		 * @return the digest
+		 * @throws IllegalArgumentException
+		 *             if string isn't a hex-encoded SHA-256 digest
+		 */
+		private static byte[] parseDigest(String hex) {
+			if (!hex.matches("^[A-Fa-f0-9]{64}$")) {
+				throw new IllegalArgumentException(
+						"Invalid digest " + hex + "!");
+			}
+
+			return Hex.decode(hex);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package hr.fer.zemris.java.tecaj.hw07.shell;
+
+/**
+ * {@code FlushPolicy} determines when buffered output of the shell is
+ * written out. Output is always written out when the buffer is full and when
+ * the shell exits.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public enum FlushPolicy {
+	/**
+	 * Output is flushed whenever input is read, so the prompt and questions
+	 * are visible before the user answers them.
+	 */
+	PROMPT,
+
+	/**
+	 * Output is flushed only when the buffer is full; suitable for scripts,
+	 * where nobody waits for the prompt.
+	 */
+	SIZE,
+
+	/**
+	 * Output is flushed after every command and whenever input is read.
+	 */
+	COMMAND;
+}
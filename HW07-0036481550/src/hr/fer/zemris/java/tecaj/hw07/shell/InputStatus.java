@@ -1,20 +1,20 @@
-package hr.fer.zemris.java.tecaj.hw07.shell;
-
-/**
- * {@code InputStatus} represents the status of input of the shell.
- * 
- * @author Karlo Vrbić
- * @version 1.0
- */
-public enum InputStatus {
-
-	/**
-	 * Shell accepts one line input.
-	 */
-	ONELINE,
-	
-	/**
-	 * Shell accepts multi line input
-	 */
-	MORELINES;
-}
+package hr.fer.zemris.java.tecaj.hw07.shell;
+
+/**
+ * {@code InputStatus} represents the status of input of the shell.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public enum InputStatus {
+
+	/**
+	 * Shell accepts one line input.
+	 */
+	ONELINE,
+	
+	/**
+	 * Shell accepts multi line input
+	 */
+	MORELINES;
+}
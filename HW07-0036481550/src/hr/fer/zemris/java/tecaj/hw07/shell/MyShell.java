@@ -1,224 +1,526 @@
-package hr.fer.zemris.java.tecaj.hw07.shell;
-
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-
-import hr.fer.zemris.java.tecaj.hw07.shell.commands.CompositeCommand;
-import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
-import hr.fer.zemris.java.tecaj.hw07.shell.environments.Environment;
-import hr.fer.zemris.java.tecaj.hw07.shell.environments.ShellEnvironment;
-
-/**
- * {@code MyShell} is class with entry point to this program.
- * <p>
- * {@code MyShell} program accepts user commands and executes them. Currently
- * supported commands are:
- * <ul>
- * <li>{@code cat [FILE] [CHARSET]}
- * <li>{@code charsets}
- * <li>{@code copy [SRC] [DEST]}
- * <li>{@code hexdump [FILE]}
- * <li>{@code ls [DIRECTORY]}
- * <li>{@code mkdir [DIRECTORY]}
- * <li>{@code tree [DIRECTORY]}
- * <li>{@code symbol PROMPT [CHAR]}
- * <li>{@code symbol MORELINES[CHAR]}
- * </ul>
- * <br>
- * For more information about using these commands look up their documentation.
- * <p>
- * This programs support multiple shells. If you want to change shell, either
- * existing one or new one, type "{@code symbol PROMPT [CHAR]}". Default
- * character indicating prompt is {@value ShellEnvironment#DEFAULT_PROMPT} but
- * can be changed with command "{@code symbol PROMPT [CHAR]}" . If [CHAR]
- * argument is left out shell will display current symbol for {@code PROMPT}.
- * <p>
- * {@code MyShell} can accept user input two modes: {@code ONELINE} and
- * {@code MORELINES} command input is supported. Default character indicating
- * that command is going to be written in {@code MORELINES} mode is
- * {@value ShellEnvironment#DEFAULT_MORELINE} but can be changed with command
- * "{@code symbol MORELINES [CHAR]}". If [CHAR] argument is left out shell will
- * display current symbol for {@code MORELINES}.
- * <p>
- * When in {@code MORELINES} mode lies after first doesn't start with
- * {@code PROMPT} symbol but with {@code MULTILINE} symbol. Default character
- * indicating that shell is in {@code MORELINES} mode is
- * {@value ShellEnvironment#DEFAULT_MULTILINE} but can be changed with command
- * "{@code symbol MULTILINES [CHAR]}".
- * 
- * @author Karlo Vrbić
- * @version 1.0
- */
-public class MyShell {
-
-	/**
-	 * Current environment used by this shell.
-	 */
-	private static Environment env;
-
-	/**
-	 * Map of all environments
-	 */
-	private static Map<Character, Environment> environments;
-
-	/**
-	 * The status of the shell.
-	 */
-	private static ShellStatus shellStatus;
-
-	static {
-		shellStatus = ShellStatus.CONTINUE;
-
-		env = new ShellEnvironment();
-
-		environments = new HashMap<>(4);
-		environments.put(env.getPromptSymbol(), env);
-	}
-
-	/**
-	 * Starting point of a program.
-	 * 
-	 * @param args
-	 *            Command-line argument
-	 */
-	public static void main(String[] args) {
-		try {
-			env.writeln("Welcome to MyShell v 1.0");
-		} catch (IOException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}
-
-		do {
-			try {
-				env.write(env.getPromptSymbol() + " ");
-				String input = handleInput();
-
-				shellStatus = executeCommand(input);
-			} catch (IOException e) {
-				try {
-					env.writeln("Error: input/output exception occurred!");
-				} catch (IOException ignorable) {
-				}
-			} catch (RuntimeException e) {
-			}
-		} while (shellStatus.equals(ShellStatus.CONTINUE));
-	}
-
-	/**
-	 * Handles all the input from user.
-	 * 
-	 * @return string which user inputed to shell
-	 * @throws IOException
-	 *             if i/o exception occurred
-	 */
-	private static String handleInput() throws IOException {
-		StringBuilder sb = new StringBuilder();
-
-		sb.append(env.readLine());
-
-		while (sb.toString().trim().endsWith(
-				env.getMorelinesSymbol().toString())) {
-			env.writeln(env.getMultilineSymbol() + " ");
-			sb.append(env.readLine());
-		}
-
-		return sb.toString().trim().replace(
-				env.getMorelinesSymbol().toString(),
-				"");
-	}
-
-	/**
-	 * Executes all the command.
-	 * 
-	 * @param cmd
-	 *            command name and arguments
-	 * @return status of the shell after command has been executed
-	 * @throws IOException
-	 *             if i/o exception occurred
-	 */
-	private static ShellStatus executeCommand(String cmd) throws IOException {
-		cmd = cmd.trim();
-
-		if (cmd.isEmpty()) {
-			return ShellStatus.CONTINUE;
-		}
-
-		if (cmd.matches("^symbol\\s+PROMPT\\s*.?$")) {
-			return handleSymbolPrompt(cmd);
-		} else {
-			String[] args = cmd.split("\\s+", 2);
-
-			ShellCommand command = null;
-			try {
-				command = CompositeCommand.get(args[0]);
-			} catch (IllegalArgumentException e) {
-				env.writeln(
-						String.format(
-								"Error: '%s' is not recognized as a command!",
-								args[0]));
-			}
-
-			if (args.length == 2) {
-				return command.executeCommand(env, args[1]);
-			} else if (args.length == 1) {
-				return command.executeCommand(env, null);
-			}
-		}
-
-		return ShellStatus.CONTINUE;
-	}
-
-	/**
-	 * Handles 'symbol PROMPT' command. Basically same as other symbol commands.
-	 * 
-	 * @param cmd
-	 *            arguments of the command
-	 * @return status of the shell after command has been executed
-	 */
-	private static ShellStatus handleSymbolPrompt(String cmd) {
-		String[] args = cmd.split("\\s+");
-
-		if (args.length == 2) {
-			try {
-				env.writeln(
-						String.format(
-								"Symbol for PROMPT is '%c'",
-								env.getMultilineSymbol()));
-			} catch (IOException ignorable) {
-			}
-			return ShellStatus.CONTINUE;
-		} else if (args.length == 3) {
-
-			Character newPrompt = args[2].charAt(0);
-
-			environments.put(env.getPromptSymbol(), env);
-
-			// if shell with same prompt exists change current environment
-			// to that and if it doesn't exist create new environment
-			if (environments.containsKey(newPrompt)) {
-				env = environments.get(newPrompt);
-			} else {
-				env = new ShellEnvironment(newPrompt);
-			}
-
-			try {
-				env.writeln(
-						String.format(
-								"Symbol for PROMPT changed from '%c' to '%c'",
-								env.getMultilineSymbol(),
-								newPrompt));
-			} catch (IOException ignorable) {
-			}
-		} else {
-			try {
-				env.writeln(
-						"Error: Invalid arguments for the command 'symbol'!");
-			} catch (IOException ignorable) {
-			}
-		}
-
-		return ShellStatus.CONTINUE;
-	}
-}
+package hr.fer.zemris.java.tecaj.hw07.shell;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.CompositeCommand;
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
+import hr.fer.zemris.java.tecaj.hw07.shell.environments.ShellEnvironment;
+import hr.fer.zemris.java.tecaj.hw07.shell.environments.ShellOutput;
+
+/**
+ * {@code MyShell} is class with entry point to this program.
+ * <p>
+ * {@code MyShell} program accepts user commands and executes them. Currently
+ * supported commands are:
+ * <ul>
+ * <li>{@code cat [FILE] [CHARSET]}
+ * <li>{@code charsets}
+ * <li>{@code copy [SRC] [DEST]}
+ * <li>{@code filter [-v] [REGEX]}
+ * <li>{@code hexdump [FILE]}
+ * <li>{@code ls [DIRECTORY]}
+ * <li>{@code mkdir [DIRECTORY]}
+ * <li>{@code tree [DIRECTORY]}
+ * <li>{@code symbol PROMPT [CHAR]}
+ * <li>{@code symbol MORELINES[CHAR]}
+ * </ul>
+ * <br>
+ * For more information about using these commands look up their documentation.
+ * <p>
+ * This programs support multiple shells. If you want to change shell, either
+ * existing one or new one, type "{@code symbol PROMPT [CHAR]}". Default
+ * character indicating prompt is {@value ShellEnvironment#DEFAULT_PROMPT} but
+ * can be changed with command "{@code symbol PROMPT [CHAR]}" . If [CHAR]
+ * argument is left out shell will display current symbol for {@code PROMPT}.
+ * <p>
+ * {@code MyShell} can accept user input two modes: {@code ONELINE} and
+ * {@code MORELINES} command input is supported. Default character indicating
+ * that command is going to be written in {@code MORELINES} mode is
+ * {@value ShellEnvironment#DEFAULT_MORELINE} but can be changed with command
+ * "{@code symbol MORELINES [CHAR]}". If [CHAR] argument is left out shell will
+ * display current symbol for {@code MORELINES}.
+ * <p>
+ * When in {@code MORELINES} mode lies after first doesn't start with
+ * {@code PROMPT} symbol but with {@code MULTILINE} symbol. Default character
+ * indicating that shell is in {@code MORELINES} mode is
+ * {@value ShellEnvironment#DEFAULT_MULTILINE} but can be changed with command
+ * "{@code symbol MULTILINES [CHAR]}".
+ * <p>
+ * Only a {@code MORELINES} symbol at the end of a line continues the command
+ * and is removed, so the same character elsewhere in the command, e.g. in
+ * regular expression {@code \.java$}, is left intact.
+ * <p>
+ * Output is buffered. Option {@code --flush PROMPT|SIZE|COMMAND} given on
+ * the command line selects the {@link FlushPolicy}; default is
+ * {@link FlushPolicy#PROMPT}.
+ * <p>
+ * Input and output are decoded and encoded in the default charset of the
+ * platform unless option {@code --charset NAME} selects another one, e.g.
+ * {@code --charset UTF-8} for a UTF-8 script on a platform with another
+ * default. Option {@code --buffer SIZE} sets size of the input and output
+ * buffers in characters; default is
+ * {@value ShellEnvironment#DEFAULT_BUFFER_SIZE}.
+ * <p>
+ * Shell can also run commands without a user, many commands in one JVM:
+ * <ul>
+ * <li>{@code MyShell -f SCRIPT} reads commands from the file {@code SCRIPT}
+ * <li>{@code MyShell --batch} reads commands from standard input
+ * </ul>
+ * In batch mode shell writes no welcome message, prompts or {@code MULTILINE}
+ * symbols, only output of commands, and the default flush policy is
+ * {@link FlushPolicy#SIZE}. Shell ends at the end of input or on
+ * {@code exit}. With option {@code --stop-on-error} shell stops at the first
+ * command which fails, reports its line on standard error and exits with
+ * status {@value #EXIT_COMMAND_FAILED}; invalid options or an unreadable
+ * script end it with status {@value #EXIT_USAGE}. Commands get no input in
+ * batch mode, so they never consume lines of the script: e.g. {@code copy}
+ * refuses to overwrite an existing file and fails, and {@code filter} outside
+ * of a pipeline reads nothing.
+ * <p>
+ * Commands separated by {@code |} with whitespace on both sides form a
+ * pipeline, e.g. {@code tree . | filter \.java$}; a {@code |} without
+ * surrounding whitespace, e.g. in {@code filter a|b}, and arguments of
+ * {@code symbol} are not separators. Every command runs on its own thread and
+ * its output is streamed to the next command through a bounded in-memory
+ * pipe, so the next command works while the previous one still produces
+ * output. See {@link Pipeline}.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class MyShell {
+
+	/**
+	 * Exit status when shell stopped on a failed command.
+	 */
+	public static final int EXIT_COMMAND_FAILED = 1;
+
+	/**
+	 * Exit status when options are invalid or script cannot be read.
+	 */
+	public static final int EXIT_USAGE = 2;
+
+	/**
+	 * Usage of the program.
+	 */
+	private static final String USAGE = "Usage: MyShell [-f SCRIPT | --batch]"
+			+ " [--stop-on-error] [--flush PROMPT|SIZE|COMMAND]"
+			+ " [--charset NAME] [--buffer SIZE]";
+
+	/**
+	 * Current environment used by this shell.
+	 */
+	private static ShellEnvironment env;
+
+	/**
+	 * Input shared by all environments.
+	 */
+	private static BufferedReader input;
+
+	/**
+	 * Output shared by all environments.
+	 */
+	private static ShellOutput output;
+
+	/**
+	 * Path of the script given by {@code -f} or {@code null}.
+	 */
+	private static String script;
+
+	/**
+	 * Whether commands are run without prompts.
+	 */
+	private static boolean batch;
+
+	/**
+	 * Whether shell stops at the first failed command.
+	 */
+	private static boolean stopOnError;
+
+	/**
+	 * Flush policy given by {@code --flush} or {@code null}.
+	 */
+	private static FlushPolicy flushPolicy;
+
+	/**
+	 * Charset of input and output given by {@code --charset} or
+	 * {@code null}.
+	 */
+	private static Charset charset;
+
+	/**
+	 * Size of input and output buffers given by {@code --buffer} or 0.
+	 */
+	private static int bufferSize;
+
+	/**
+	 * Number of input lines read so far.
+	 */
+	private static int lineNumber;
+
+	/**
+	 * Map of all environments
+	 */
+	private static Map<Character, ShellEnvironment> environments;
+
+	/**
+	 * The status of the shell.
+	 */
+	private static ShellStatus shellStatus;
+
+	static {
+		shellStatus = ShellStatus.CONTINUE;
+
+		environments = new HashMap<>(4);
+	}
+
+	/**
+	 * Starting point of a program.
+	 * 
+	 * @param args
+	 *            Command-line argument
+	 */
+	public static void main(String[] args) {
+		if (!parseOptions(args)) {
+			System.err.println(USAGE);
+			System.exit(EXIT_USAGE);
+		}
+
+		try {
+			openStreams();
+		} catch (IOException e) {
+			System.err.println(
+					"Error: cannot read script '" + script + "'!");
+			System.exit(EXIT_USAGE);
+		}
+
+		env = newEnvironment(ShellEnvironment.DEFAULT_PROMPT);
+		environments.put(env.getPromptSymbol(), env);
+
+		if (!batch) {
+			try {
+				env.writeln("Welcome to MyShell v 1.0");
+			} catch (IOException ignorable) {
+			}
+		}
+
+		int failedLine = 0;
+
+		do {
+			int commandLine = lineNumber + 1;
+
+			try {
+				if (!batch) {
+					env.write(env.getPromptSymbol() + " ");
+				}
+				String input = handleInput();
+
+				if (input == null) {
+					break;
+				}
+
+				shellStatus = executeCommand(input);
+
+				if (env.getFlushPolicy() == FlushPolicy.COMMAND) {
+					env.flush();
+				}
+			} catch (IOException e) {
+				try {
+					env.writeln("Error: input/output exception occurred!");
+				} catch (IOException ignorable) {
+				}
+				shellStatus = ShellStatus.FAILED;
+			} catch (RuntimeException e) {
+				shellStatus = ShellStatus.FAILED;
+			}
+
+			if (shellStatus == ShellStatus.FAILED && stopOnError) {
+				failedLine = commandLine;
+				break;
+			}
+		} while (shellStatus != ShellStatus.TERMINATE);
+
+		try {
+			env.flush();
+		} catch (IOException ignorable) {
+		}
+
+		if (failedLine > 0) {
+			System.err.println(
+					"Stopped on error in command at line " + failedLine + ".");
+			System.exit(EXIT_COMMAND_FAILED);
+		}
+	}
+
+	/**
+	 * Parses command-line options.
+	 * 
+	 * @param args
+	 *            command-line arguments
+	 * @return {@code true} if all options are valid
+	 */
+	private static boolean parseOptions(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--batch":
+				batch = true;
+				break;
+
+			case "--stop-on-error":
+				stopOnError = true;
+				break;
+
+			case "-f":
+				if (i + 1 == args.length || script != null) {
+					return false;
+				}
+				script = args[++i];
+				batch = true;
+				break;
+
+			case "--flush":
+				if (i + 1 == args.length) {
+					return false;
+				}
+
+				try {
+					flushPolicy = FlushPolicy.valueOf(args[++i].toUpperCase());
+				} catch (IllegalArgumentException e) {
+					return false;
+				}
+				break;
+
+			case "--charset":
+				if (i + 1 == args.length) {
+					return false;
+				}
+
+				try {
+					charset = Charset.forName(args[++i]);
+				} catch (IllegalArgumentException e) {
+					return false;
+				}
+				break;
+
+			case "--buffer":
+				if (i + 1 == args.length) {
+					return false;
+				}
+
+				try {
+					bufferSize = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					return false;
+				}
+				if (bufferSize <= 0) {
+					return false;
+				}
+				break;
+
+			default:
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Opens input and output shared by all environments. Input is the script
+	 * if one is given, standard input otherwise. Charset and buffer size are
+	 * those given by options or the defaults.
+	 * 
+	 * @throws IOException
+	 *             if script cannot be opened
+	 */
+	private static void openStreams() throws IOException {
+		if (charset == null) {
+			charset = Charset.defaultCharset();
+		}
+
+		input = ShellEnvironment.openReader(
+				script == null ? System.in
+						: Files.newInputStream(Paths.get(script)),
+				charset,
+				bufferSize > 0 ? bufferSize
+						: ShellEnvironment.DEFAULT_BUFFER_SIZE);
+
+		if (flushPolicy == null) {
+			flushPolicy = batch ? FlushPolicy.SIZE : FlushPolicy.PROMPT;
+		}
+
+		output = new ShellOutput(
+				System.out,
+				charset,
+				bufferSize > 0 ? bufferSize : ShellOutput.DEFAULT_BUFFER_SIZE,
+				flushPolicy);
+	}
+
+	/**
+	 * Creates a new environment with given prompt which uses the shared input
+	 * and output. In batch mode environment isn't interactive, so commands
+	 * cannot read lines of the script.
+	 * 
+	 * @param prompt
+	 *            the prompt character
+	 * @return the environment
+	 */
+	private static ShellEnvironment newEnvironment(Character prompt) {
+		ShellEnvironment environment = new ShellEnvironment(
+				prompt,
+				ShellEnvironment.DEFAULT_MORELINE,
+				ShellEnvironment.DEFAULT_MULTILINE,
+				input,
+				output);
+		environment.setInteractive(!batch);
+
+		return environment;
+	}
+
+	/**
+	 * Handles all the input from user. Lines ending with {@code MORELINES}
+	 * symbol are joined with the next line, without the symbol.
+	 * 
+	 * @return string which user inputed to shell or {@code null} if end of
+	 *         input was reached
+	 * @throws IOException
+	 *             if i/o exception occurred
+	 */
+	private static String handleInput() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		String symbol = env.getMorelinesSymbol().toString();
+
+		String line = env.readShellLine();
+		if (line == null) {
+			return null;
+		}
+		lineNumber++;
+
+		while (true) {
+			String stripped = line.replaceFirst("\\s+$", "");
+			if (!stripped.endsWith(symbol)) {
+				sb.append(line);
+				break;
+			}
+			sb.append(stripped, 0, stripped.length() - symbol.length());
+
+			if (!batch) {
+				env.writeln(env.getMultilineSymbol() + " ");
+			}
+			line = env.readShellLine();
+			if (line == null) {
+				break;
+			}
+			lineNumber++;
+		}
+
+		return sb.toString().trim();
+	}
+
+	/**
+	 * Executes all the command.
+	 * 
+	 * @param cmd
+	 *            command name and arguments
+	 * @return status of the shell after command has been executed
+	 * @throws IOException
+	 *             if i/o exception occurred
+	 */
+	private static ShellStatus executeCommand(String cmd) throws IOException {
+		cmd = cmd.trim();
+
+		if (cmd.isEmpty()) {
+			return ShellStatus.CONTINUE;
+		}
+
+		// symbol arguments may be '|', the default MULTILINE symbol
+		if (cmd.matches("^symbol\\s+PROMPT\\s*.?$")) {
+			return handleSymbolPrompt(cmd);
+		} else if (!cmd.matches("^symbol(\\s.*)?$")
+				&& Pipeline.isPipeline(cmd)) {
+			return Pipeline.execute(env, cmd);
+		} else {
+			String[] args = cmd.split("\\s+", 2);
+
+			ShellCommand command = null;
+			try {
+				command = CompositeCommand.get(args[0]);
+			} catch (IllegalArgumentException e) {
+				env.writeln(
+						String.format(
+								"Error: '%s' is not recognized as a command!",
+								args[0]));
+				return ShellStatus.FAILED;
+			}
+
+			if (args.length == 2) {
+				return command.executeCommand(env, args[1]);
+			} else if (args.length == 1) {
+				return command.executeCommand(env, null);
+			}
+		}
+
+		return ShellStatus.CONTINUE;
+	}
+
+	/**
+	 * Handles 'symbol PROMPT' command. Basically same as other symbol commands.
+	 * 
+	 * @param cmd
+	 *            arguments of the command
+	 * @return status of the shell after command has been executed
+	 */
+	private static ShellStatus handleSymbolPrompt(String cmd) {
+		String[] args = cmd.split("\\s+");
+
+		if (args.length == 2) {
+			try {
+				env.writeln(
+						String.format(
+								"Symbol for PROMPT is '%c'",
+								env.getPromptSymbol()));
+			} catch (IOException ignorable) {
+			}
+			return ShellStatus.CONTINUE;
+		} else if (args.length == 3) {
+
+			Character newPrompt = args[2].charAt(0);
+			Character oldPrompt = env.getPromptSymbol();
+
+			environments.put(oldPrompt, env);
+
+			// if shell with same prompt exists change current environment
+			// to that and if it doesn't exist create new environment
+			if (environments.containsKey(newPrompt)) {
+				env = environments.get(newPrompt);
+			} else {
+				env = newEnvironment(newPrompt);
+			}
+
+			try {
+				env.writeln(
+						String.format(
+								"Symbol for PROMPT changed from '%c' to '%c'",
+								oldPrompt,
+								newPrompt));
+			} catch (IOException ignorable) {
+			}
+		} else {
+			try {
+				env.writeln(
+						"Error: Invalid arguments for the command 'symbol'!");
+			} catch (IOException ignorable) {
+			}
+
+			return ShellStatus.FAILED;
+		}
+
+		return ShellStatus.CONTINUE;
+	}
+}
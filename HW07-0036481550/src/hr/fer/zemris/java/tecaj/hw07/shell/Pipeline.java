@@ -0,0 +1,258 @@
+package hr.fer.zemris.java.tecaj.hw07.shell;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.regex.Pattern;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.CompositeCommand;
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
+import hr.fer.zemris.java.tecaj.hw07.shell.environments.Environment;
+import hr.fer.zemris.java.tecaj.hw07.shell.environments.Pipe;
+import hr.fer.zemris.java.tecaj.hw07.shell.environments.PipeEnvironment;
+
+/**
+ * {@code Pipeline} executes commands separated by {@code |}, e.g.
+ * {@code tree . | filter \.java$}, where output of every command is input of
+ * the next one.
+ * <p>
+ * Only a {@code |} with whitespace on both sides separates commands, so
+ * arguments such as the regular expression {@code a|b} or the symbol in
+ * {@code symbol MULTILINE |} are left intact. There is no quoting, so an
+ * argument cannot contain {@code " | "}.
+ * <p>
+ * Every command runs on its own thread and neighbouring commands are
+ * connected by a bounded {@link Pipe}, so the next command processes lines
+ * while the previous one is still producing them, and a producer which is
+ * faster than its consumer waits for it instead of buffering all its output.
+ * Output of every command goes through a buffer of {@value #BUFFER_SIZE}
+ * characters, so commands writing a character at a time hand whole blocks to
+ * the pipe; the buffer is flushed when the command ends.
+ * The first command reads input of the shell and the last one writes to
+ * output of the shell. When a command ends, its pipes are closed: the next
+ * command reaches the end of its input and the previous command fails at its
+ * next write, so it stops early.
+ * <p>
+ * Pipeline fails if any of its commands fails. Like a pipeline of a Unix
+ * shell, it never terminates the shell, not even when it contains
+ * {@code exit}.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public final class Pipeline {
+
+	/**
+	 * Size of the buffer of every command's output in characters.
+	 */
+	public static final int BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * Separator of commands in a pipeline, a {@code |} between whitespace.
+	 */
+	private static final Pattern SEPARATOR = Pattern
+			.compile("(?<=\\s)\\|(?=\\s)");
+
+	/**
+	 * Private constructor, class has only static methods.
+	 */
+	private Pipeline() {
+	}
+
+	/**
+	 * Checks if command line is a pipeline.
+	 *
+	 * @param cmd
+	 *            the command line
+	 * @return {@code true} if command line contains {@code |} with
+	 *         whitespace on both sides
+	 */
+	public static boolean isPipeline(String cmd) {
+		return SEPARATOR.matcher(cmd).find();
+	}
+
+	/**
+	 * Executes the pipeline and waits until all of its commands end.
+	 *
+	 * @param env
+	 *            environment of the shell
+	 * @param cmd
+	 *            commands separated by {@code |} with whitespace on both
+	 *            sides
+	 * @return {@link ShellStatus#FAILED} if any command failed or doesn't
+	 *         exist; {@link ShellStatus#CONTINUE} otherwise
+	 * @throws IOException
+	 *             if error cannot be reported
+	 */
+	public static ShellStatus execute(Environment env, String cmd)
+			throws IOException {
+		String[] stages = SEPARATOR.split(cmd, -1);
+		int n = stages.length;
+
+		ShellCommand[] commands = new ShellCommand[n];
+		String[] arguments = new String[n];
+
+		for (int i = 0; i < n; i++) {
+			String[] args = stages[i].trim().split("\\s+", 2);
+
+			if (args[0].isEmpty()) {
+				env.writeln("Error: missing command in pipeline!");
+				return ShellStatus.FAILED;
+			}
+
+			try {
+				commands[i] = CompositeCommand.get(args[0]);
+			} catch (IllegalArgumentException e) {
+				env.writeln(
+						String.format(
+								"Error: '%s' is not recognized as a command!",
+								args[0]));
+				return ShellStatus.FAILED;
+			}
+
+			arguments[i] = args.length == 2 ? args[1] : null;
+		}
+
+		Stage[] threads = new Stage[n];
+		Reader input = null;
+
+		for (int i = 0; i < n; i++) {
+			Pipe pipe = i == n - 1 ? null : new Pipe();
+			Writer output = pipe == null ? null
+					: new BufferedWriter(pipe.writer(), BUFFER_SIZE);
+
+			threads[i] = new Stage(
+					commands[i],
+					new PipeEnvironment(env, input, output),
+					arguments[i],
+					input,
+					output);
+			input = pipe == null ? null : pipe.reader();
+		}
+
+		for (Stage stage : threads) {
+			stage.start();
+		}
+
+		ShellStatus status = ShellStatus.CONTINUE;
+		boolean interrupted = false;
+
+		for (Stage stage : threads) {
+			while (stage.isAlive()) {
+				try {
+					stage.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					for (Stage other : threads) {
+						other.interrupt();
+					}
+				}
+			}
+
+			if (stage.status == ShellStatus.FAILED) {
+				status = ShellStatus.FAILED;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+			status = ShellStatus.FAILED;
+		}
+
+		return status;
+	}
+
+	/**
+	 * {@code Stage} is a thread which executes one command of a pipeline and
+	 * closes its pipes when the command ends.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private static class Stage extends Thread {
+
+		/**
+		 * The command.
+		 */
+		private final ShellCommand command;
+
+		/**
+		 * Environment of the command.
+		 */
+		private final Environment env;
+
+		/**
+		 * Arguments of the command.
+		 */
+		private final String arguments;
+
+		/**
+		 * Reading end of the previous pipe or {@code null}.
+		 */
+		private final Reader input;
+
+		/**
+		 * Buffered writing end of the next pipe or {@code null}.
+		 */
+		private final Writer output;
+
+		/**
+		 * Status of the shell after command has been executed.
+		 */
+		private volatile ShellStatus status = ShellStatus.FAILED;
+
+		/**
+		 * Constructs a new {@code Stage}.
+		 *
+		 * @param command
+		 *            the command
+		 * @param env
+		 *            environment of the command
+		 * @param arguments
+		 *            arguments of the command
+		 * @param input
+		 *            reading end of the previous pipe or {@code null}
+		 * @param output
+		 *            buffered writing end of the next pipe or {@code null}
+		 */
+		public Stage(ShellCommand command, Environment env, String arguments,
+				Reader input, Writer output) {
+			super("pipeline-" + command.getCommandName());
+			this.command = command;
+			this.env = env;
+			this.arguments = arguments;
+			this.input = input;
+			this.output = output;
+		}
+
+		@Override
+		public void run() {
+			try {
+				status = command.executeCommand(env, arguments);
+			} catch (RuntimeException e) {
+				status = ShellStatus.FAILED;
+			} finally {
+				if (output != null) {
+					try {
+						output.flush();
+					} catch (IOException ignorable) {
+					}
+
+					// closes the pipe even if the buffer couldn't be flushed
+					try {
+						output.close();
+					} catch (IOException ignorable) {
+					}
+				}
+
+				try {
+					if (input != null) {
+						input.close();
+					}
+				} catch (IOException ignorable) {
+				}
+			}
+		}
+	}
+}
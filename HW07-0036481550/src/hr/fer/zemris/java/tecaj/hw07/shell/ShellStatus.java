@@ -1,19 +1,25 @@
-package hr.fer.zemris.java.tecaj.hw07.shell;
-
-/**
- * {@code ShellStatus} represents the status of the shell.
- * 
- * @author Karlo Vrbić
- * @version 1.0
- */
-public enum ShellStatus {
-	/**
-	 * Shell continues accepting user input
-	 */
-	CONTINUE,
-	
-	/**
-	 * Shell stops accepting user input and program is terminated.
-	 */
-	TERMINATE;
-}
+package hr.fer.zemris.java.tecaj.hw07.shell;
+
+/**
+ * {@code ShellStatus} represents the status of the shell.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public enum ShellStatus {
+	/**
+	 * Shell continues accepting user input
+	 */
+	CONTINUE,
+
+	/**
+	 * Command failed and reported why. Shell continues accepting user input,
+	 * unless it runs a script which stops on the first error.
+	 */
+	FAILED,
+	
+	/**
+	 * Shell stops accepting user input and program is terminated.
+	 */
+	TERMINATE;
+}
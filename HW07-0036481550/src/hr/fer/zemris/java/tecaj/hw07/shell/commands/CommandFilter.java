@@ -0,0 +1,163 @@
+package hr.fer.zemris.java.tecaj.hw07.shell.commands;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.MyShell;
+import hr.fer.zemris.java.tecaj.hw07.shell.ShellStatus;
+import hr.fer.zemris.java.tecaj.hw07.shell.environments.Environment;
+
+/**
+ * {@code CommandFilter} class represent shell command that reads lines of its
+ * input and writes to standard output only those lines which contain a match
+ * of the given regular expression.
+ * <p>
+ * If you want to call {@code filter} command in {@link MyShell} you must type
+ * to shell:
+ * <ul>
+ * <li>{@code filter [-v] [REGEX]}
+ * </ul>
+ * <br>
+ * Option {@code -v} inverts the filter, so only lines without a match are
+ * written. Command reads lines until the end of its input, so it is meant to
+ * be used in a pipeline, e.g. {@code tree . | filter \.java$}.
+ * <p>
+ * REGEX is the rest of the line after the command name and {@code -v},
+ * without leading and trailing whitespace, and it isn't quoted: a {@code |}
+ * with whitespace on both sides ends it as a pipeline separator, so write
+ * alternation without spaces, e.g. {@code filter a|b}.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ * @see ShellCommand
+ */
+public class CommandFilter implements ShellCommand {
+
+	/**
+	 * Command name.
+	 */
+	private static final String COMMAND_NAME = "filter";
+
+	/**
+	 * Command description and manual.
+	 */
+	private static List<String> COMMAND_DESCRIPTION;
+
+	static {
+		COMMAND_DESCRIPTION = new ArrayList<>();
+
+		COMMAND_DESCRIPTION.add(
+				"'filter' command writes lines of its input which contain"
+						+ " a match of REGEX.");
+
+		COMMAND_DESCRIPTION.add("General syntax is:  filter [-v] [REGEX]");
+
+		COMMAND_DESCRIPTION.add(
+				"Option -v writes only lines without a match. Input is read"
+						+ " until its end, so");
+
+		COMMAND_DESCRIPTION.add(
+				"command is meant to be used in a pipeline, e.g."
+						+ " tree . | filter \\.java$");
+
+		COMMAND_DESCRIPTION.add(
+				"REGEX isn't quoted. A '|' with spaces on both sides"
+						+ " separates commands, so");
+
+		COMMAND_DESCRIPTION.add(
+				"write alternation without spaces, e.g. filter a|b."
+						+ " Outer spaces are trimmed.");
+
+		COMMAND_DESCRIPTION = Collections.unmodifiableList(COMMAND_DESCRIPTION);
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		if (!checkArguments(env, arguments)) {
+			return ShellStatus.FAILED;
+		}
+
+		String[] args = arguments.trim().split("\\s+", 2);
+		boolean invert = args[0].equals("-v");
+
+		Pattern pattern;
+		try {
+			pattern = Pattern.compile(invert ? args[1] : arguments.trim());
+		} catch (PatternSyntaxException e) {
+			try {
+				env.writeln("Error: invalid regular expression!");
+			} catch (IOException ignorable) {
+			}
+
+			return ShellStatus.FAILED;
+		}
+
+		Writer out = env.getOutput();
+		String lineSeparator = System.lineSeparator();
+		Matcher matcher = pattern.matcher("");
+
+		try {
+			String line;
+			while ((line = env.readLine()) != null) {
+				if (matcher.reset(line).find() != invert) {
+					out.write(line);
+					out.write(lineSeparator);
+				}
+			}
+		} catch (IOException e) {
+			try {
+				env.writeln("Error: input/output exception occured!");
+			} catch (IOException ignorable) {
+			}
+
+			return ShellStatus.FAILED;
+		}
+
+		return ShellStatus.CONTINUE;
+	}
+
+	@Override
+	public String getCommandName() {
+		return COMMAND_NAME;
+	}
+
+	@Override
+	public List<String> getCommandDescription() {
+		return COMMAND_DESCRIPTION;
+	}
+
+	/**
+	 * Checks if arguments are valid
+	 *
+	 * @param env
+	 *            environment of the shell
+	 * @param arguments
+	 *            arguments of this command
+	 * @return {@code true} if arguments are valid; {code false} otherwise
+	 */
+	private boolean checkArguments(Environment env, String arguments) {
+		if (env == null) {
+			System.err.println("Environment cannot be null reference!");
+			return false;
+		}
+
+		if (arguments == null || arguments.trim().equals("-v")) {
+			try {
+				env.writeln(
+						"Error: wrong number of arguments for command"
+								+ " 'filter'!");
+			} catch (IOException ignorable) {
+			}
+
+			return false;
+		}
+
+		return true;
+	}
+}
@@ -1,98 +1,145 @@
-package hr.fer.zemris.java.tecaj.hw07.shell.environments;
-
-import java.io.IOException;
-
-import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
-
-/**
- * {@code Environment} interface represents an environment of the shell.
- * <p>
- * Implementations of this interface should contain all information about the
- * current state of the shell and should be used to output and input data and
- * commands from user.
- * 
- * @author Karlo Vrbić
- * @version 1.0
- */
-public interface Environment {
-
-	/**
-	 * Reads the next line from input stream.
-	 * 
-	 * @return the next line
-	 * @throws IOException
-	 *             if an I/O error occurs.
-	 */
-	public String readLine() throws IOException;
-
-	/**
-	 * Writes the text to output stream.
-	 * 
-	 * @param text
-	 *            the text
-	 * @throws IOException
-	 *             if an I/O error occurs.
-	 */
-	public void write(String text) throws IOException;
-
-	/**
-	 * Writes the text to output stream and writes a newline character after
-	 * text.
-	 * 
-	 * @param text
-	 *            the text
-	 * @throws IOException
-	 *             if an I/O error occurs.
-	 */
-	public void writeln(String text) throws IOException;
-
-	/**
-	 * Returns the iterable collection of all commands.
-	 * 
-	 * @return the iterable collection of all commands
-	 */
-	public Iterable<ShellCommand> commands();
-	
-	/**
-	 * Returns the current prompt character.
-	 * 
-	 * @return the current prompt character
-	 */
-	public Character getPromptSymbol();
-	
-	/**
-	 * Sets the new prompt character.
-	 * 
-	 * @param symbol the new prompt character
-	 */
-	public void setPromptSymbol(Character symbol);
-
-	/**
-	 * Returns the current moreline character.
-	 * 
-	 * @return the current moreline character
-	 */
-	public Character getMorelinesSymbol();
-
-	/**
-	 * Sets the new moreline character.
-	 * 
-	 * @param symbol the new moreline character
-	 */
-	public void setMorelinesSymbol(Character symbol);
-	
-	/**
-	 * Returns the current multiline character.
-	 * 
-	 * @return the current multiline character
-	 */
-	public Character getMultilineSymbol();
-
-	/**
-	 * Sets the new multiline character.
-	 * 
-	 * @param symbol the new multiline character
-	 */
-	public void setMultilineSymbol(Character symbol);
-
+package hr.fer.zemris.java.tecaj.hw07.shell.environments;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.FlushPolicy;
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
+
+/**
+ * {@code Environment} interface represents an environment of the shell.
+ * <p>
+ * Implementations of this interface should contain all information about the
+ * current state of the shell and should be used to output and input data and
+ * commands from user.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public interface Environment {
+
+	/**
+	 * Reads the next line from input stream. Line terminator isn't part of
+	 * the line.
+	 * 
+	 * @return the next line or {@code null} if end of input stream is
+	 *         reached
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public String readLine() throws IOException;
+
+	/**
+	 * Checks if a user answers questions of commands. When shell runs a
+	 * script, input belongs to the shell, not to commands: commands must not
+	 * ask anything and {@link #readLine()} returns {@code null}.
+	 * 
+	 * @return {@code true} if commands can ask the user
+	 */
+	public boolean isInteractive();
+
+	/**
+	 * Writes the text to output stream.
+	 * 
+	 * @param text
+	 *            the text
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void write(String text) throws IOException;
+
+	/**
+	 * Writes the text to output stream and writes a newline character after
+	 * text.
+	 * 
+	 * @param text
+	 *            the text
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void writeln(String text) throws IOException;
+
+	/**
+	 * Returns the output to which commands can write text directly, e.g. by
+	 * {@link Writer#write(char[], int, int)} or {@link Writer#append(char)},
+	 * without building a string for every line. Text written to it and text
+	 * written by {@link #write(String)} and {@link #writeln(String)} goes
+	 * through the same buffer, in order. Returned writer must not be closed.
+	 * 
+	 * @return the output of this environment
+	 */
+	public Writer getOutput();
+
+	/**
+	 * Writes all buffered output to output stream.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void flush() throws IOException;
+
+	/**
+	 * Returns the policy which determines when buffered output is flushed.
+	 * 
+	 * @return the flush policy
+	 */
+	public FlushPolicy getFlushPolicy();
+
+	/**
+	 * Sets the policy which determines when buffered output is flushed.
+	 * 
+	 * @param policy
+	 *            the new flush policy
+	 */
+	public void setFlushPolicy(FlushPolicy policy);
+
+	/**
+	 * Returns the iterable collection of all commands.
+	 * 
+	 * @return the iterable collection of all commands
+	 */
+	public Iterable<ShellCommand> commands();
+	
+	/**
+	 * Returns the current prompt character.
+	 * 
+	 * @return the current prompt character
+	 */
+	public Character getPromptSymbol();
+	
+	/**
+	 * Sets the new prompt character.
+	 * 
+	 * @param symbol the new prompt character
+	 */
+	public void setPromptSymbol(Character symbol);
+
+	/**
+	 * Returns the current moreline character.
+	 * 
+	 * @return the current moreline character
+	 */
+	public Character getMorelinesSymbol();
+
+	/**
+	 * Sets the new moreline character.
+	 * 
+	 * @param symbol the new moreline character
+	 */
+	public void setMorelinesSymbol(Character symbol);
+	
+	/**
+	 * Returns the current multiline character.
+	 * 
+	 * @return the current multiline character
+	 */
+	public Character getMultilineSymbol();
+
+	/**
+	 * Sets the new multiline character.
+	 * 
+	 * @param symbol the new multiline character
+	 */
+	public void setMultilineSymbol(Character symbol);
+
 }
\ No newline at end of file
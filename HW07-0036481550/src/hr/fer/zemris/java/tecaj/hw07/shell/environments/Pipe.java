@@ -0,0 +1,265 @@
+package hr.fer.zemris.java.tecaj.hw07.shell.environments;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * {@code Pipe} is a bounded in-memory channel of characters between two
+ * threads, e.g. two commands of a pipeline.
+ * <p>
+ * Characters written to the {@link #writer()} are stored in a ring buffer of
+ * fixed capacity and read from the {@link #reader()} in the same order. A
+ * writer blocks while the buffer is full, so a fast producer is slowed down to
+ * the speed of its consumer instead of buffering all of its output, and a
+ * reader blocks while the buffer is empty. Closing the writer ends the input
+ * of the reader once buffered characters are read. Closing the reader makes
+ * every further write fail with an {@link IOException}, so the producer stops
+ * when nobody reads its output any more.
+ * <p>
+ * Objects of this class are thread-safe.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class Pipe {
+
+	/**
+	 * Default capacity of the pipe in characters.
+	 */
+	public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+	/**
+	 * The ring buffer.
+	 */
+	private final char[] buffer;
+
+	/**
+	 * Index of the next character to read.
+	 */
+	private int head;
+
+	/**
+	 * Number of buffered characters.
+	 */
+	private int count;
+
+	/**
+	 * Whether writer is closed.
+	 */
+	private boolean writerClosed;
+
+	/**
+	 * Whether reader is closed.
+	 */
+	private boolean readerClosed;
+
+	/**
+	 * The writing end.
+	 */
+	private final Writer writer = new PipeWriter();
+
+	/**
+	 * The reading end.
+	 */
+	private final Reader reader = new PipeReader();
+
+	/**
+	 * Constructs a new {@code Pipe}.
+	 *
+	 * @param capacity
+	 *            capacity of the pipe in characters
+	 * @throws IllegalArgumentException
+	 *             if capacity isn't positive
+	 */
+	public Pipe(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+					"Capacity must be a positive number.");
+		}
+
+		this.buffer = new char[capacity];
+	}
+
+	/**
+	 * Constructs a new {@code Pipe} of {@value #DEFAULT_CAPACITY} characters.
+	 */
+	public Pipe() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the writing end of the pipe.
+	 *
+	 * @return the writer
+	 */
+	public Writer writer() {
+		return writer;
+	}
+
+	/**
+	 * Returns the reading end of the pipe.
+	 *
+	 * @return the reader
+	 */
+	public Reader reader() {
+		return reader;
+	}
+
+	/**
+	 * Waits until another thread changes the state of the pipe.
+	 *
+	 * @throws InterruptedIOException
+	 *             if thread is interrupted
+	 */
+	private void await() throws InterruptedIOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Pipe interrupted.");
+		}
+	}
+
+	/**
+	 * {@code PipeWriter} is the writing end of the pipe.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class PipeWriter extends Writer {
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			synchronized (Pipe.this) {
+				while (len > 0) {
+					awaitSpace();
+
+					int tail = (head + count) % buffer.length;
+					int n = Math.min(
+							len,
+							Math.min(
+									buffer.length - count,
+									buffer.length - tail));
+					System.arraycopy(cbuf, off, buffer, tail, n);
+
+					if (count == 0) {
+						Pipe.this.notifyAll();
+					}
+					count += n;
+					off += n;
+					len -= n;
+				}
+			}
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			synchronized (Pipe.this) {
+				awaitSpace();
+
+				buffer[(head + count) % buffer.length] = (char) c;
+				if (count == 0) {
+					Pipe.this.notifyAll();
+				}
+				count++;
+			}
+		}
+
+		/**
+		 * Waits until there is space in the buffer. Must be called while
+		 * holding the lock of the pipe.
+		 *
+		 * @throws IOException
+		 *             if either end of the pipe is closed or thread is
+		 *             interrupted
+		 */
+		private void awaitSpace() throws IOException {
+			while (true) {
+				if (writerClosed) {
+					throw new IOException("Pipe writer is closed.");
+				}
+				if (readerClosed) {
+					throw new IOException("Pipe reader is closed.");
+				}
+				if (count < buffer.length) {
+					return;
+				}
+
+				await();
+			}
+		}
+
+		@Override
+		public void flush() {
+			// characters are visible to the reader as soon as written
+		}
+
+		@Override
+		public void close() {
+			synchronized (Pipe.this) {
+				writerClosed = true;
+				Pipe.this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * {@code PipeReader} is the reading end of the pipe.
+	 *
+	 * @author Karlo Vrbić
+	 * @version 1.0
+	 */
+	private class PipeReader extends Reader {
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			synchronized (Pipe.this) {
+				while (count == 0) {
+					if (readerClosed) {
+						throw new IOException("Pipe reader is closed.");
+					}
+					if (writerClosed) {
+						return -1;
+					}
+
+					await();
+				}
+
+				int n = Math.min(
+						len,
+						Math.min(count, buffer.length - head));
+				System.arraycopy(buffer, head, cbuf, off, n);
+
+				if (count == buffer.length) {
+					Pipe.this.notifyAll();
+				}
+				head = (head + n) % buffer.length;
+				count -= n;
+
+				return n;
+			}
+		}
+
+		@Override
+		public boolean ready() {
+			synchronized (Pipe.this) {
+				return count > 0;
+			}
+		}
+
+		@Override
+		public void close() {
+			synchronized (Pipe.this) {
+				readerClosed = true;
+				count = 0;
+				Pipe.this.notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package hr.fer.zemris.java.tecaj.hw07.shell.environments;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.FlushPolicy;
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
+
+/**
+ * {@code PipeEnvironment} is the environment of one command of a pipeline.
+ * <p>
+ * Command reads its input lines from the output of the previous command and
+ * writes its output to the input of the next command, each through a
+ * {@link Pipe}. The first command of a pipeline reads from the shell and the
+ * last one writes to the shell. Symbols, flush policy and commands are those
+ * of the shell environment.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class PipeEnvironment implements Environment {
+
+	/**
+	 * Environment of the shell.
+	 */
+	private final Environment shell;
+
+	/**
+	 * Input of the command or {@code null} if it reads from the shell.
+	 */
+	private final BufferedReader input;
+
+	/**
+	 * Output of the command or {@code null} if it writes to the shell.
+	 */
+	private final Writer output;
+
+	/**
+	 * Constructs a new {@code PipeEnvironment}.
+	 *
+	 * @param shell
+	 *            environment of the shell
+	 * @param input
+	 *            the reading end of the previous pipe or {@code null} if
+	 *            command reads from the shell
+	 * @param output
+	 *            the writing end of the next pipe, usually buffered, or
+	 *            {@code null} if command writes to the shell
+	 * @throws IllegalArgumentException
+	 *             if environment of the shell is {@code null}
+	 */
+	public PipeEnvironment(Environment shell, Reader input, Writer output) {
+		if (shell == null) {
+			throw new IllegalArgumentException(
+					"Environment cannot be null reference.");
+		}
+
+		this.shell = shell;
+		this.input = input == null ? null : new BufferedReader(input);
+		this.output = output;
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		return input == null ? shell.readLine() : input.readLine();
+	}
+
+	@Override
+	public boolean isInteractive() {
+		return input == null && shell.isInteractive();
+	}
+
+	@Override
+	public void write(String text) throws IOException {
+		getOutput().write(text);
+	}
+
+	@Override
+	public void writeln(String text) throws IOException {
+		Writer out = getOutput();
+		out.write(text);
+		out.write(System.lineSeparator());
+	}
+
+	@Override
+	public Writer getOutput() {
+		return output == null ? shell.getOutput() : output;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (output == null) {
+			shell.flush();
+		} else {
+			output.flush();
+		}
+	}
+
+	@Override
+	public FlushPolicy getFlushPolicy() {
+		return shell.getFlushPolicy();
+	}
+
+	@Override
+	public void setFlushPolicy(FlushPolicy policy) {
+		shell.setFlushPolicy(policy);
+	}
+
+	@Override
+	public Iterable<ShellCommand> commands() {
+		return shell.commands();
+	}
+
+	@Override
+	public Character getPromptSymbol() {
+		return shell.getPromptSymbol();
+	}
+
+	@Override
+	public void setPromptSymbol(Character symbol) {
+		shell.setPromptSymbol(symbol);
+	}
+
+	@Override
+	public Character getMorelinesSymbol() {
+		return shell.getMorelinesSymbol();
+	}
+
+	@Override
+	public void setMorelinesSymbol(Character symbol) {
+		shell.setMorelinesSymbol(symbol);
+	}
+
+	@Override
+	public Character getMultilineSymbol() {
+		return shell.getMultilineSymbol();
+	}
+
+	@Override
+	public void setMultilineSymbol(Character symbol) {
+		shell.setMultilineSymbol(symbol);
+	}
+}
@@ -1,176 +1,361 @@
-package hr.fer.zemris.java.tecaj.hw07.shell.environments;
-
-import java.io.IOException;
-import hr.fer.zemris.java.tecaj.hw07.shell.commands.CompositeCommand;
-import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
-
-/**
- * {@code ShellEnvironment} class represents an environment of the shell.
- * <p>
- * It contains all information about the current state of the shell and is used
- * to output and input data and commands from user.
- * 
- * @author Karlo Vrbić
- * @version 1.0
- * @see Environment
- */
-public class ShellEnvironment implements Environment {
-
-	/**
-	 * Default character for {@code PROMPT}.
-	 */
-	public static final Character DEFAULT_PROMPT = '>';
-
-	/**
-	 * Default character indicating {@code MORELINES} mode.
-	 */
-	public static final Character DEFAULT_MORELINE = '\\';
-
-	/**
-	 * Default character for {@code MULTILINES}.
-	 */
-	public static final Character DEFAULT_MULTILINE = '|';
-
-	/**
-	 * The prompt character
-	 */
-	private Character prompt;
-
-	/**
-	 * The moreline character
-	 */
-	private Character moreLine;
-
-	/**
-	 * The multiline character
-	 */
-	private Character multiLine;
-
-	/**
-	 * Constructs a new {@code ShellCommand} object specified by input stream,
-	 * output stream, prompt symbol, moreline symbol and multiline symbol are
-	 * specified by arguments.
-	 * 
-	 * @param prompt
-	 *            the prompt character
-	 * @param moreLine
-	 *            the moreline character
-	 * @param multiLine
-	 *            the multiline character
-	 */
-	public ShellEnvironment(Character prompt, Character moreLine,
-			Character multiLine) {
-		if (prompt == null || Character.isWhitespace(prompt)) {
-			throw new IllegalArgumentException(
-					"Prompt character cannot be null reference or whitespace.");
-		}
-
-		if (moreLine == null || Character.isWhitespace(moreLine)) {
-			throw new IllegalArgumentException(
-					"Moreline character cannot be null reference or whitespace.");
-		}
-
-		if (moreLine == null || Character.isWhitespace(multiLine)) {
-			throw new IllegalArgumentException(
-					"Multiline character cannot be null reference or whitespace.");
-		}
-
-		this.prompt = prompt;
-		this.moreLine = moreLine;
-		this.multiLine = multiLine;
-	}
-
-	/**
-	 * Constructs a new {@code ShellCommand} object with default input stream
-	 * {@code System.in}, output stream ({@code System.out}), moreline symbol(
-	 * {@value #DEFAULT_MORELINE}) and default multiline symbol(
-	 * {@value #DEFAULT_MULTILINE}). Prompt symbol is specified by argument.
-	 *
-	 * @param prompt
-	 *            the prompt character
-	 */
-	public ShellEnvironment(Character prompt) {
-		this(prompt, DEFAULT_MORELINE, DEFAULT_MULTILINE);
-	}
-
-	/**
-	 * Constructs a new {@code ShellCommand} object with default input stream
-	 * {@code System.in}, output stream ({@code System.out}), prompt symbol(
-	 * {@value #DEFAULT_PROMPT}), moreline symbol({@value #DEFAULT_MORELINE})
-	 * and default multiline symbol({@value #DEFAULT_MULTILINE}).
-	 */
-	public ShellEnvironment() {
-		this(DEFAULT_PROMPT, DEFAULT_MORELINE, DEFAULT_MULTILINE);
-	}
-
-	@Override
-	public String readLine() throws IOException {
-		StringBuilder sb = new StringBuilder();
-
-		while (true) {
-			char c = (char) System.in.read();
-
-			if (!Character.isDefined(c) || c == '\n') {
-				break;
-			}
-
-			sb.append(c);
-		}
-
-		return sb.toString();
-	}
-
-	@Override
-	public void write(String text) throws IOException {
-		if (text == null) {
-			throw new NullPointerException("Text argument cannot be null!");
-		}
-
-		System.out.print(text);
-	}
-
-	@Override
-	public void writeln(String text) throws IOException {
-		if (text == null) {
-			throw new NullPointerException("Text argument cannot be null!");
-		}
-
-		System.out.println(text);
-	}
-
-	@Override
-	public Iterable<ShellCommand> commands() {
-		return CompositeCommand.getAllCommands().values();
-	}
-
-	@Override
-	public Character getMultilineSymbol() {
-		return multiLine;
-	}
-
-	@Override
-	public void setMultilineSymbol(Character symbol) {
-		multiLine = symbol;
-	}
-
-	@Override
-	public Character getPromptSymbol() {
-		return prompt;
-	}
-
-	@Override
-	public void setPromptSymbol(Character symbol) {
-		prompt = symbol;
-	}
-
-	@Override
-	public Character getMorelinesSymbol() {
-		return moreLine;
-	}
-
-	@Override
-	public void setMorelinesSymbol(Character symbol) {
-		moreLine = symbol;
-	}
-
-}
+package hr.fer.zemris.java.tecaj.hw07.shell.environments;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.FlushPolicy;
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.CompositeCommand;
+import hr.fer.zemris.java.tecaj.hw07.shell.commands.ShellCommand;
+
+/**
+ * {@code ShellEnvironment} class represents an environment of the shell.
+ * <p>
+ * It contains all information about the current state of the shell and is used
+ * to output and input data and commands from user.
+ * <p>
+ * Input is read line by line from a {@link BufferedReader} which decodes
+ * bytes with a charset decoder, so multi-byte characters are read correctly
+ * and the input stream is read in large blocks instead of byte by byte.
+ * <p>
+ * Output is written to a {@link ShellOutput}, which buffers it and writes it
+ * out according to its {@link FlushPolicy}; with policies other than
+ * {@link FlushPolicy#SIZE} it is flushed before every line is read.
+ * Environments created without a reader and an output share one reader of
+ * {@code System.in} and one output to {@code System.out}, so switching
+ * between them never loses buffered input or reorders output.
+ * 
+ * @author Karlo Vrbić
+ * @version 1.0
+ * @see Environment
+ */
+public class ShellEnvironment implements Environment {
+
+	/**
+	 * Default character for {@code PROMPT}.
+	 */
+	public static final Character DEFAULT_PROMPT = '>';
+
+	/**
+	 * Default character indicating {@code MORELINES} mode.
+	 */
+	public static final Character DEFAULT_MORELINE = '\\';
+
+	/**
+	 * Default character for {@code MULTILINES}.
+	 */
+	public static final Character DEFAULT_MULTILINE = '|';
+
+	/**
+	 * Default size of the input buffer in characters.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Reader of {@code System.in} shared by environments created without a
+	 * reader; {@code null} until it is first needed.
+	 */
+	private static BufferedReader standardInput;
+
+	/**
+	 * Output to {@code System.out} shared by environments created without an
+	 * output; {@code null} until it is first needed.
+	 */
+	private static ShellOutput standardOutput;
+
+	/**
+	 * The reader from which lines are read.
+	 */
+	private final BufferedReader input;
+
+	/**
+	 * The output to which text is written.
+	 */
+	private final ShellOutput output;
+
+	/**
+	 * Whether commands can read input
+	 */
+	private volatile boolean interactive = true;
+
+	/**
+	 * The prompt character
+	 */
+	private Character prompt;
+
+	/**
+	 * The moreline character
+	 */
+	private Character moreLine;
+
+	/**
+	 * The multiline character
+	 */
+	private Character multiLine;
+
+	/**
+	 * Constructs a new {@code ShellCommand} object specified by input stream,
+	 * output stream, prompt symbol, moreline symbol and multiline symbol are
+	 * specified by arguments.
+	 * 
+	 * @param prompt
+	 *            the prompt character
+	 * @param moreLine
+	 *            the moreline character
+	 * @param multiLine
+	 *            the multiline character
+	 * @param input
+	 *            the reader from which lines are read
+	 * @param output
+	 *            the output to which text is written
+	 */
+	public ShellEnvironment(Character prompt, Character moreLine,
+			Character multiLine, BufferedReader input, ShellOutput output) {
+		if (prompt == null || Character.isWhitespace(prompt)) {
+			throw new IllegalArgumentException(
+					"Prompt character cannot be null reference or whitespace.");
+		}
+
+		if (moreLine == null || Character.isWhitespace(moreLine)) {
+			throw new IllegalArgumentException(
+					"Moreline character cannot be null reference or whitespace.");
+		}
+
+		if (moreLine == null || Character.isWhitespace(multiLine)) {
+			throw new IllegalArgumentException(
+					"Multiline character cannot be null reference or whitespace.");
+		}
+
+		if (input == null || output == null) {
+			throw new IllegalArgumentException(
+					"Input and output cannot be null references.");
+		}
+
+		this.prompt = prompt;
+		this.moreLine = moreLine;
+		this.multiLine = multiLine;
+		this.input = input;
+		this.output = output;
+	}
+
+	/**
+	 * Constructs a new {@code ShellCommand} object which reads from the
+	 * shared reader of {@code System.in} and writes to the shared output to
+	 * {@code System.out}. Prompt symbol, moreline symbol and multiline symbol
+	 * are specified by arguments.
+	 * 
+	 * @param prompt
+	 *            the prompt character
+	 * @param moreLine
+	 *            the moreline character
+	 * @param multiLine
+	 *            the multiline character
+	 */
+	public ShellEnvironment(Character prompt, Character moreLine,
+			Character multiLine) {
+		this(prompt, moreLine, multiLine, standardInput(), standardOutput());
+	}
+
+	/**
+	 * Constructs a new {@code ShellCommand} object with default input stream
+	 * {@code System.in}, output stream ({@code System.out}), moreline symbol(
+	 * {@value #DEFAULT_MORELINE}) and default multiline symbol(
+	 * {@value #DEFAULT_MULTILINE}). Prompt symbol is specified by argument.
+	 *
+	 * @param prompt
+	 *            the prompt character
+	 */
+	public ShellEnvironment(Character prompt) {
+		this(prompt, DEFAULT_MORELINE, DEFAULT_MULTILINE);
+	}
+
+	/**
+	 * Constructs a new {@code ShellCommand} object with default input stream
+	 * {@code System.in}, output stream ({@code System.out}), prompt symbol(
+	 * {@value #DEFAULT_PROMPT}), moreline symbol({@value #DEFAULT_MORELINE})
+	 * and default multiline symbol({@value #DEFAULT_MULTILINE}).
+	 */
+	public ShellEnvironment() {
+		this(DEFAULT_PROMPT, DEFAULT_MORELINE, DEFAULT_MULTILINE);
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		return interactive ? readShellLine() : null;
+	}
+
+	@Override
+	public boolean isInteractive() {
+		return interactive;
+	}
+
+	/**
+	 * Sets whether commands can read input. Environment of a shell running a
+	 * script isn't interactive, so commands never consume lines of the
+	 * script.
+	 * 
+	 * @param interactive
+	 *            {@code true} if commands can read input
+	 */
+	public void setInteractive(boolean interactive) {
+		this.interactive = interactive;
+	}
+
+	/**
+	 * Reads the next line for the shell itself, e.g. the next command of a
+	 * script, even if environment isn't interactive. Output is flushed first
+	 * unless flush policy is {@link FlushPolicy#SIZE}.
+	 * 
+	 * @return the next line or {@code null} if end of input stream is
+	 *         reached
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public String readShellLine() throws IOException {
+		if (output.getFlushPolicy() != FlushPolicy.SIZE) {
+			output.flush();
+		}
+
+		return input.readLine();
+	}
+
+	/**
+	 * Returns a reader which decodes the stream with the charset. Malformed
+	 * and unmappable input is replaced instead of stopping the shell.
+	 * 
+	 * @param in
+	 *            the input stream
+	 * @param charset
+	 *            the charset of the stream
+	 * @param bufferSize
+	 *            size of the buffer in characters
+	 * @return the reader
+	 * @throws IllegalArgumentException
+	 *             if buffer size isn't positive
+	 */
+	public static BufferedReader openReader(InputStream in, Charset charset,
+			int bufferSize) {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		return new BufferedReader(
+				new InputStreamReader(in, decoder),
+				bufferSize);
+	}
+
+	/**
+	 * Returns the output to {@code System.out} shared by all environments
+	 * created without an output. It uses the default charset of the platform
+	 * and {@link FlushPolicy#PROMPT}.
+	 * 
+	 * @return the shared output to {@code System.out}
+	 */
+	private static synchronized ShellOutput standardOutput() {
+		if (standardOutput == null) {
+			standardOutput = new ShellOutput(
+					System.out,
+					Charset.defaultCharset(),
+					ShellOutput.DEFAULT_BUFFER_SIZE,
+					FlushPolicy.PROMPT);
+		}
+
+		return standardOutput;
+	}
+
+	/**
+	 * Returns the reader of {@code System.in} shared by all environments
+	 * created without a reader. It uses the default charset of the platform.
+	 * 
+	 * @return the shared reader of {@code System.in}
+	 */
+	private static synchronized BufferedReader standardInput() {
+		if (standardInput == null) {
+			standardInput = openReader(
+					System.in,
+					Charset.defaultCharset(),
+					DEFAULT_BUFFER_SIZE);
+		}
+
+		return standardInput;
+	}
+
+	@Override
+	public void write(String text) throws IOException {
+		if (text == null) {
+			throw new NullPointerException("Text argument cannot be null!");
+		}
+
+		output.write(text);
+	}
+
+	@Override
+	public void writeln(String text) throws IOException {
+		if (text == null) {
+			throw new NullPointerException("Text argument cannot be null!");
+		}
+
+		output.writeln(text);
+	}
+
+	@Override
+	public Writer getOutput() {
+		return output;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+	}
+
+	@Override
+	public FlushPolicy getFlushPolicy() {
+		return output.getFlushPolicy();
+	}
+
+	@Override
+	public void setFlushPolicy(FlushPolicy policy) {
+		output.setFlushPolicy(policy);
+	}
+
+	@Override
+	public Iterable<ShellCommand> commands() {
+		return CompositeCommand.getAllCommands().values();
+	}
+
+	@Override
+	public Character getMultilineSymbol() {
+		return multiLine;
+	}
+
+	@Override
+	public void setMultilineSymbol(Character symbol) {
+		multiLine = symbol;
+	}
+
+	@Override
+	public Character getPromptSymbol() {
+		return prompt;
+	}
+
+	@Override
+	public void setPromptSymbol(Character symbol) {
+		prompt = symbol;
+	}
+
+	@Override
+	public Character getMorelinesSymbol() {
+		return moreLine;
+	}
+
+	@Override
+	public void setMorelinesSymbol(Character symbol) {
+		moreLine = symbol;
+	}
+
+}
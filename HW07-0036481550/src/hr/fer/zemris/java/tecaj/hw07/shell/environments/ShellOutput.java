@@ -0,0 +1,277 @@
+package hr.fer.zemris.java.tecaj.hw07.shell.environments;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import hr.fer.zemris.java.tecaj.hw07.shell.FlushPolicy;
+
+/**
+ * {@code ShellOutput} is a buffered output of the shell.
+ * <p>
+ * Written characters are copied into one large reusable buffer and encoded
+ * by a charset encoder into a reusable byte buffer only when the character
+ * buffer is full or output is flushed, so writing a line costs a copy instead
+ * of a call to a synchronized, auto-flushing {@link java.io.PrintStream}. The
+ * underlying stream is flushed only by {@link #flush()}; when that happens is
+ * decided by the {@link FlushPolicy} which environments and the shell
+ * consult.
+ * <p>
+ * Objects of this class are thread-safe.
+ *
+ * @author Karlo Vrbić
+ * @version 1.0
+ */
+public class ShellOutput extends Writer {
+
+	/**
+	 * Default size of the buffer in characters.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The underlying stream.
+	 */
+	private final OutputStream out;
+
+	/**
+	 * Encoder of characters.
+	 */
+	private final CharsetEncoder encoder;
+
+	/**
+	 * Buffered characters.
+	 */
+	private final char[] chars;
+
+	/**
+	 * Buffer of encoded bytes.
+	 */
+	private final ByteBuffer bytes;
+
+	/**
+	 * Number of buffered characters.
+	 */
+	private int count;
+
+	/**
+	 * The flush policy.
+	 */
+	private volatile FlushPolicy flushPolicy;
+
+	/**
+	 * Constructs a new {@code ShellOutput}.
+	 *
+	 * @param out
+	 *            the underlying stream
+	 * @param charset
+	 *            the charset used to encode characters
+	 * @param bufferSize
+	 *            size of the buffer in characters
+	 * @param flushPolicy
+	 *            the flush policy
+	 * @throws IllegalArgumentException
+	 *             if any of arguments is {@code null} or buffer size isn't
+	 *             positive
+	 */
+	public ShellOutput(OutputStream out, Charset charset, int bufferSize,
+			FlushPolicy flushPolicy) {
+		if (out == null || charset == null || flushPolicy == null) {
+			throw new IllegalArgumentException(
+					"Arguments cannot be null references.");
+		}
+
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException(
+					"Buffer size must be a positive number.");
+		}
+
+		this.out = out;
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars = new char[bufferSize];
+		this.bytes = ByteBuffer.allocate(
+				Math.max(64, (int) (bufferSize * encoder.averageBytesPerChar())));
+		this.flushPolicy = flushPolicy;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		synchronized (lock) {
+			if (count == chars.length) {
+				drain();
+			}
+			chars[count++] = (char) c;
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		synchronized (lock) {
+			while (len > 0) {
+				if (count == chars.length) {
+					drain();
+				}
+
+				int n = Math.min(len, chars.length - count);
+				System.arraycopy(cbuf, off, chars, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		synchronized (lock) {
+			while (len > 0) {
+				if (count == chars.length) {
+					drain();
+				}
+
+				int n = Math.min(len, chars.length - count);
+				str.getChars(off, off + n, chars, count);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+	}
+
+	@Override
+	public Writer append(CharSequence csq, int start, int end)
+			throws IOException {
+		if (csq == null) {
+			return append("null", start, end);
+		}
+
+		if (csq instanceof String) {
+			write((String) csq, start, end - start);
+			return this;
+		}
+
+		synchronized (lock) {
+			for (int i = start; i < end; i++) {
+				if (count == chars.length) {
+					drain();
+				}
+				chars[count++] = csq.charAt(i);
+			}
+		}
+
+		return this;
+	}
+
+	@Override
+	public Writer append(CharSequence csq) throws IOException {
+		return csq == null ? append("null", 0, 4)
+				: append(csq, 0, csq.length());
+	}
+
+	/**
+	 * Writes the text followed by the line separator of the platform.
+	 *
+	 * @param text
+	 *            the text
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void writeln(String text) throws IOException {
+		synchronized (lock) {
+			write(text);
+			write(System.lineSeparator());
+		}
+	}
+
+	/**
+	 * Writes all buffered characters to the underlying stream and flushes it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized (lock) {
+			drain();
+			out.flush();
+		}
+	}
+
+	/**
+	 * Flushes the output. The underlying stream isn't closed, because it is
+	 * usually {@code System.out}.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+	/**
+	 * Returns the flush policy.
+	 *
+	 * @return the flush policy
+	 */
+	public FlushPolicy getFlushPolicy() {
+		return flushPolicy;
+	}
+
+	/**
+	 * Sets the flush policy.
+	 *
+	 * @param flushPolicy
+	 *            the flush policy
+	 * @throws IllegalArgumentException
+	 *             if policy is {@code null}
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		if (flushPolicy == null) {
+			throw new IllegalArgumentException(
+					"Flush policy cannot be null reference.");
+		}
+
+		this.flushPolicy = flushPolicy;
+	}
+
+	/**
+	 * Encodes buffered characters and writes them to the underlying stream
+	 * without flushing it. A high surrogate at the end of the buffer stays
+	 * buffered until its pair is written.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void drain() throws IOException {
+		CharBuffer in = CharBuffer.wrap(chars, 0, count);
+
+		while (true) {
+			CoderResult result = encoder.encode(in, bytes, false);
+			writeBytes();
+
+			if (!result.isOverflow()) {
+				break;
+			}
+		}
+
+		int remaining = in.remaining();
+		System.arraycopy(chars, in.position(), chars, 0, remaining);
+		count = remaining;
+	}
+
+	/**
+	 * Writes encoded bytes to the underlying stream.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void writeBytes() throws IOException {
+		if (bytes.position() > 0) {
+			out.write(bytes.array(), 0, bytes.position());
+			bytes.clear();
+		}
+	}
+}